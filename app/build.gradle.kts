@@ -29,6 +29,10 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        // 本地单元测试中android.util.Log等桩方法返回默认值，不抛出异常
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 dependencies {
@@ -37,7 +41,10 @@ dependencies {
     implementation(libs.material)
     implementation(libs.activity)
     implementation(libs.constraintlayout)
+    implementation(libs.recyclerview)
     testImplementation(libs.junit)
+    // android.jar中的org.json在本地单元测试中只是桩实现
+    testImplementation(libs.json)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
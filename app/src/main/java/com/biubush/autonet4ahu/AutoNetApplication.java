@@ -0,0 +1,19 @@
+package com.biubush.autonet4ahu;
+
+import android.app.Application;
+
+import com.biubush.autonet4ahu.util.Logger;
+
+/**
+ * 应用入口，负责初始化进程级的公共组件
+ */
+public class AutoNetApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        
+        // 初始化持久化日志存储
+        Logger.init(this);
+    }
+}
@@ -1,24 +1,62 @@
 package com.biubush.autonet4ahu;
 
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.View;
+import android.widget.AdapterView;
 import android.widget.Button;
+import android.widget.CheckBox;
+import android.widget.EditText;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
+import com.biubush.autonet4ahu.core.NotificationDispatcher;
+import com.biubush.autonet4ahu.core.WebhookOutbox;
+import com.biubush.autonet4ahu.model.LogQuery;
+import com.biubush.autonet4ahu.util.ConfigManager;
+import com.biubush.autonet4ahu.util.LogExporter;
 import com.biubush.autonet4ahu.util.Logger;
 
 import java.io.File;
-import java.util.List;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * 日志活动类，用于显示和管理应用日志
  */
 public class LogActivity extends AppCompatActivity implements Logger.OnLogListener {
-    private TextView logTextView;
-    private StringBuilder logBuilder = new StringBuilder();
+    private static final long SEARCH_DEBOUNCE_MS = 300;
+    // 时间过滤选项对应的时长，0表示不限
+    private static final long[] TIME_FILTER_SPANS = {0, 3600_000L, 86400_000L, 7 * 86400_000L};
+    // 日志存储的初始化和清空涉及分段与索引文件读写，在后台线程执行
+    private static final ExecutorService storeExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "LogActivityStore"));
+    
+    private RecyclerView logRecyclerView;
+    private LinearLayoutManager layoutManager;
+    private LogAdapter logAdapter;
+    private Spinner levelFilterSpinner;
+    private Spinner timeFilterSpinner;
+    private EditText searchInput;
+    private CheckBox regexCheckBox;
+    private TextView filterStatusView;
+    private Button saveLogsButton;
+    private Button clearLogsButton;
+    private CheckBox compressCheckBox;
+    private LogExporter logExporter;
+    private final Handler filterHandler = new Handler(Looper.getMainLooper());
+    private final Runnable applyFilterRunnable = this::applyFilter;
+    private boolean refreshPending = false;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -26,90 +64,253 @@ public class LogActivity extends AppCompatActivity implements Logger.OnLogListen
         setContentView(R.layout.activity_log);
         
         // 初始化视图
-        logTextView = findViewById(R.id.log_text_view);
+        logRecyclerView = findViewById(R.id.log_recycler_view);
         Button backButton = findViewById(R.id.back_button);
-        Button clearLogsButton = findViewById(R.id.clear_logs_button);
-        Button saveLogsButton = findViewById(R.id.save_logs_button);
+        clearLogsButton = findViewById(R.id.clear_logs_button);
+        saveLogsButton = findViewById(R.id.save_logs_button);
+        compressCheckBox = findViewById(R.id.compress_logs_checkbox);
+        levelFilterSpinner = findViewById(R.id.level_filter_spinner);
+        timeFilterSpinner = findViewById(R.id.time_filter_spinner);
+        searchInput = findViewById(R.id.log_search_input);
+        regexCheckBox = findViewById(R.id.log_regex_checkbox);
+        filterStatusView = findViewById(R.id.log_filter_status);
+        
+        layoutManager = new LinearLayoutManager(this);
+        layoutManager.setStackFromEnd(true);
+        logRecyclerView.setLayoutManager(layoutManager);
+        logRecyclerView.setItemAnimator(null);
         
         // 设置按钮点击监听器
         backButton.setOnClickListener(v -> finish());
+        clearLogsButton.setOnClickListener(v -> clearLogs());
+        clearLogsButton.setEnabled(false);
         
-        clearLogsButton.setOnClickListener(v -> {
-            Logger.clearLogs();
-            logBuilder.setLength(0);
-            logTextView.setText("");
-            Toast.makeText(this, R.string.msg_logs_cleared, Toast.LENGTH_SHORT).show();
-        });
+        logExporter = new LogExporter(this);
+        saveLogsButton.setOnClickListener(v -> exportLogs());
         
-        saveLogsButton.setOnClickListener(v -> {
-            if (Logger.saveLogsToFile(this)) {
-                File logDir = new File(getExternalFilesDir(null), "logs");
-                Toast.makeText(this, getString(R.string.msg_logs_saved, logDir.getAbsolutePath()), 
-                        Toast.LENGTH_LONG).show();
-            } else {
-                Toast.makeText(this, R.string.msg_logs_save_failed, Toast.LENGTH_SHORT).show();
-            }
+        // 设置过滤条件监听器
+        initFilterViews();
+        
+        // 确保持久化日志已初始化，完成后再绑定列表
+        storeExecutor.execute(() -> {
+            Logger.init(getApplicationContext());
+            String outboxStats = WebhookOutbox.getInstance(getApplicationContext()).getStatsSummary();
+            runOnUiThread(() -> onStoreReady(outboxStats));
         });
+    }
+    
+    /**
+     * 日志存储就绪后绑定列表并注册日志监听器
+     */
+    private void onStoreReady(String outboxStats) {
+        if (isDestroyed()) {
+            return;
+        }
+        logAdapter = new LogAdapter(Logger.getStore());
+        logRecyclerView.setAdapter(logAdapter);
+        clearLogsButton.setEnabled(true);
+        
+        // 存储就绪前可能已经设置了过滤条件
+        scheduleFilter(0);
         
-        // 加载日志
-        loadLogs();
+        // 滚动到底部
+        scrollToBottom();
         
         // 注册日志监听器
         Logger.addLogListener(this);
         
         // 记录日志
-        Logger.i("日志界面已打开");
+        Logger.i("日志界面已打开，" + Logger.getStatsSummary() + "，" + ConfigManager.getStatsSummary());
+        Logger.d(NotificationDispatcher.getInstance().getStatsSummary());
+        Logger.d(outboxStats);
+    }
+    
+    /**
+     * 在后台清空日志，完成后重置列表
+     */
+    private void clearLogs() {
+        clearLogsButton.setEnabled(false);
+        storeExecutor.execute(() -> {
+            Logger.clearLogs();
+            runOnUiThread(() -> {
+                if (isDestroyed()) {
+                    return;
+                }
+                clearLogsButton.setEnabled(true);
+                logAdapter.reset();
+                Toast.makeText(this, R.string.msg_logs_cleared, Toast.LENGTH_SHORT).show();
+            });
+        });
     }
     
     @Override
     protected void onDestroy() {
         // 移除日志监听器
         Logger.removeLogListener(this);
+        filterHandler.removeCallbacks(applyFilterRunnable);
+        logExporter.detach();
+        if (logAdapter != null) {
+            logAdapter.release();
+        }
         Logger.i("日志界面已关闭");
         super.onDestroy();
     }
     
     /**
-     * 加载日志
+     * 在后台导出日志，按钮上显示导出进度
+     */
+    private void exportLogs() {
+        boolean started = logExporter.export(compressCheckBox.isChecked(), new LogExporter.ExportCallback() {
+            @Override
+            public void onProgress(long bytesDone, long bytesTotal) {
+                int percent = bytesTotal > 0 ? (int) (bytesDone * 100 / bytesTotal) : 100;
+                saveLogsButton.setText(getString(R.string.msg_logs_exporting, percent));
+            }
+            
+            @Override
+            public void onComplete(File file, long fileSize) {
+                resetSaveButton();
+                Toast.makeText(LogActivity.this, getString(R.string.msg_logs_saved_size, 
+                        file.getAbsolutePath(), formatSize(fileSize)), Toast.LENGTH_LONG).show();
+            }
+            
+            @Override
+            public void onError(IOException error) {
+                resetSaveButton();
+                Toast.makeText(LogActivity.this, R.string.msg_logs_save_failed, Toast.LENGTH_SHORT).show();
+            }
+        });
+        
+        if (started) {
+            saveLogsButton.setEnabled(false);
+            compressCheckBox.setEnabled(false);
+        } else {
+            Toast.makeText(this, R.string.msg_logs_save_failed, Toast.LENGTH_SHORT).show();
+        }
+    }
+    
+    private void resetSaveButton() {
+        saveLogsButton.setEnabled(true);
+        compressCheckBox.setEnabled(true);
+        saveLogsButton.setText(R.string.btn_save_logs);
+    }
+    
+    private static String formatSize(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        } else if (bytes < 1024 * 1024) {
+            return String.format(Locale.CHINA, "%.1f KB", bytes / 1024.0);
+        }
+        return String.format(Locale.CHINA, "%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+    
+    /**
+     * 初始化过滤控件，条件变化后重新查询
      */
-    private void loadLogs() {
-        List<String> logs = Logger.getLogs();
-        logBuilder.setLength(0);
+    private void initFilterViews() {
+        AdapterView.OnItemSelectedListener selectionListener = new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                scheduleFilter(0);
+            }
+            
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        };
+        levelFilterSpinner.setOnItemSelectedListener(selectionListener);
+        timeFilterSpinner.setOnItemSelectedListener(selectionListener);
+        regexCheckBox.setOnCheckedChangeListener((buttonView, isChecked) -> scheduleFilter(0));
         
-        for (String log : logs) {
-            logBuilder.append(log).append("\n");
+        searchInput.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+            
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+            
+            @Override
+            public void afterTextChanged(Editable s) {
+                // 输入时延迟查询，避免每个字符都触发一次
+                scheduleFilter(SEARCH_DEBOUNCE_MS);
+            }
+        });
+    }
+    
+    private void scheduleFilter(long delayMs) {
+        filterHandler.removeCallbacks(applyFilterRunnable);
+        filterHandler.postDelayed(applyFilterRunnable, delayMs);
+    }
+    
+    /**
+     * 根据当前控件状态构建查询条件并应用到列表
+     */
+    private void applyFilter() {
+        if (logAdapter == null) {
+            return;
         }
+        LogQuery query = new LogQuery();
+        query.setMinLevel(levelFilterSpinner.getSelectedItemPosition());
         
-        logTextView.setText(logBuilder.toString());
+        int timeOption = timeFilterSpinner.getSelectedItemPosition();
+        if (timeOption > 0 && timeOption < TIME_FILTER_SPANS.length) {
+            query.setTimeRange(System.currentTimeMillis() - TIME_FILTER_SPANS[timeOption], Long.MAX_VALUE);
+        }
         
-        // 滚动到底部
-        scrollToBottom();
+        try {
+            query.setText(searchInput.getText().toString(), regexCheckBox.isChecked());
+        } catch (PatternSyntaxException e) {
+            filterStatusView.setVisibility(View.VISIBLE);
+            filterStatusView.setText(getString(R.string.msg_log_filter_invalid, e.getDescription()));
+            return;
+        }
+        
+        logAdapter.setQuery(query, (matchCount, elapsedMs) -> {
+            if (query.isEmpty()) {
+                filterStatusView.setVisibility(View.GONE);
+            } else {
+                filterStatusView.setVisibility(View.VISIBLE);
+                filterStatusView.setText(getString(R.string.msg_log_filter_result, matchCount, elapsedMs));
+            }
+            scrollToBottom();
+        });
     }
     
     /**
      * 滚动到底部
      */
     private void scrollToBottom() {
-        logTextView.post(() -> {
-            View parent = (View) logTextView.getParent();
-            while (!(parent instanceof androidx.core.widget.NestedScrollView) && 
-                   !(parent instanceof android.widget.ScrollView) && 
-                   parent != null) {
-                parent = (View) parent.getParent();
-            }
-            
-            if (parent != null) {
-                parent.scrollTo(0, logTextView.getHeight());
+        if (logAdapter == null) {
+            return;
+        }
+        int count = logAdapter.getItemCount();
+        if (count > 0) {
+            logRecyclerView.scrollToPosition(count - 1);
+        }
+    }
+    
+    /**
+     * 将新日志同步到列表，如果用户停留在底部则跟随滚动
+     */
+    private void applyNewLogs() {
+        refreshPending = false;
+        boolean atBottom = layoutManager.findLastVisibleItemPosition() >= logAdapter.getItemCount() - 1;
+        logAdapter.refresh(() -> {
+            if (atBottom) {
+                scrollToBottom();
             }
         });
     }
     
     @Override
     public void onNewLog(String log) {
-        runOnUiThread(() -> {
-            logBuilder.append(log).append("\n");
-            logTextView.setText(logBuilder.toString());
-            scrollToBottom();
-        });
+        // 同一帧内的多条日志合并为一次刷新
+        if (refreshPending) {
+            return;
+        }
+        refreshPending = true;
+        logRecyclerView.postOnAnimation(this::applyNewLogs);
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,347 @@
+package com.biubush.autonet4ahu;
+
+import android.graphics.Color;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.biubush.autonet4ahu.model.LogQuery;
+import com.biubush.autonet4ahu.model.LogRecord;
+import com.biubush.autonet4ahu.util.LogStore;
+import com.biubush.autonet4ahu.util.Logger;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 日志列表适配器，按页从持久化日志中按需加载记录
+ * <p>
+ * 只缓存最近访问的少量页面，无论历史日志有多少，内存占用都保持不变。
+ * 设置过滤条件后，列表只展示索引查询命中的记录序号。
+ */
+public class LogAdapter extends RecyclerView.Adapter<LogAdapter.LogViewHolder> {
+    private static final int PAGE_SIZE = 200;        // 每页记录数
+    private static final int MAX_CACHED_PAGES = 8;   // 最多缓存的页数
+
+    private final LogStore store;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService loader = Executors.newSingleThreadExecutor();
+    private final Set<Integer> loadingPages = new HashSet<>();
+    private final Map<Integer, Page> pages = new LinkedHashMap<Integer, Page>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+
+    private long baseSeq;
+    private int itemCount;
+    private int generation = 0;
+
+    // 过滤模式下命中的记录序号，为null表示未过滤
+    private LogQuery query;
+    private long[] filteredSeqs;
+    private long queriedUntil;
+    private boolean appendQueryPending = false;
+
+    /**
+     * 构造函数
+     *
+     * @param store 持久化日志存储
+     */
+    public LogAdapter(LogStore store) {
+        this.store = store;
+        this.baseSeq = store.getFirstSeq();
+        this.itemCount = (int) Math.min(Integer.MAX_VALUE, store.size());
+    }
+
+    @NonNull
+    @Override
+    public LogViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_log, parent, false);
+        return new LogViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull LogViewHolder holder, int position) {
+        int pageIndex = position / PAGE_SIZE;
+        int offset = position % PAGE_SIZE;
+        LogRecord record = getRecord(pageIndex, offset);
+        holder.bind(record);
+
+        // 接近页尾时预取下一页，保证滚动流畅
+        if (offset >= PAGE_SIZE * 3 / 4 && (pageIndex + 1) * PAGE_SIZE < itemCount) {
+            getRecord(pageIndex + 1, 0);
+        }
+    }
+
+    @Override
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * 同步存储中新增的记录
+     *
+     * @param onAppended 有新记录加入列表时在主线程回调
+     */
+    public void refresh(Runnable onAppended) {
+        // 最后一条记录可能刚合并了重复次数，后台重新加载所在页
+        if (itemCount > 0) {
+            loadPage((itemCount - 1) / PAGE_SIZE);
+        }
+        if (query != null) {
+            appendFiltered(onAppended);
+            return;
+        }
+        int newCount = (int) Math.min(Integer.MAX_VALUE, store.getNextSeq() - baseSeq);
+        int added = newCount - itemCount;
+        if (added > 0) {
+            int oldCount = itemCount;
+            itemCount = newCount;
+            notifyItemRangeInserted(oldCount, added);
+            onAppended.run();
+        }
+    }
+
+    /**
+     * 丢弃所有缓存页，从存储的当前状态重新开始
+     */
+    public void reset() {
+        if (query != null) {
+            setQuery(query, null);
+            return;
+        }
+        invalidate();
+        baseSeq = store.getFirstSeq();
+        itemCount = (int) Math.min(Integer.MAX_VALUE, store.size());
+        notifyDataSetChanged();
+    }
+
+    /**
+     * 设置过滤条件，查询在后台线程执行
+     *
+     * @param newQuery 过滤条件，为null或无条件时显示全部日志
+     * @param callback 查询完成后在主线程回调
+     */
+    public void setQuery(LogQuery newQuery, OnQueryListener callback) {
+        if (newQuery == null || newQuery.isEmpty()) {
+            query = null;
+            filteredSeqs = null;
+            reset();
+            if (callback != null) {
+                callback.onQueryFinished(itemCount, 0);
+            }
+            return;
+        }
+        query = newQuery;
+        final int queryGeneration = invalidate();
+        loader.execute(() -> {
+            long start = System.nanoTime();
+            long until = store.getNextSeq();
+            long[] seqs;
+            try {
+                seqs = store.getIndex().query(store, newQuery, store.getFirstSeq());
+            } catch (InterruptedException e) {
+                return;
+            }
+            long elapsedMs = (System.nanoTime() - start) / 1000000;
+            Logger.d("日志过滤完成，命中" + seqs.length + "条，耗时" + elapsedMs + "ms");
+            mainHandler.post(() -> {
+                if (queryGeneration != generation) {
+                    return;
+                }
+                filteredSeqs = seqs;
+                itemCount = seqs.length;
+                queriedUntil = until;
+                notifyDataSetChanged();
+                if (callback != null) {
+                    callback.onQueryFinished(itemCount, elapsedMs);
+                }
+            });
+        });
+    }
+
+    /**
+     * 过滤模式下，只对上次查询之后写入的记录增量查询
+     */
+    private void appendFiltered(Runnable onAppended) {
+        if (appendQueryPending || store.getNextSeq() <= queriedUntil) {
+            return;
+        }
+        appendQueryPending = true;
+        final int queryGeneration = generation;
+        final LogQuery appendQuery = query;
+        final long fromSeq = queriedUntil;
+        loader.execute(() -> {
+            long until = store.getNextSeq();
+            long[] seqs;
+            try {
+                seqs = store.getIndex().query(store, appendQuery, fromSeq);
+            } catch (InterruptedException e) {
+                return;
+            }
+            mainHandler.post(() -> {
+                appendQueryPending = false;
+                if (queryGeneration != generation) {
+                    return;
+                }
+                queriedUntil = until;
+                if (seqs.length == 0) {
+                    return;
+                }
+                if (itemCount + seqs.length > filteredSeqs.length) {
+                    filteredSeqs = Arrays.copyOf(filteredSeqs, Math.max(filteredSeqs.length * 2, itemCount + seqs.length));
+                }
+                System.arraycopy(seqs, 0, filteredSeqs, itemCount, seqs.length);
+                int oldCount = itemCount;
+                itemCount += seqs.length;
+                notifyItemRangeInserted(oldCount, seqs.length);
+                onAppended.run();
+            });
+        });
+    }
+
+    /**
+     * 丢弃缓存页并使进行中的加载失效
+     *
+     * @return 新的代数
+     */
+    private int invalidate() {
+        generation++;
+        pages.clear();
+        loadingPages.clear();
+        appendQueryPending = false;
+        return generation;
+    }
+
+    /**
+     * 释放后台加载线程
+     */
+    public void release() {
+        loader.shutdownNow();
+    }
+
+    /**
+     * 获取指定位置的记录，未加载时发起异步加载并返回null
+     */
+    private LogRecord getRecord(int pageIndex, int offset) {
+        Page page = pages.get(pageIndex);
+        if (page != null && offset < page.covered) {
+            return page.records[offset];
+        }
+        loadPage(pageIndex);
+        return null;
+    }
+
+    private void loadPage(int pageIndex) {
+        if (!loadingPages.add(pageIndex)) {
+            return;
+        }
+        final int loadGeneration = generation;
+        final int startPosition = pageIndex * PAGE_SIZE;
+        final int covered = Math.max(0, Math.min(PAGE_SIZE, itemCount - startPosition));
+        final long startSeq = baseSeq + startPosition;
+        final long[] seqs = filteredSeqs;
+        loader.execute(() -> {
+            Page page = new Page(covered);
+            if (seqs == null) {
+                for (LogRecord record : store.read(startSeq, covered)) {
+                    int index = (int) (record.getSeq() - startSeq);
+                    if (index >= 0 && index < PAGE_SIZE) {
+                        page.records[index] = record;
+                    }
+                }
+            } else {
+                // 被淘汰的记录会被跳过，按序号与位置对齐
+                int index = 0;
+                for (LogRecord record : store.read(seqs, startPosition, covered)) {
+                    while (index < covered && seqs[startPosition + index] < record.getSeq()) {
+                        index++;
+                    }
+                    if (index < covered) {
+                        page.records[index++] = record;
+                    }
+                }
+            }
+            mainHandler.post(() -> {
+                if (loadGeneration != generation) {
+                    return;
+                }
+                loadingPages.remove(pageIndex);
+                pages.put(pageIndex, page);
+                // 加载期间新增的行也一并刷新，它们会再次触发加载
+                int start = pageIndex * PAGE_SIZE;
+                int count = Math.min(PAGE_SIZE, itemCount - start);
+                if (count > 0) {
+                    notifyItemRangeChanged(start, count);
+                }
+            });
+        });
+    }
+
+    /**
+     * 过滤查询完成回调
+     */
+    public interface OnQueryListener {
+        void onQueryFinished(int matchCount, long elapsedMs);
+    }
+
+    /**
+     * 已加载的一页记录，covered表示加载时该页已存在的记录数
+     */
+    private static final class Page {
+        final LogRecord[] records = new LogRecord[PAGE_SIZE];
+        final int covered;
+
+        Page(int covered) {
+            this.covered = covered;
+        }
+    }
+
+    /**
+     * 日志行视图
+     */
+    static class LogViewHolder extends RecyclerView.ViewHolder {
+        private final TextView lineView;
+        private final int defaultColor;
+
+        LogViewHolder(@NonNull View itemView) {
+            super(itemView);
+            lineView = itemView.findViewById(R.id.log_line);
+            defaultColor = lineView.getCurrentTextColor();
+        }
+
+        void bind(LogRecord record) {
+            if (record == null) {
+                // 记录尚未加载或已被淘汰
+                lineView.setText("…");
+                lineView.setTextColor(defaultColor);
+                return;
+            }
+            lineView.setText(record.getLine());
+            switch (record.getLevel()) {
+                case LogRecord.LEVEL_ERROR:
+                    lineView.setTextColor(Color.rgb(0xD3, 0x2F, 0x2F));
+                    break;
+                case LogRecord.LEVEL_WARN:
+                    lineView.setTextColor(Color.rgb(0xF5, 0x7C, 0x00));
+                    break;
+                default:
+                    lineView.setTextColor(defaultColor);
+                    break;
+            }
+        }
+    }
+}
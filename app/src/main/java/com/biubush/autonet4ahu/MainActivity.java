@@ -1,15 +1,21 @@
 package com.biubush.autonet4ahu;
 
 import android.app.AlertDialog;
+import android.content.ComponentName;
+import android.content.Context;
 import android.content.Intent;
+import android.content.ServiceConnection;
 import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.IBinder;
 import android.provider.Settings;
 import android.text.TextUtils;
+import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.Button;
+import android.widget.LinearLayout;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
@@ -19,11 +25,11 @@ import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 
-import com.biubush.autonet4ahu.core.EPortal;
 import com.biubush.autonet4ahu.core.NetworkDetector;
-import com.biubush.autonet4ahu.core.Notifier;
+import com.biubush.autonet4ahu.core.PayloadTemplate;
+import com.biubush.autonet4ahu.model.Account;
 import com.biubush.autonet4ahu.model.Config;
-import com.biubush.autonet4ahu.model.LoginResult;
+import com.biubush.autonet4ahu.model.Credentials;
 import com.biubush.autonet4ahu.receiver.NetworkChangeReceiver;
 import com.biubush.autonet4ahu.service.LoginService;
 import com.biubush.autonet4ahu.util.ConfigManager;
@@ -31,11 +37,11 @@ import com.biubush.autonet4ahu.util.Logger;
 import com.biubush.autonet4ahu.util.PermissionUtil;
 import com.google.android.material.switchmaterial.SwitchMaterial;
 import com.google.android.material.textfield.TextInputEditText;
+import com.google.android.material.textfield.TextInputLayout;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * 主活动类，实现登录配置界面功能
@@ -45,9 +51,16 @@ public class MainActivity extends AppCompatActivity {
     
     private TextInputEditText studentIdInput;
     private TextInputEditText passwordInput;
+    private TextInputLayout passwordLayout;
+    private LinearLayout backupAccountsContainer;
     private TextInputEditText webhookInput;
+    private TextInputEditText logShipUrlInput;
+    private TextInputEditText portalHostsInput;
+    private TextInputEditText notifyWindowInput;
+    private TextInputEditText webhookTemplateInput;
     private SwitchMaterial autoLoginSwitch;
     private SwitchMaterial notifyOnSuccessSwitch;
+    private SwitchMaterial notifyToFileSwitch;
     private Button saveButton;
     private Button loginButton;
     private Button viewLogsButton;
@@ -55,7 +68,27 @@ public class MainActivity extends AppCompatActivity {
     
     private ConfigManager configManager;
     private NetworkDetector networkDetector;
-    private ExecutorService executorService;
+    private LoginService loginService;
+    private boolean serviceBound = false;
+    private boolean pendingManualLogin = false;
+    
+    private final ServiceConnection serviceConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder service) {
+            loginService = ((LoginService.LocalBinder) service).getService();
+            Logger.d("登录服务已连接");
+            if (pendingManualLogin) {
+                pendingManualLogin = false;
+                requestLogin(loginService);
+            }
+        }
+        
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            loginService = null;
+            Logger.w("登录服务连接断开");
+        }
+    };
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -76,7 +109,6 @@ public class MainActivity extends AppCompatActivity {
         // 初始化工具类
         configManager = new ConfigManager(this);
         networkDetector = new NetworkDetector(this);
-        executorService = Executors.newSingleThreadExecutor();
         
         // 重置网络状态记录
         NetworkChangeReceiver.resetNetworkState(this);
@@ -92,13 +124,16 @@ public class MainActivity extends AppCompatActivity {
     }
     
     @Override
-    protected void onDestroy() {
-        // 关闭线程池
-        if (executorService != null && !executorService.isShutdown()) {
-            executorService.shutdown();
-        }
-        
-        super.onDestroy();
+    protected void onStart() {
+        super.onStart();
+        bindLoginService();
+    }
+    
+    @Override
+    protected void onStop() {
+        pendingManualLogin = false;
+        unbindLoginService();
+        super.onStop();
     }
     
     /**
@@ -107,9 +142,16 @@ public class MainActivity extends AppCompatActivity {
     private void initViews() {
         studentIdInput = findViewById(R.id.student_id_input);
         passwordInput = findViewById(R.id.password_input);
+        passwordLayout = findViewById(R.id.password_layout);
+        backupAccountsContainer = findViewById(R.id.backup_accounts_container);
         webhookInput = findViewById(R.id.webhook_input);
+        logShipUrlInput = findViewById(R.id.log_ship_url_input);
+        portalHostsInput = findViewById(R.id.portal_hosts_input);
+        notifyWindowInput = findViewById(R.id.notify_window_input);
+        webhookTemplateInput = findViewById(R.id.webhook_template_input);
         autoLoginSwitch = findViewById(R.id.auto_login_switch);
         notifyOnSuccessSwitch = findViewById(R.id.notify_on_success_switch);
+        notifyToFileSwitch = findViewById(R.id.notify_to_file_switch);
         saveButton = findViewById(R.id.save_button);
         loginButton = findViewById(R.id.login_button);
         viewLogsButton = findViewById(R.id.view_logs_button);
@@ -118,6 +160,7 @@ public class MainActivity extends AppCompatActivity {
         // 设置按钮点击监听器
         saveButton.setOnClickListener(v -> saveConfig());
         loginButton.setOnClickListener(v -> performLogin());
+        findViewById(R.id.add_backup_account_button).setOnClickListener(v -> addBackupAccountRow(null));
         viewLogsButton.setOnClickListener(v -> openLogActivity());
         aboutButton.setOnClickListener(v -> showAboutDialog());
     }
@@ -129,7 +172,11 @@ public class MainActivity extends AppCompatActivity {
         Config config = configManager.loadConfig();
         
         studentIdInput.setText(config.getStudentId());
-        passwordInput.setText(config.getPassword());
+        // 配置快照中没有密码明文，已保存时留空表示不修改
+        passwordInput.setText("");
+        passwordLayout.setHint(getString(config.isPasswordStored() ? R.string.hint_password_stored : R.string.hint_password));
+        
+        showBackupAccounts(config.getBackupAccounts());
         
         // 如果有webhook URL，则显示第一个
         List<String> webhookUrls = config.getWebhookUrls();
@@ -137,12 +184,52 @@ public class MainActivity extends AppCompatActivity {
             webhookInput.setText(webhookUrls.get(0));
         }
         
+        logShipUrlInput.setText(config.getLogShipUrl());
+        portalHostsInput.setText(TextUtils.join(", ", config.getPortalHosts()));
+        notifyWindowInput.setText(String.valueOf(config.getNotifyWindowSeconds()));
+        webhookTemplateInput.setText(config.getWebhookTemplate());
         autoLoginSwitch.setChecked(config.isAutoLogin());
         notifyOnSuccessSwitch.setChecked(config.isNotifyOnSuccess());
+        notifyToFileSwitch.setChecked(config.isNotifyToFile());
         
         Logger.d("配置已加载");
     }
     
+    /**
+     * 显示备用账号，每个账号一行，密码框留空
+     */
+    private void showBackupAccounts(List<Account> accounts) {
+        backupAccountsContainer.removeAllViews();
+        for (Account account : accounts) {
+            addBackupAccountRow(account);
+        }
+    }
+    
+    /**
+     * 添加一行备用账号
+     *
+     * @param account 已保存的账号，为null时添加空行
+     */
+    private void addBackupAccountRow(Account account) {
+        View row = LayoutInflater.from(this).inflate(R.layout.item_backup_account, backupAccountsContainer, false);
+        if (account != null) {
+            // 记录已保存的学号，学号未改动且密码留空时沿用已保存的密码
+            row.setTag(account.getStudentId());
+            ((TextInputEditText) row.findViewById(R.id.backup_student_id_input)).setText(account.getStudentId());
+            if (account.isPasswordStored()) {
+                ((TextInputLayout) row.findViewById(R.id.backup_password_layout))
+                        .setHint(getString(R.string.hint_password_stored));
+            }
+        }
+        row.findViewById(R.id.backup_remove_button).setOnClickListener(v -> backupAccountsContainer.removeView(row));
+        backupAccountsContainer.addView(row);
+    }
+    
+    private static String textOf(View row, int id) {
+        CharSequence text = ((TextInputEditText) row.findViewById(id)).getText();
+        return text != null ? text.toString().trim() : "";
+    }
+    
     /**
      * 保存配置
      */
@@ -150,14 +237,58 @@ public class MainActivity extends AppCompatActivity {
         String studentId = studentIdInput.getText().toString().trim();
         String password = passwordInput.getText().toString().trim();
         String webhook = webhookInput.getText().toString().trim();
+        String logShipUrl = logShipUrlInput.getText().toString().trim();
+        String portalHosts = portalHostsInput.getText().toString().trim();
+        String notifyWindow = notifyWindowInput.getText().toString().trim();
+        String webhookTemplate = webhookTemplateInput.getText().toString().trim();
         boolean autoLogin = autoLoginSwitch.isChecked();
         boolean notifyOnSuccess = notifyOnSuccessSwitch.isChecked();
+        boolean notifyToFile = notifyToFileSwitch.isChecked();
+        
+        // 检查消息模板
+        if (!TextUtils.isEmpty(webhookTemplate)) {
+            try {
+                PayloadTemplate.compile(webhookTemplate);
+            } catch (IllegalArgumentException e) {
+                Toast.makeText(this, getString(R.string.msg_invalid_template, e.getMessage()), Toast.LENGTH_LONG).show();
+                Logger.w("消息模板无效: " + e.getMessage());
+                return;
+            }
+        }
         
+        // 读取备用账号，密码留空表示沿用已保存的密码
+        List<Account> backupAccounts = new ArrayList<>();
+        for (int i = 0; i < backupAccountsContainer.getChildCount(); i++) {
+            View row = backupAccountsContainer.getChildAt(i);
+            String backupId = textOf(row, R.id.backup_student_id_input);
+            String backupPassword = textOf(row, R.id.backup_password_input);
+            if (backupId.isEmpty() && backupPassword.isEmpty()) {
+                continue;
+            }
+            if (!backupId.isEmpty() && !backupPassword.isEmpty()) {
+                backupAccounts.add(new Account(backupId, backupPassword));
+            } else if (!backupId.isEmpty() && backupId.equals(row.getTag())) {
+                backupAccounts.add(Account.stored(backupId));
+            } else {
+                Toast.makeText(this, getString(R.string.msg_invalid_backup_account, i + 1), Toast.LENGTH_LONG).show();
+                Logger.w("备用账号第" + (i + 1) + "个缺少学号或密码");
+                return;
+            }
+        }
+        
+        Config saved = ConfigManager.getConfig(this);
         Config config = new Config();
         config.setStudentId(studentId);
         config.setPassword(password);
+        config.setPasswordStored(password.isEmpty() && saved.isPasswordStored() && studentId.equals(saved.getStudentId()));
+        config.setBackupAccounts(backupAccounts);
         config.setAutoLogin(autoLogin);
         config.setNotifyOnSuccess(notifyOnSuccess);
+        config.setNotifyToFile(notifyToFile);
+        config.setLogShipUrl(logShipUrl);
+        config.setPortalHosts(Arrays.asList(portalHosts.split("[,，\\s]+")));
+        config.setNotifyWindowSeconds(TextUtils.isEmpty(notifyWindow) ? 0 : Integer.parseInt(notifyWindow));
+        config.setWebhookTemplate(webhookTemplate);
         
         // 添加webhook URL
         if (!TextUtils.isEmpty(webhook)) {
@@ -171,6 +302,13 @@ public class MainActivity extends AppCompatActivity {
             Toast.makeText(this, R.string.msg_config_saved, Toast.LENGTH_SHORT).show();
             Logger.i("配置已保存");
             
+            // 密码不在界面上保留
+            Config stored = ConfigManager.getConfig(this);
+            passwordInput.setText("");
+            passwordLayout.setHint(getString(stored.isPasswordStored()
+                    ? R.string.hint_password_stored : R.string.hint_password));
+            showBackupAccounts(stored.getBackupAccounts());
+            
             // 如果启用了自动登录，则启动登录服务
             if (autoLogin && config.isComplete()) {
                 startLoginService();
@@ -197,66 +335,83 @@ public class MainActivity extends AppCompatActivity {
         String password = passwordInput.getText().toString().trim();
         
         // 检查配置是否完整
-        if (TextUtils.isEmpty(studentId) || TextUtils.isEmpty(password)) {
+        Config saved = ConfigManager.getConfig(this);
+        if (TextUtils.isEmpty(studentId) || (TextUtils.isEmpty(password) && !saved.isPasswordStored())) {
             Toast.makeText(this, R.string.msg_incomplete_config, Toast.LENGTH_SHORT).show();
             Logger.w("配置不完整，取消登录");
             return;
         }
         
+        // 手动登录由登录服务执行，使用已保存的配置
+        if (!studentId.equals(saved.getStudentId()) || (!password.isEmpty() && !matchesSavedPassword(studentId, password))) {
+            Toast.makeText(this, R.string.msg_save_before_login, Toast.LENGTH_SHORT).show();
+            Logger.w("学号或密码未保存，取消登录");
+            return;
+        }
+        
         // 显示登录中提示
         Toast.makeText(this, R.string.msg_login_started, Toast.LENGTH_SHORT).show();
         Logger.i("开始手动登录");
         
-        // 使用线程池执行登录操作
-        executorService.execute(() -> {
-            try {
-                // 获取IP地址
-                String ipAddress = networkDetector.getLocalIpAddress();
-                if (ipAddress == null || ipAddress.isEmpty() || ipAddress.startsWith("127.")) {
-                    Logger.e("获取到无效IP地址: " + (ipAddress == null || ipAddress.isEmpty() ? "空" : ipAddress));
-                    runOnUiThread(() -> {
-                        Toast.makeText(MainActivity.this, 
-                                getString(R.string.msg_login_failed, "无法获取有效的IP地址"), 
-                                Toast.LENGTH_LONG).show();
-                    });
-                    return;
-                }
-                
-                // 创建ePortal实例
-                EPortal ePortal = new EPortal(studentId, password);
-                
-                // 执行登录
-                LoginResult result = ePortal.login();
-                Logger.i("登录结果: " + result);
-                
-                // 在UI线程显示结果
-                runOnUiThread(() -> {
-                    if (result.isSuccess()) {
-                        Toast.makeText(MainActivity.this, R.string.msg_login_success, Toast.LENGTH_SHORT).show();
-                    } else {
-                        Toast.makeText(MainActivity.this, getString(R.string.msg_login_failed, result.getMessage()), Toast.LENGTH_LONG).show();
-                    }
-                });
-                
-                // 只在登录成功时发送通知
-                if (result.isSuccess()) {
-                    String webhook = webhookInput.getText().toString().trim();
-                    List<String> webhookUrls = new ArrayList<>();
-                    if (!TextUtils.isEmpty(webhook)) {
-                        webhookUrls.add(webhook);
-                    }
-                    
-                    Notifier notifier = new Notifier(MainActivity.this, webhookUrls, notifyOnSuccessSwitch.isChecked());
-                    notifier.sendLoginResultNotification(result, studentId);
-                }
-                
-            } catch (Exception e) {
-                Logger.e("登录过程中发生异常", e);
-                runOnUiThread(() -> {
-                    Toast.makeText(MainActivity.this, getString(R.string.msg_login_failed, e.getMessage()), Toast.LENGTH_LONG).show();
-                });
+        if (loginService == null) {
+            // 服务尚未连接，连接后再登录
+            pendingManualLogin = true;
+            bindLoginService();
+            return;
+        }
+        requestLogin(loginService);
+    }
+    
+    /**
+     * 输入的学号和密码是否与已保存的凭据一致，只比较凭据指纹
+     */
+    private boolean matchesSavedPassword(String studentId, String password) {
+        Credentials entered = Credentials.of(studentId, password);
+        try {
+            return entered.getFingerprint().equals(ConfigManager.getCredentials(this).getFingerprint());
+        } finally {
+            entered.wipe();
+        }
+    }
+    
+    /**
+     * 通过登录服务登录，在UI线程显示结果
+     *
+     * @param service 已绑定的登录服务
+     */
+    private void requestLogin(LoginService service) {
+        service.login().whenComplete((result, error) -> runOnUiThread(() -> {
+            if (isFinishing() || isDestroyed()) {
+                return;
             }
-        });
+            if (error != null) {
+                Toast.makeText(MainActivity.this, getString(R.string.msg_login_failed, error.getMessage()), Toast.LENGTH_LONG).show();
+            } else if (result.isSuccess()) {
+                Toast.makeText(MainActivity.this, R.string.msg_login_success, Toast.LENGTH_SHORT).show();
+            } else {
+                Toast.makeText(MainActivity.this, getString(R.string.msg_login_failed, result.getMessage()), Toast.LENGTH_LONG).show();
+            }
+        }));
+    }
+    
+    /**
+     * 绑定登录服务，服务未运行时由绑定创建
+     */
+    private void bindLoginService() {
+        if (!serviceBound) {
+            serviceBound = bindService(new Intent(this, LoginService.class), serviceConnection, Context.BIND_AUTO_CREATE);
+        }
+    }
+    
+    /**
+     * 解除绑定登录服务
+     */
+    private void unbindLoginService() {
+        if (serviceBound) {
+            unbindService(serviceConnection);
+            serviceBound = false;
+            loginService = null;
+        }
     }
     
     /**
@@ -0,0 +1,147 @@
+package com.biubush.autonet4ahu.core;
+
+import com.biubush.autonet4ahu.model.Credentials;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 账号池及各账号的健康状况
+ * <p>
+ * 多台设备共用几个校园网账号时，某个账号可能因在线设备数或流量达到上限而无法登录。账号池按健康状况排序：
+ * 冷却中的账号排在最后，其余账号中最近登录成功的排在前面，状况相同时保持配置顺序。
+ * 账号出现只与自身有关的失败时进入冷却，冷却时间按失败类别和连续失败次数递增。
+ * 健康状况以凭据指纹为键，配置变更后未改动的账号保留原有记录。线程安全。
+ */
+public class AccountPool {
+    private static final long LIMIT_COOLDOWN_MS = 10 * 60 * 1000L;          // 账号受限的首次冷却时间
+    private static final long TERMINAL_COOLDOWN_MS = 6 * 60 * 60 * 1000L;   // 终止类失败的冷却时间
+    private static final long MAX_COOLDOWN_MS = 6 * 60 * 60 * 1000L;
+
+    private List<Credentials> accounts = new ArrayList<>();       // 受this保护
+    private final Map<String, Health> health = new HashMap<>();   // 受this保护，键为凭据指纹
+    private long failoverCount;                                   // 受this保护
+
+    /**
+     * 单个账号的健康状况
+     */
+    private static final class Health {
+        long lastSuccessAt;
+        long cooldownUntil;
+        int consecutiveFailures;
+        long successCount;
+        long failureCount;
+        PortalResponseClassifier.Category lastFailure;
+    }
+
+    /**
+     * 更新账号列表，已有账号的健康状况保留
+     *
+     * @param accounts 登录凭据，按配置顺序排列
+     */
+    public synchronized void update(List<Credentials> accounts) {
+        this.accounts = new ArrayList<>(accounts);
+        Map<String, Health> retained = new HashMap<>();
+        for (Credentials credentials : accounts) {
+            Health existing = health.get(credentials.getFingerprint());
+            retained.put(credentials.getFingerprint(), existing != null ? existing : new Health());
+        }
+        health.clear();
+        health.putAll(retained);
+    }
+
+    /**
+     * 获取按健康状况排序的账号
+     *
+     * @param now 当前时间
+     */
+    public synchronized List<Credentials> ordered(long now) {
+        List<Credentials> ordered = new ArrayList<>(accounts);
+        ordered.sort((a, b) -> {
+            Health ha = health.get(a.getFingerprint());
+            Health hb = health.get(b.getFingerprint());
+            boolean coolingA = ha.cooldownUntil > now;
+            boolean coolingB = hb.cooldownUntil > now;
+            if (coolingA != coolingB) {
+                return coolingA ? 1 : -1;
+            }
+            if (coolingA) {
+                // 都在冷却中时先尝试最早结束冷却的账号
+                return Long.compare(ha.cooldownUntil, hb.cooldownUntil);
+            }
+            return Long.compare(hb.lastSuccessAt, ha.lastSuccessAt);
+        });
+        return ordered;
+    }
+
+    /**
+     * 账号是否在冷却中
+     */
+    public synchronized boolean isCoolingDown(Credentials credentials, long now) {
+        Health h = health.get(credentials.getFingerprint());
+        return h != null && h.cooldownUntil > now;
+    }
+
+    /**
+     * 记录一次登录成功
+     */
+    public synchronized void recordSuccess(Credentials credentials, long now) {
+        Health h = health.get(credentials.getFingerprint());
+        if (h == null) {
+            return;
+        }
+        h.lastSuccessAt = now;
+        h.cooldownUntil = 0;
+        h.consecutiveFailures = 0;
+        h.lastFailure = null;
+        h.successCount++;
+    }
+
+    /**
+     * 记录一次只与该账号有关的失败，账号进入冷却
+     *
+     * @param credentials 登录凭据
+     * @param category 失败类别
+     * @param now 当前时间
+     */
+    public synchronized void recordFailure(Credentials credentials, PortalResponseClassifier.Category category, long now) {
+        Health h = health.get(credentials.getFingerprint());
+        if (h == null) {
+            return;
+        }
+        h.consecutiveFailures++;
+        h.failureCount++;
+        h.lastFailure = category;
+        long cooldown = category == PortalResponseClassifier.Category.TERMINAL
+                ? TERMINAL_COOLDOWN_MS
+                : LIMIT_COOLDOWN_MS << Math.min(h.consecutiveFailures - 1, 5);
+        h.cooldownUntil = now + Math.min(cooldown, MAX_COOLDOWN_MS);
+    }
+
+    /**
+     * 记录一次换用下一个账号
+     */
+    public synchronized void recordFailover() {
+        failoverCount++;
+    }
+
+    /**
+     * 获取账号池统计
+     */
+    public synchronized String getSummary() {
+        long now = System.currentTimeMillis();
+        StringBuilder sb = new StringBuilder("账号池: ").append(accounts.size()).append("个账号，切换账号")
+                .append(failoverCount).append("次");
+        for (Credentials credentials : accounts) {
+            Health h = health.get(credentials.getFingerprint());
+            sb.append("\n  ").append(credentials.getStudentId())
+                    .append(" 成功").append(h.successCount).append("次 失败").append(h.failureCount).append("次");
+            if (h.cooldownUntil > now) {
+                sb.append(" 冷却中，剩余").append((h.cooldownUntil - now) / 1000).append("秒（").append(h.lastFailure).append("）");
+            }
+        }
+        return sb.toString();
+    }
+}
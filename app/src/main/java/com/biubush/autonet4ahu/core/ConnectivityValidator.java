@@ -0,0 +1,249 @@
+package com.biubush.autonet4ahu.core;
+
+import com.biubush.autonet4ahu.util.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 登录后的联网验证
+ * <p>
+ * 网关返回登录成功后，放行流量可能还要等几秒，偶尔根本没有放行。登录成功后并行访问多个探测地址，
+ * 任意一个经WiFi发出的探测返回204即认为已真正联网，从开始验证到首个探测成功的时间就是用户实际等待的时间。
+ * 被网关拦截的请求会重定向到认证页面，最终得到的不是204，因此不会误判。
+ * 拿不到WiFi网络时探测从移动数据发出，返回204也不能说明WiFi已放行，这时结果为{@link Outcome#UNKNOWN}。
+ */
+public class ConnectivityValidator {
+    /**
+     * 默认探测地址，均为国内可访问的generate_204服务
+     */
+    public static final List<String> DEFAULT_PROBE_URLS = Collections.unmodifiableList(Arrays.asList(
+            "http://connect.rom.miui.com/generate_204",
+            "http://connectivitycheck.platform.hicloud.com/generate_204",
+            "http://wifi.vivo.com.cn/generate_204"));
+
+    private static final int PROBE_TIMEOUT_MS = 2000;
+    private static final long RETRY_INTERVAL_MS = 300;
+
+    private final PortalTransport transport;
+    private final List<String> probeUrls;
+    private final ExecutorService executor;
+
+    /**
+     * 验证结论
+     */
+    public enum Outcome {
+        /** 经WiFi发出的探测返回了204 */
+        CONNECTED,
+        /** 期限内没有经WiFi发出的探测返回204 */
+        BLOCKED,
+        /** 没有可用的WiFi网络，探测都从其他网络发出，无法判断 */
+        UNKNOWN
+    }
+
+    /**
+     * 验证结果
+     */
+    public static final class Result {
+        private final Outcome outcome;
+        private final long elapsedMs;
+        private final String probeUrl;
+        private final boolean networkBound;
+
+        Result(Outcome outcome, long elapsedMs, String probeUrl, boolean networkBound) {
+            this.outcome = outcome;
+            this.elapsedMs = elapsedMs;
+            this.probeUrl = probeUrl;
+            this.networkBound = networkBound;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        /**
+         * 是否在期限内确认已通过WiFi联网
+         */
+        public boolean isConnected() {
+            return outcome == Outcome.CONNECTED;
+        }
+
+        /**
+         * 从开始验证到确认联网的时间，未联网时为等待的总时间
+         */
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        /**
+         * 首个成功的探测地址，未确认联网时为null
+         */
+        public String getProbeUrl() {
+            return probeUrl;
+        }
+
+        /**
+         * 探测是否绑定到WiFi网络发出
+         */
+        public boolean isNetworkBound() {
+            return networkBound;
+        }
+
+        @Override
+        public String toString() {
+            switch (outcome) {
+                case CONNECTED:
+                    return "已联网，耗时" + elapsedMs + "ms（" + probeUrl + "）";
+                case UNKNOWN:
+                    return "没有可用的WiFi网络，无法验证，等待" + elapsedMs + "ms";
+                default:
+                    return "验证失败，等待" + elapsedMs + "ms";
+            }
+        }
+    }
+
+    /**
+     * 构造函数，使用默认探测地址
+     *
+     * @param transport HTTP传输层
+     */
+    public ConnectivityValidator(PortalTransport transport) {
+        this(transport, DEFAULT_PROBE_URLS);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param transport HTTP传输层
+     * @param probeUrls 探测地址，每个地址使用一个探测线程
+     */
+    public ConnectivityValidator(PortalTransport transport, List<String> probeUrls) {
+        if (probeUrls.isEmpty()) {
+            throw new IllegalArgumentException("探测地址不能为空");
+        }
+        this.transport = transport;
+        this.probeUrls = new ArrayList<>(probeUrls);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.probeUrls.size(), r -> {
+            Thread thread = new Thread(r, "ConnectivityProbe-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 并行探测直到任意一个探测成功或超过期限，阻塞调用线程
+     *
+     * @param deadlineMs 验证期限（毫秒）
+     * @return 验证结果
+     */
+    public Result validate(long deadlineMs) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        CompletableFuture<Result> first = new CompletableFuture<>();
+        Round round = new Round(start, deadline, first);
+        for (String url : probeUrls) {
+            executor.execute(() -> probe(url, round));
+        }
+        try {
+            return first.get(deadlineMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            return round.conclude();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return round.conclude();
+        } finally {
+            // 让仍在重试的探测线程退出
+            first.complete(null);
+        }
+    }
+
+    /**
+     * 一次验证中各探测线程共享的状态
+     */
+    private final class Round {
+        final long start;
+        final long deadline;
+        final CompletableFuture<Result> first;
+        final AtomicInteger unboundProbes = new AtomicInteger();
+        volatile boolean sawBound;
+
+        Round(long start, long deadline, CompletableFuture<Result> first) {
+            this.start = start;
+            this.deadline = deadline;
+            this.first = first;
+        }
+
+        /**
+         * 期限已到且没有探测成功时的结论：只收到过非WiFi的响应时无法判断，否则视为未放行
+         */
+        Result conclude() {
+            Outcome outcome = !sawBound && unboundProbes.get() > 0 ? Outcome.UNKNOWN : Outcome.BLOCKED;
+            return new Result(outcome, elapsedMs(start), null, sawBound);
+        }
+    }
+
+    private void probe(String url, Round round) {
+        CompletableFuture<Result> first = round.first;
+        while (!first.isDone()) {
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(round.deadline - System.nanoTime());
+            if (remainingMs <= 0) {
+                return;
+            }
+            long attemptStart = System.nanoTime();
+            try {
+                PortalTransport.Response response = transport.get(url, (int) Math.min(remainingMs, PROBE_TIMEOUT_MS), false);
+                if (!response.isNetworkBound()) {
+                    // 请求没有经过WiFi，结果不能说明WiFi是否已放行；所有探测都如此时不再等待
+                    Logger.d("联网探测未经WiFi发出 " + url + "，响应码: " + response.getCode());
+                    if (round.unboundProbes.incrementAndGet() == probeUrls.size() && !round.sawBound) {
+                        first.complete(round.conclude());
+                    }
+                    return;
+                }
+                round.sawBound = true;
+                if (response.getCode() == 204) {
+                    first.complete(new Result(Outcome.CONNECTED, elapsedMs(round.start), url, true));
+                    return;
+                }
+                Logger.d("联网探测未通过 " + url + "，响应码: " + response.getCode());
+            } catch (Exception e) {
+                Logger.d("联网探测失败 " + url + ": " + e.getMessage());
+            }
+            // 失败很快时稍等再试，避免空转
+            long waitMs = RETRY_INTERVAL_MS - elapsedMs(attemptStart);
+            if (waitMs > 0) {
+                try {
+                    first.get(waitMs, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException ignored) {
+                    // 继续重试
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 停止探测线程
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
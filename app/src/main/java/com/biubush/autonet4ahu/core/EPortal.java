@@ -1,260 +1,458 @@
 package com.biubush.autonet4ahu.core;
 
+import com.biubush.autonet4ahu.model.Credentials;
 import com.biubush.autonet4ahu.model.LoginResult;
 import com.biubush.autonet4ahu.util.Logger;
 
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.InetAddress;
-import java.net.NetworkInterface;
-import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.util.Enumeration;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * 校园网ePortal登录类
+ * <p>
+ * 由登录服务长期持有，IP地址来源和网关节点通过构造函数注入，请求由{@link PortalEndpoints}发往最合适的网关节点。
+ * 登录请求中固定不变的参数只编码一次，每次登录只追加IP地址和凭据；网关的响应情况和上一次登录的结果在多次登录之间保留。
+ * 协议参数由{@link PortalProfileDiscovery}从网关首页发现，参数变化时重建请求模板。
+ * 上次登录成功后IP地址发生变化时（例如DHCP重新分配），先注销旧IP的会话再用新IP登录，注销请求与登录请求几乎同时发出，
+ * 登录只等待注销一小段时间，避免部分网关在旧会话超时前拒绝新会话。旧IP取最近一次登录成功时的IP，
+ * 中间有失败的登录也不会丢失，注销请求发出后不再重复注销。
+ * 配置了多个账号时通过{@link #login(AccountPool)}登录，账号出现只与自身有关的失败时换用下一个账号。
+ * 各阶段的耗时记录在{@link LoginMetrics}中。
+ * 网关的响应由{@link PortalResponseClassifier}分类，终止类失败按凭据指纹缓存，同一凭据之后的登录不再访问网关，
+ * 直到调用{@link #clearTerminalFailures()}。
+ * 登录在单个线程中执行，本类不是线程安全的。
  */
 public class EPortal {
-    private static final String BASE_URL = "http://172.16.253.3:801/eportal/";
-    private static final String LOGIN_URL = BASE_URL + "?c=Portal&a=login&callback=dr1003&login_method=1&jsVersion=3.3.2&v=1117";
-    private static final String CAMPUS_CHECK_URL = "http://172.16.253.3/a79.htm";
-    private static final String USER_AGENT = "Mozilla/5.0 (Linux; Android 13; AutoNet4AHU) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/95.0.4638.74 Mobile Safari/537.36";
-    
-    private final String studentId;
-    private final String password;
-    private String ipAddress;
-    private NetworkDetector networkDetector;
+    private static final int LOGIN_PORT = 801;
+    private static final String LOGIN_PATH = "/eportal/";
+    private static final int CHECK_PORT = 80;
+    private static final String CAMPUS_CHECK_PATH = "/a79.htm";
+    private static final int LOGIN_TIMEOUT_MS = 5000;
+    private static final int CHECK_TIMEOUT_MS = 3000;
+    private static final int LOGOUT_TIMEOUT_MS = 2000;
+    private static final long LOGOUT_GRACE_MS = 300;   // 切换会话时登录请求等待注销的最长时间
+
+    private final IpProvider ipProvider;
+    private final PortalEndpoints endpoints;
+    private final PortalProfileDiscovery profileDiscovery;
+    private final StringBuilder requestBuilder = new StringBuilder(256);
+    private final LoginMetrics metrics = new LoginMetrics();
+    private final TerminalFailureCache terminalFailures = new TerminalFailureCache();
+
+    // 由协议参数生成，只在参数变化时重建
+    private String profileHash;
+    private String requestPrefix;     // 登录请求中IP地址之前的部分
+    private Pattern responsePattern;
+
+    // 会话状态，在多次登录之间保留
+    private String ipAddress = "";
+    private String sessionIp = "";     // 最近一次登录成功时的IP，网关上可能仍有它的会话，空表示没有
+    private LoginResult lastResult;
+    private String lastPortalHost = "";
+    private String lastStudentId = "";
+    private PortalResponseClassifier.Category lastCategory;
+    private long lastLoginAt;
+    private long lastLatencyMs;
+    private int consecutiveFailures;
+    private boolean lastNetworkBound;
+    private long handoverStartNanos;   // 本次登录切换会话的开始时间，0表示未切换
+    private int handoverCount;
+
+    /**
+     * 构造函数
+     *
+     * @param ipProvider IP地址来源
+     * @param endpoints 网关节点
+     */
+    public EPortal(IpProvider ipProvider, PortalEndpoints endpoints) {
+        this(ipProvider, endpoints, new PortalProfileDiscovery(endpoints, PortalProfileDiscovery.DEFAULT_TTL_MS));
+    }
 
     /**
      * 构造函数
      *
-     * @param studentId 学号
-     * @param password 密码
+     * @param ipProvider IP地址来源
+     * @param endpoints 网关节点
+     * @param profileDiscovery 协议参数发现
      */
-    public EPortal(String studentId, String password) {
-        this.studentId = studentId;
-        this.password = password;
-        this.ipAddress = "";
-        Logger.d("EPortal初始化完成，学号：" + studentId);
+    public EPortal(IpProvider ipProvider, PortalEndpoints endpoints, PortalProfileDiscovery profileDiscovery) {
+        this.ipProvider = ipProvider;
+        this.endpoints = endpoints;
+        this.profileDiscovery = profileDiscovery;
+        compile(PortalProfile.DEFAULT);
+        Logger.d("EPortal初始化完成");
     }
 
     /**
      * 执行登录操作
      *
+     * @param credentials 预先编码好的登录凭据
      * @return 登录结果
      */
-    public LoginResult login() {
-        Logger.i("开始执行校园网登录...");
-        
+    public LoginResult login(Credentials credentials) {
+        lastStudentId = credentials.getStudentId();
+        TerminalFailureCache.Entry failure = terminalFailures.check(credentials.getFingerprint());
+        if (failure != null) {
+            lastCategory = PortalResponseClassifier.Category.TERMINAL;
+            Logger.w("该账号已确定无法登录，跳过本次登录: " + failure.getMessage());
+            return new LoginResult(false, failure.getMessage() + "（已停止自动重试，重新保存配置后恢复）", ipAddress);
+        }
+
+        lastCategory = null;
+        handoverStartNanos = 0;
+        long start = System.nanoTime();
+        LoginResult result = doLogin(credentials);
+        metrics.record(LoginMetrics.Phase.TOTAL, lastNetworkBound, elapsedMs(start));
+        if (handoverStartNanos != 0 && result.isSuccess()) {
+            // IP变化后重新上线的耗时
+            long handoverMs = elapsedMs(handoverStartNanos);
+            metrics.record(LoginMetrics.Phase.HANDOVER, lastNetworkBound, handoverMs);
+            Logger.i("会话切换完成，耗时" + handoverMs + "ms");
+        }
+        if (result.isSuccess()) {
+            sessionIp = ipAddress;
+        }
+        lastResult = result;
+        lastLoginAt = System.currentTimeMillis();
+        return result;
+    }
+
+    /**
+     * 按账号池的顺序登录，账号出现只与自身有关的失败（受限或终止）时换用下一个账号
+     * <p>
+     * 冷却中的账号只在所有账号都在冷却时才尝试，且只尝试最早结束冷却的一个。
+     *
+     * @param pool 账号池
+     * @return 最后一次尝试的登录结果
+     */
+    public LoginResult login(AccountPool pool) {
+        LoginResult result = null;
+        List<Credentials> ordered = pool.ordered(System.currentTimeMillis());
+        for (int i = 0; i < ordered.size(); i++) {
+            Credentials credentials = ordered.get(i);
+            if (i > 0) {
+                if (pool.isCoolingDown(credentials, System.currentTimeMillis())) {
+                    break;
+                }
+                pool.recordFailover();
+                Logger.i("换用账号登录: " + credentials.getStudentId());
+            }
+            result = login(credentials);
+            long now = System.currentTimeMillis();
+            if (result.isSuccess()) {
+                pool.recordSuccess(credentials, now);
+                return result;
+            }
+            if (lastCategory == null || !lastCategory.isAccountSpecific()) {
+                // 网络或网关的问题，换用其他账号也无法登录
+                return result;
+            }
+            pool.recordFailure(credentials, lastCategory, now);
+        }
+        return result;
+    }
+
+    private LoginResult doLogin(Credentials credentials) {
+        Logger.i("开始执行校园网登录，学号：" + credentials.getStudentId());
+
         // 检查是否已连接到校园网
         if (!isConnectedToCampusNetwork()) {
             Logger.w("未连接到校园网环境");
             return new LoginResult(false, "未连接到校园网环境", ipAddress);
         }
-        
+
         try {
             // 在登录前更新IP地址
+            long ipStart = System.nanoTime();
             updateIpAddress();
-            
-            if (ipAddress.isEmpty()) {
+            metrics.record(LoginMetrics.Phase.IP, false, elapsedMs(ipStart));
+
+            if (ipAddress.isEmpty() || ipAddress.startsWith("127.")) {
                 Logger.e("无法获取有效的IP地址");
                 return new LoginResult(false, "无法获取有效的IP地址", "unknown");
             }
-            
-            // 构建登录参数
-            Map<String, String> params = new HashMap<>();
-            params.put("c", "Portal");
-            params.put("a", "login");
-            params.put("callback", "dr1003");
-            params.put("login_method", "1");
-            params.put("user_account", studentId);
-            params.put("user_password", password);
-            params.put("wlan_user_ip", ipAddress);
-            params.put("wlan_user_ipv6", "");
-            params.put("wlan_user_mac", "000000000000");
-            params.put("wlan_ac_ip", "");
-            params.put("wlan_ac_name", "");
-            params.put("jsVersion", "3.3.2");
-            params.put("v", "1117");
-            
-            // 构建URL参数字符串
-            StringBuilder urlParams = new StringBuilder();
-            for (Map.Entry<String, String> entry : params.entrySet()) {
-                if (urlParams.length() > 0) {
-                    urlParams.append("&");
-                }
-                urlParams.append(URLEncoder.encode(entry.getKey(), "UTF-8"));
-                urlParams.append("=");
-                urlParams.append(URLEncoder.encode(entry.getValue(), "UTF-8"));
+
+            // 协议参数变化时重建请求模板，参数在后台刷新，这里不访问网络
+            PortalProfile profile = profileDiscovery.current();
+            if (!profile.getVersionHash().equals(profileHash)) {
+                compile(profile);
+            }
+
+            // 上次登录成功后IP已变化，网关上可能仍保留旧IP的会话
+            CompletableFuture<PortalEndpoints.Reply> logout = null;
+            if (!sessionIp.isEmpty() && !sessionIp.equals(ipAddress)) {
+                handoverStartNanos = System.nanoTime();
+                handoverCount++;
+                Logger.i("IP地址已变化: " + sessionIp + " -> " + ipAddress + "，注销旧会话后登录");
+                logout = endpoints.getWithFailoverAsync(LOGIN_PORT,
+                        profile.buildLogoutPath(LOGIN_PATH, URLEncoder.encode(sessionIp, StandardCharsets.UTF_8)),
+                        LOGOUT_TIMEOUT_MS, true);
+                // 旧IP可能已分配给其他设备，只注销一次
+                sessionIp = "";
             }
-            
-            // 创建完整的URL
-            URL url = new URL(LOGIN_URL + "&" + urlParams.toString());
-            Logger.d("登录URL: " + url);
-            
-            // 创建连接
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setRequestProperty("User-Agent", USER_AGENT);
-            connection.setRequestProperty("Accept", "*/*");
-            connection.setRequestProperty("Accept-Language", "zh-CN,zh;q=0.9");
-            connection.setRequestProperty("Referer", "http://172.16.253.3/");
-            connection.setRequestProperty("Cache-Control", "no-cache");
-            connection.setConnectTimeout(5000);
-            connection.setReadTimeout(5000);
-            
-            // 获取响应
-            int responseCode = connection.getResponseCode();
-            Logger.d("HTTP响应码: " + responseCode);
-            
+
+            // 固定参数之后追加IP地址
+            requestBuilder.setLength(0);
+            requestBuilder.append(requestPrefix).append(URLEncoder.encode(ipAddress, StandardCharsets.UTF_8));
+            // 日志中不输出凭据
+            Logger.d("登录URL: " + requestBuilder);
+
+            // 追加预先编码好的学号和密码
+            if (!credentials.appendTo(requestBuilder)) {
+                Logger.w("登录凭据已更新，取消本次登录");
+                return new LoginResult(false, "登录凭据已更新，请重试", ipAddress);
+            }
+
+            if (logout != null) {
+                awaitLogout(logout);
+            }
+
+            // 发送请求
+            long start = System.nanoTime();
+            PortalEndpoints.Reply reply;
+            try {
+                reply = endpoints.getWithFailover(LOGIN_PORT, requestBuilder.toString(), LOGIN_TIMEOUT_MS, true);
+            } finally {
+                // 请求地址包含凭据，用完即清空
+                requestBuilder.setLength(0);
+            }
+            PortalTransport.Response response = reply.getResponse();
+            lastPortalHost = reply.getEndpoint().getHost();
+            lastLatencyMs = elapsedMs(start);
+            lastNetworkBound = response.isNetworkBound();
+            metrics.record(LoginMetrics.Phase.REQUEST, lastNetworkBound, lastLatencyMs);
+            int responseCode = response.getCode();
+            Logger.d("HTTP响应码: " + responseCode + "，网关" + reply.getEndpoint().getHost() + "，耗时" + lastLatencyMs + "ms" +
+                    (lastNetworkBound ? "（绑定WiFi）" : "（默认网络）"));
+
             if (responseCode == 200) {
-                // 读取响应内容
-                BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
-                String inputLine;
-                StringBuilder response = new StringBuilder();
-                
-                while ((inputLine = in.readLine()) != null) {
-                    response.append(inputLine);
-                }
-                in.close();
-                
-                String responseText = response.toString();
+                consecutiveFailures = 0;
+                String responseText = response.getBody();
                 Logger.d("登录响应: " + responseText);
-                
+
                 // 解析JSON响应
                 // 格式通常为: dr1003({...})
-                Pattern pattern = Pattern.compile("dr1003\\((.*)\\)");
-                Matcher matcher = pattern.matcher(responseText);
-                
+                long parseStart = System.nanoTime();
+                Matcher matcher = responsePattern.matcher(responseText);
+
                 if (matcher.find()) {
                     String jsonStr = matcher.group(1);
                     JSONObject result = new JSONObject(jsonStr);
-                    
-                    if ("1".equals(result.optString("result"))) {
-                        Logger.i("登录成功");
-                        return new LoginResult(true, "登录成功", ipAddress);
-                    } else {
-                        String msg = result.optString("msg", "登录失败，未知原因");
-                        Logger.w("登录失败: " + msg);
-                        return new LoginResult(false, msg, ipAddress);
+                    metrics.record(LoginMetrics.Phase.PARSE, false, elapsedMs(parseStart));
+
+                    PortalResponseClassifier.Classification classification = PortalResponseClassifier.classify(result);
+                    lastCategory = classification.getCategory();
+                    switch (classification.getCategory()) {
+                        case SUCCESS:
+                            Logger.i("登录成功");
+                            return new LoginResult(true, "登录成功", ipAddress);
+                        case ALREADY_ONLINE:
+                            Logger.i("设备已在线: " + classification.getMessage());
+                            return new LoginResult(true, "已在线", ipAddress);
+                        case TERMINAL:
+                            Logger.w("登录失败，停止自动重试: " + classification.getMessage());
+                            terminalFailures.put(credentials.getFingerprint(), classification.getMessage());
+                            return new LoginResult(false, classification.getMessage(), ipAddress);
+                        default:
+                            Logger.w("登录失败: " + classification.getMessage());
+                            return new LoginResult(false, classification.getMessage(), ipAddress);
                     }
                 } else {
+                    // 网关可能已升级，下次登录前重新发现协议参数
+                    profileDiscovery.invalidate();
                     Logger.e("无法解析登录响应");
                     return new LoginResult(false, "无法解析登录响应", ipAddress);
                 }
             } else {
+                consecutiveFailures++;
                 Logger.e("HTTP请求失败，状态码: " + responseCode);
                 return new LoginResult(false, "HTTP请求失败，状态码: " + responseCode, ipAddress);
             }
         } catch (Exception e) {
+            consecutiveFailures++;
             Logger.e("登录过程中发生异常", e);
             return new LoginResult(false, "登录过程中发生异常: " + e.getMessage(), ipAddress);
         }
     }
 
+    /**
+     * 等待旧会话注销，最多等待{@value #LOGOUT_GRACE_MS}毫秒，注销失败不影响登录
+     */
+    private static void awaitLogout(CompletableFuture<PortalEndpoints.Reply> logout) {
+        try {
+            PortalEndpoints.Reply reply = logout.get(LOGOUT_GRACE_MS, TimeUnit.MILLISECONDS);
+            Logger.d("旧会话注销响应码: " + reply.getResponse().getCode() + "，网关" + reply.getEndpoint().getHost());
+        } catch (TimeoutException e) {
+            Logger.d("旧会话注销未在" + LOGOUT_GRACE_MS + "ms内完成，继续登录");
+        } catch (ExecutionException e) {
+            Logger.d("旧会话注销失败: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 按协议参数生成请求模板和响应匹配规则
+     */
+    private void compile(PortalProfile profile) {
+        requestPrefix = profile.buildRequestPrefix(LOGIN_PATH);
+        responsePattern = profile.buildResponsePattern();
+        profileHash = profile.getVersionHash();
+        Logger.d("登录请求模板已生成: " + profile);
+    }
+
+    /**
+     * 获取协议参数发现
+     */
+    public PortalProfileDiscovery getProfileDiscovery() {
+        return profileDiscovery;
+    }
+
     /**
      * 检查是否已连接到校园网
      *
      * @return 是否已连接到校园网
      */
     public boolean isConnectedToCampusNetwork() {
+        long start = System.nanoTime();
         try {
-            URL url = new URL(CAMPUS_CHECK_URL);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setRequestProperty("User-Agent", USER_AGENT);
-            connection.setConnectTimeout(3000);
-            connection.setReadTimeout(3000);
-            
-            int responseCode = connection.getResponseCode();
+            PortalTransport.Response response = endpoints.get(CHECK_PORT, CAMPUS_CHECK_PATH, CHECK_TIMEOUT_MS, false).getResponse();
+            lastNetworkBound = response.isNetworkBound();
+            metrics.record(LoginMetrics.Phase.PROBE, lastNetworkBound, elapsedMs(start));
+            int responseCode = response.getCode();
             Logger.d("校园网检测响应码: " + responseCode);
-            
+
             return responseCode == 200;
         } catch (Exception e) {
+            metrics.record(LoginMetrics.Phase.PROBE, lastNetworkBound, elapsedMs(start));
             Logger.d("校园网连接检测失败: " + e.getMessage());
             return false;
         }
     }
 
     /**
-     * 更新IP地址
+     * 从注入的IP地址来源更新IP地址
      */
     public void updateIpAddress() {
-        // 使用NetworkDetector获取有效IP地址
-        if (networkDetector == null && android.app.Application.getProcessName() != null) {
-            try {
-                android.app.Application app = (android.app.Application) Class.forName("android.app.ActivityThread")
-                        .getMethod("currentApplication").invoke(null);
-                if (app != null) {
-                    networkDetector = new NetworkDetector(app);
-                }
-            } catch (Exception e) {
-                Logger.e("获取应用上下文失败", e);
-            }
-        }
-        
-        // 如果能获取到NetworkDetector，则使用它来获取IP地址
-        if (networkDetector != null) {
-            this.ipAddress = networkDetector.getLocalIpAddress();
-            Logger.d("通过NetworkDetector更新IP地址: " + ipAddress);
-        } else {
-            // 如果获取不到NetworkDetector，使用备用方法获取IP
-            this.ipAddress = getLocalIpAddressFallback();
-            Logger.d("通过备用方法更新IP地址: " + ipAddress);
-        }
+        String ip = ipProvider.getLocalIpAddress();
+        this.ipAddress = ip != null ? ip : "";
+        Logger.d("更新IP地址: " + ipAddress);
     }
-    
+
     /**
-     * 备用方法获取本机IP地址
-     * 
-     * @return IP地址
+     * 恢复上一次进程中已在线的会话，之后IP变化时会先注销该会话
+     *
+     * @param ipAddress 会话的IP地址
+     * @param loginAt 会话的登录时间
      */
-    private String getLocalIpAddressFallback() {
-        try {
-            // 尝试获取非回环地址的IP
-            Enumeration<NetworkInterface> networkInterfaces = NetworkInterface.getNetworkInterfaces();
-            while (networkInterfaces.hasMoreElements()) {
-                NetworkInterface networkInterface = networkInterfaces.nextElement();
-                // 跳过禁用的网络接口
-                if (!networkInterface.isUp() || networkInterface.isLoopback() || networkInterface.isVirtual()) {
-                    continue;
-                }
-                
-                Enumeration<InetAddress> addresses = networkInterface.getInetAddresses();
-                while (addresses.hasMoreElements()) {
-                    InetAddress address = addresses.nextElement();
-                    // 只接受IPv4地址，不接受回环地址
-                    if (!address.isLoopbackAddress() && address instanceof java.net.Inet4Address) {
-                        String ipAddress = address.getHostAddress();
-                        Logger.d("备用方法获取IP地址: " + ipAddress + " (接口: " + networkInterface.getName() + ")");
-                        return ipAddress;
-                    }
-                }
-            }
-            
-            Logger.w("备用方法无法获取有效的IP地址");
-            return "";
-        } catch (Exception e) {
-            Logger.e("备用方法获取IP地址失败", e);
-            return "";
-        }
+    public void restoreSession(String ipAddress, long loginAt) {
+        this.ipAddress = ipAddress;
+        this.sessionIp = ipAddress;
+        this.lastResult = new LoginResult(true, "已恢复会话", ipAddress);
+        this.lastLoginAt = loginAt;
+    }
+
+    /**
+     * 获取最近一次登录使用的学号
+     */
+    public String getLastStudentId() {
+        return lastStudentId;
+    }
+
+    /**
+     * 获取最近一次应答登录请求的网关地址
+     */
+    public String getLastPortalHost() {
+        return lastPortalHost;
     }
-    
+
     /**
-     * 获取当前IP地址
+     * 获取最近一次登录使用的IP地址
      */
     public String getIpAddress() {
-        if (ipAddress == null || ipAddress.isEmpty() || "127.0.0.1".equals(ipAddress)) {
-            updateIpAddress();
-        }
         return ipAddress;
     }
-} 
\ No newline at end of file
+
+    /**
+     * 获取最近一次登录结果，从未登录过时返回null
+     */
+    public LoginResult getLastResult() {
+        return lastResult;
+    }
+
+    /**
+     * 获取最近一次网关响应的类别，登录被拦截时为终止类，未收到网关响应时返回null
+     */
+    public PortalResponseClassifier.Category getLastCategory() {
+        return lastCategory;
+    }
+
+    /**
+     * 清空终止类失败的缓存，在配置变更时调用，可在任意线程调用
+     */
+    public void clearTerminalFailures() {
+        terminalFailures.clear();
+    }
+
+    /**
+     * 获取因终止类失败而被拦截的登录次数
+     */
+    public long getSuppressedCount() {
+        return terminalFailures.getSuppressedCount();
+    }
+
+    /**
+     * 获取最近一次登录的时间
+     */
+    public long getLastLoginAt() {
+        return lastLoginAt;
+    }
+
+    /**
+     * 获取最近一次登录请求的耗时
+     */
+    public long getLastLatencyMs() {
+        return lastLatencyMs;
+    }
+
+    /**
+     * 获取网关节点
+     */
+    public PortalEndpoints getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * 获取各阶段耗时统计
+     */
+    public LoginMetrics getMetrics() {
+        return metrics;
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /**
+     * 获取因IP变化而切换会话的次数
+     */
+    public int getHandoverCount() {
+        return handoverCount;
+    }
+
+    /**
+     * 获取网关连续请求失败的次数
+     */
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+}
@@ -0,0 +1,70 @@
+package com.biubush.autonet4ahu.core;
+
+import com.biubush.autonet4ahu.util.JsonBuffer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * 本地文件通知通道，每条通知以一行JSON追加到文件中
+ * <p>
+ * 文件超过{@value #MAX_FILE_BYTES}字节时改名为.1后缀，只保留一份旧文件。
+ */
+public class FileSink implements NotificationSink {
+    private static final long MAX_FILE_BYTES = 256 * 1024;
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final File file;
+    private final File rotatedFile;
+
+    /**
+     * 构造函数
+     *
+     * @param file 通知文件
+     */
+    public FileSink(File file) {
+        this.file = file;
+        this.rotatedFile = new File(file.getPath() + ".1");
+    }
+
+    @Override
+    public String getId() {
+        return "file:" + file.getPath();
+    }
+
+    @Override
+    public String getLabel() {
+        return file.getName();
+    }
+
+    @Override
+    public boolean isDurable() {
+        return false;
+    }
+
+    @Override
+    public void format(NotificationEvent event, JsonBuffer out) {
+        WebhookSink.Flavor.GENERIC.getDefaultTemplate().render(out, event.getValues());
+        out.writeRaw(NEWLINE);
+    }
+
+    @Override
+    public void send(byte[] payload) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("无法创建目录: " + dir);
+        }
+        if (file.exists() && file.length() + payload.length > MAX_FILE_BYTES) {
+            if (rotatedFile.exists() && !rotatedFile.delete()) {
+                throw new IOException("无法删除旧通知文件");
+            }
+            if (!file.renameTo(rotatedFile)) {
+                throw new IOException("无法轮换通知文件");
+            }
+        }
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(payload);
+        }
+    }
+}
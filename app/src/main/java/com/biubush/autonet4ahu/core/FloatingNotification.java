@@ -6,6 +6,7 @@ import android.graphics.PixelFormat;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -18,27 +19,84 @@ import com.biubush.autonet4ahu.util.Logger;
 
 /**
  * 悬浮通知类，用于显示自定义悬浮窗通知
+ * <p>
+ * 全局只有一个实例，视图只加载一次，之后原地更新内容。每条通知至少显示{@value #MIN_DISPLAY_MS}毫秒，
+ * 期间到达的通知按成功/失败分别合并，失败优先显示，避免连续的结果让悬浮窗反复添加和移除。
  */
 public class FloatingNotification {
 
     private static final long DEFAULT_DISPLAY_DURATION = 5000; // 默认显示5秒
+    private static final long MIN_DISPLAY_MS = 1500;           // 每条通知最短显示时间
+    
+    private static volatile FloatingNotification instance;
     
     private final Context context;
     private final WindowManager windowManager;
     private final Handler mainHandler;
+    private final Runnable hideRunnable = this::onDisplayTimeout;
+    private final Runnable advanceRunnable = this::showNextPending;
     
+    // 以下状态只在主线程中访问
     private View floatingView;
+    private TextView titleView;
+    private TextView messageView;
+    private ImageView iconView;
+    private Boolean boundSuccess;       // 视图当前的样式，null表示尚未设置
     private WindowManager.LayoutParams params;
     private boolean isShowing = false;
+    private long shownAt;
+    private Pending pendingError;
+    private Pending pendingSuccess;
+    
+    /**
+     * 等待显示的通知，同类通知合并为一条
+     */
+    private static final class Pending {
+        final boolean isSuccess;
+        String title;
+        String message;
+        long duration;
+        int count = 1;
+        
+        Pending(String title, String message, boolean isSuccess, long duration) {
+            this.title = title;
+            this.message = message;
+            this.isSuccess = isSuccess;
+            this.duration = duration;
+        }
+        
+        void merge(String title, String message, long duration) {
+            this.title = title;
+            this.message = message;
+            this.duration = Math.max(this.duration, duration);
+            count++;
+        }
+    }
+    
+    /**
+     * 获取全局实例
+     *
+     * @param context 上下文
+     */
+    public static FloatingNotification getInstance(Context context) {
+        if (instance == null) {
+            synchronized (FloatingNotification.class) {
+                if (instance == null) {
+                    instance = new FloatingNotification(context);
+                }
+            }
+        }
+        return instance;
+    }
     
     /**
      * 构造函数
      *
      * @param context 应用上下文
      */
-    public FloatingNotification(Context context) {
+    private FloatingNotification(Context context) {
         this.context = context.getApplicationContext();
-        this.windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        this.windowManager = (WindowManager) this.context.getSystemService(Context.WINDOW_SERVICE);
         this.mainHandler = new Handler(Looper.getMainLooper());
         
         initWindowParams();
@@ -77,20 +135,20 @@ public class FloatingNotification {
      * @param message 通知内容
      * @param isSuccess 是否成功
      */
-    @SuppressLint("InflateParams")
     public void show(String title, String message, boolean isSuccess) {
         show(title, message, isSuccess, DEFAULT_DISPLAY_DURATION);
     }
     
     /**
      * 显示悬浮通知
+     * <p>
+     * 当前通知显示不足最短时间时，新通知先排队，同类通知合并为一条。
      *
      * @param title 通知标题
      * @param message 通知内容
      * @param isSuccess 是否成功
      * @param duration 显示时长（毫秒）
      */
-    @SuppressLint("InflateParams")
     public void show(String title, String message, boolean isSuccess, long duration) {
         // 确保在主线程中操作UI
         if (Looper.myLooper() != Looper.getMainLooper()) {
@@ -98,47 +156,101 @@ public class FloatingNotification {
             return;
         }
         
+        Pending pending = isSuccess ? pendingSuccess : pendingError;
+        if (pending == null) {
+            pending = new Pending(title, message, isSuccess, duration);
+            if (isSuccess) {
+                pendingSuccess = pending;
+            } else {
+                pendingError = pending;
+            }
+        } else {
+            pending.merge(title, message, duration);
+            Logger.d("悬浮通知已合并，待显示" + pending.count + "条");
+        }
+        
+        long wait = isShowing ? shownAt + MIN_DISPLAY_MS - SystemClock.uptimeMillis() : 0;
+        mainHandler.removeCallbacks(advanceRunnable);
+        if (wait <= 0) {
+            showNextPending();
+        } else {
+            mainHandler.postDelayed(advanceRunnable, wait);
+        }
+    }
+    
+    /**
+     * 显示下一条排队的通知，失败优先，已显示时原地更新内容
+     */
+    @SuppressLint("InflateParams")
+    private void showNextPending() {
+        Pending next = pendingError != null ? pendingError : pendingSuccess;
+        if (next == null) {
+            return;
+        }
+        if (next == pendingError) {
+            pendingError = null;
+        } else {
+            pendingSuccess = null;
+        }
+        
         try {
-            // 如果已经在显示通知，先移除旧的
-            if (isShowing && floatingView != null) {
-                hide();
+            // 视图只加载一次
+            if (floatingView == null) {
+                floatingView = LayoutInflater.from(context).inflate(R.layout.floating_notification, null);
+                titleView = floatingView.findViewById(R.id.notification_title);
+                messageView = floatingView.findViewById(R.id.notification_message);
+                iconView = floatingView.findViewById(R.id.notification_icon);
             }
             
-            // 初始化视图
-            floatingView = LayoutInflater.from(context).inflate(R.layout.floating_notification, null);
+            titleView.setText(next.count > 1 ? next.title + "（" + next.count + "条）" : next.title);
+            messageView.setText(next.message);
             
-            // 设置通知内容
-            TextView titleView = floatingView.findViewById(R.id.notification_title);
-            TextView messageView = floatingView.findViewById(R.id.notification_message);
-            ImageView iconView = floatingView.findViewById(R.id.notification_icon);
-            
-            titleView.setText(title);
-            messageView.setText(message);
-            
-            // 根据成功状态设置图标和背景
-            if (isSuccess) {
-                iconView.setImageResource(android.R.drawable.ic_dialog_info);
-                floatingView.setBackgroundResource(R.drawable.floating_notification_bg_success);
-            } else {
-                iconView.setImageResource(android.R.drawable.ic_dialog_alert);
-                floatingView.setBackgroundResource(R.drawable.floating_notification_bg_error);
+            // 根据成功状态设置图标和背景，样式没变时不重新设置
+            if (boundSuccess == null || boundSuccess != next.isSuccess) {
+                if (next.isSuccess) {
+                    iconView.setImageResource(android.R.drawable.ic_dialog_info);
+                    floatingView.setBackgroundResource(R.drawable.floating_notification_bg_success);
+                } else {
+                    iconView.setImageResource(android.R.drawable.ic_dialog_alert);
+                    floatingView.setBackgroundResource(R.drawable.floating_notification_bg_error);
+                }
+                boundSuccess = next.isSuccess;
             }
             
-            // 添加到窗口
-            windowManager.addView(floatingView, params);
-            isShowing = true;
+            // 未显示时才添加到窗口
+            if (!isShowing) {
+                windowManager.addView(floatingView, params);
+                isShowing = true;
+            }
+            shownAt = SystemClock.uptimeMillis();
             
-            // 设置自动消失
-            mainHandler.postDelayed(this::hide, duration);
+            // 重新计时自动消失，取消之前的计时
+            mainHandler.removeCallbacks(hideRunnable);
+            mainHandler.postDelayed(hideRunnable, next.duration);
+            if (pendingError != null || pendingSuccess != null) {
+                mainHandler.postDelayed(advanceRunnable, MIN_DISPLAY_MS);
+            }
             
-            Logger.d("悬浮通知已显示: " + title + " - " + message);
+            Logger.d("悬浮通知已显示: " + next.title + " - " + next.message);
         } catch (Exception e) {
             Logger.e("显示悬浮通知失败", e);
         }
     }
     
     /**
-     * 隐藏悬浮通知
+     * 显示时间到，还有排队的通知时接着显示，否则隐藏
+     */
+    private void onDisplayTimeout() {
+        if (pendingError != null || pendingSuccess != null) {
+            mainHandler.removeCallbacks(advanceRunnable);
+            showNextPending();
+        } else {
+            hide();
+        }
+    }
+    
+    /**
+     * 隐藏悬浮通知，丢弃排队中的通知，视图保留以便下次复用
      */
     public void hide() {
         // 确保在主线程中操作UI
@@ -147,10 +259,13 @@ public class FloatingNotification {
             return;
         }
         
+        mainHandler.removeCallbacks(hideRunnable);
+        mainHandler.removeCallbacks(advanceRunnable);
+        pendingError = null;
+        pendingSuccess = null;
         if (isShowing && floatingView != null) {
             try {
                 windowManager.removeView(floatingView);
-                floatingView = null;
                 isShowing = false;
                 Logger.d("悬浮通知已隐藏");
             } catch (Exception e) {
@@ -0,0 +1,275 @@
+package com.biubush.autonet4ahu.core;
+
+import android.net.Network;
+
+import com.biubush.autonet4ahu.model.Config;
+import com.biubush.autonet4ahu.util.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * 基于HttpURLConnection的传输层，使用浏览器的请求头访问认证网关
+ * <p>
+ * WiFi已连接但尚未验证时，系统的默认网络可能仍是移动数据，请求会从移动网络发出而无法到达网关。
+ * 能拿到WiFi网络时，连接通过{@link Network#openConnection}绑定到WiFi，拿不到时使用默认网络。
+ * <p>
+ * WiFi网络出现时可以调用{@link #prewarm}预先建立到网关的连接，之后对网关的请求直接在暂存的连接上
+ * 以HTTP/1.1发送，只需一次写入和读取；暂存的连接不可用时回退到HttpURLConnection。
+ */
+public class HttpPortalTransport implements PortalTransport {
+    private static final String USER_AGENT = "Mozilla/5.0 (Linux; Android 13; AutoNet4AHU) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/95.0.4638.74 Mobile Safari/537.36";
+    private static final String REFERER = "http://" + Config.DEFAULT_PORTAL_HOST + "/";
+    private static final int[] PORTAL_PORTS = {80, 801};
+
+    /**
+     * 请求行和Host之后的固定请求头，只编码一次
+     */
+    private static final byte[] FIXED_HEADERS = ("User-Agent: " + USER_AGENT + "\r\n" +
+            "Accept: */*\r\n" +
+            "Accept-Language: zh-CN,zh;q=0.9\r\n" +
+            "Referer: " + REFERER + "\r\n" +
+            "Cache-Control: no-cache\r\n" +
+            "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+
+    private final Supplier<Network> networkSupplier;
+    private final PortalPrewarmer prewarmer = new PortalPrewarmer();
+    private volatile List<String> portalHosts = Collections.singletonList(Config.DEFAULT_PORTAL_HOST);
+
+    /**
+     * 构造函数
+     *
+     * @param networkSupplier 返回当前WiFi网络，没有时返回null
+     */
+    public HttpPortalTransport(Supplier<Network> networkSupplier) {
+        this.networkSupplier = networkSupplier;
+    }
+
+    /**
+     * 设置需要预热连接的网关地址
+     *
+     * @param hosts 网关地址列表
+     */
+    public void setPortalHosts(List<String> hosts) {
+        this.portalHosts = Collections.unmodifiableList(new ArrayList<>(hosts));
+    }
+
+    /**
+     * 为WiFi网络预先建立到各个网关的连接
+     *
+     * @param network WiFi网络
+     */
+    public void prewarm(Network network) {
+        for (String host : portalHosts) {
+            prewarmer.prewarm(network, host, PORTAL_PORTS);
+        }
+    }
+
+    /**
+     * 关闭预先建立的连接，在WiFi断开时调用
+     */
+    public void clearPrewarmed() {
+        prewarmer.clear();
+    }
+
+    /**
+     * 获取连接预热统计
+     */
+    public String getPrewarmSummary() {
+        return prewarmer.getSummary();
+    }
+
+    @Override
+    public Response get(String url, int timeoutMs, boolean readBody) throws IOException {
+        Network network = networkSupplier.get();
+        boolean bound = network != null;
+        URL target = new URL(url);
+
+        // 访问网关时优先使用预热的连接
+        PortalPrewarmer.Parked parked = null;
+        if (portalHosts.contains(target.getHost())) {
+            int port = target.getPort() != -1 ? target.getPort() : target.getDefaultPort();
+            parked = prewarmer.take(target.getHost(), port, network);
+        }
+        if (parked != null) {
+            try {
+                Response response = exchange(parked.socket, target, timeoutMs, readBody);
+                if (response != null) {
+                    return response;
+                }
+                // 请求没有送达网关，可以安全地改用新连接重发
+                Logger.d("预热的连接已失效，改用新连接");
+            } finally {
+                parked.socket.close();
+            }
+        }
+
+        HttpURLConnection connection = (HttpURLConnection) (bound ? network.openConnection(target) : target.openConnection());
+        try {
+            connection.setRequestMethod("GET");
+            connection.setRequestProperty("User-Agent", USER_AGENT);
+            connection.setRequestProperty("Accept", "*/*");
+            connection.setRequestProperty("Accept-Language", "zh-CN,zh;q=0.9");
+            connection.setRequestProperty("Referer", REFERER);
+            connection.setRequestProperty("Cache-Control", "no-cache");
+            connection.setConnectTimeout(timeoutMs);
+            connection.setReadTimeout(timeoutMs);
+
+            int responseCode = connection.getResponseCode();
+            if (!readBody || responseCode != 200) {
+                return new Response(responseCode, "", bound);
+            }
+            try (InputStream in = connection.getInputStream()) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+                byte[] buffer = new byte[1024];
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, n);
+                }
+                return new Response(responseCode, out.toString(StandardCharsets.UTF_8.name()), bound);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * 在已建立的连接上发送一次GET请求
+     * <p>
+     * 只有写入失败，或者网关在响应的第一个字节之前就关闭了连接时，才能确定请求没有被处理。
+     * 请求已写出后的读超时不能当作连接失效：登录和注销不是幂等的，网关可能已经处理了请求，重发会产生重复会话。
+     *
+     * @return 响应，连接在请求送达前就已失效时返回null
+     * @throws IOException 请求已写出后读取响应失败
+     */
+    static Response exchange(Socket socket, URL url, int timeoutMs, boolean readBody) throws IOException {
+        try {
+            socket.setSoTimeout(timeoutMs);
+            StringBuilder head = new StringBuilder(url.getFile().length() + 64);
+            head.append("GET ").append(url.getFile()).append(" HTTP/1.1\r\nHost: ").append(url.getHost());
+            if (url.getPort() != -1) {
+                head.append(':').append(url.getPort());
+            }
+            head.append("\r\n");
+            OutputStream out = socket.getOutputStream();
+            out.write(head.toString().getBytes(StandardCharsets.UTF_8));
+            out.write(FIXED_HEADERS);
+            out.flush();
+        } catch (IOException e) {
+            // 网关已关闭空闲连接，请求没有送达
+            return null;
+        }
+        InputStream in = new BufferedInputStream(socket.getInputStream());
+        String statusLine = readLine(in);
+        if (statusLine == null) {
+            // 网关没有返回任何内容就关闭了连接，请求没有被处理
+            return null;
+        }
+
+        String[] parts = statusLine.split(" ", 3);
+        if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+            throw new IOException("无法解析响应状态行: " + statusLine);
+        }
+        int code;
+        try {
+            code = Integer.parseInt(parts[1]);
+        } catch (NumberFormatException e) {
+            throw new IOException("无法解析响应状态码: " + statusLine);
+        }
+
+        long contentLength = -1;
+        boolean chunked = false;
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            if (name.equals("content-length")) {
+                contentLength = Long.parseLong(value);
+            } else if (name.equals("transfer-encoding") && value.toLowerCase(Locale.ROOT).contains("chunked")) {
+                chunked = true;
+            }
+        }
+        if (!readBody || code != 200) {
+            return new Response(code, "", true);
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(512);
+        if (chunked) {
+            while (true) {
+                String sizeLine = readLine(in);
+                if (sizeLine == null) {
+                    throw new IOException("分块响应提前结束");
+                }
+                int semicolon = sizeLine.indexOf(';');
+                int size = Integer.parseInt((semicolon >= 0 ? sizeLine.substring(0, semicolon) : sizeLine).trim(), 16);
+                if (size == 0) {
+                    break;
+                }
+                copy(in, body, size);
+                readLine(in);
+            }
+        } else if (contentLength >= 0) {
+            copy(in, body, contentLength);
+        } else {
+            copy(in, body, Long.MAX_VALUE);
+        }
+        return new Response(code, body.toString(StandardCharsets.UTF_8.name()), true);
+    }
+
+    /**
+     * 读取一行，去掉行尾的CRLF
+     *
+     * @return 一行内容，流已结束时返回null
+     */
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                break;
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+        return line.toString(StandardCharsets.ISO_8859_1.name());
+    }
+
+    /**
+     * 复制指定长度的内容，长度为Long.MAX_VALUE时读到流结束
+     */
+    private static void copy(InputStream in, ByteArrayOutputStream out, long length) throws IOException {
+        byte[] buffer = new byte[1024];
+        long remaining = length;
+        while (remaining > 0) {
+            int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (n < 0) {
+                if (length == Long.MAX_VALUE) {
+                    return;
+                }
+                throw new IOException("响应提前结束");
+            }
+            out.write(buffer, 0, n);
+            remaining -= n;
+        }
+    }
+}
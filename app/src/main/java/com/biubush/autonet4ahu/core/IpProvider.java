@@ -0,0 +1,13 @@
+package com.biubush.autonet4ahu.core;
+
+/**
+ * 本机IP地址来源，由{@link EPortal}在每次登录时调用一次
+ */
+public interface IpProvider {
+    /**
+     * 获取本机IP地址
+     *
+     * @return IP地址，无法获取有效IP时返回空字符串
+     */
+    String getLocalIpAddress();
+}
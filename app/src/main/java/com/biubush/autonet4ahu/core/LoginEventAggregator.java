@@ -0,0 +1,148 @@
+package com.biubush.autonet4ahu.core;
+
+import com.biubush.autonet4ahu.model.LoginResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 登录事件合并器
+ * <p>
+ * 窗口内的第一次登录立即发出，之后的登录暂存起来，窗口结束时合并为一条摘要发出，
+ * 摘要中包含登录次数、IP变化和时间范围。AP不稳定、短时间内反复登录时可以大幅减少消息数量。
+ */
+public class LoginEventAggregator {
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "LoginEventAggregator"));
+    private final AtomicLong mergedCount = new AtomicLong();
+    private final AtomicLong digestCount = new AtomicLong();
+
+    // 以下状态只在executor线程中访问
+    private long windowEndsAt = 0;
+    private Digest pending;
+
+    /**
+     * 合并结果的输出
+     */
+    public interface Emitter {
+        /**
+         * @param digest 单次登录或合并后的摘要
+         */
+        void emit(Digest digest);
+    }
+
+    /**
+     * 合并后的登录摘要
+     */
+    public static final class Digest {
+        private final String studentId;
+        private final List<String> ipAddresses = new ArrayList<>(); // 按出现顺序去掉连续重复
+        private final long firstTime;
+        private long lastTime;
+        private int count;
+        private String lastMessage;
+
+        Digest(LoginResult result, String studentId) {
+            this.studentId = studentId;
+            this.firstTime = result.getTimestamp();
+            add(result);
+        }
+
+        void add(LoginResult result) {
+            count++;
+            lastTime = result.getTimestamp();
+            lastMessage = result.getMessage();
+            String ip = result.getIpAddress();
+            if (ip != null && !ip.isEmpty()
+                    && (ipAddresses.isEmpty() || !ip.equals(ipAddresses.get(ipAddresses.size() - 1)))) {
+                ipAddresses.add(ip);
+            }
+        }
+
+        public String getStudentId() {
+            return studentId;
+        }
+
+        /**
+         * 获取合并的登录次数
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * 获取IP地址变化序列
+         */
+        public List<String> getIpAddresses() {
+            return ipAddresses;
+        }
+
+        public long getFirstTime() {
+            return firstTime;
+        }
+
+        public long getLastTime() {
+            return lastTime;
+        }
+
+        public String getLastMessage() {
+            return lastMessage;
+        }
+    }
+
+    /**
+     * 提交一次登录事件
+     *
+     * @param result 登录结果
+     * @param studentId 学号
+     * @param windowMs 合并窗口，不大于0时不合并
+     * @param emitter 输出，在合并器线程中调用
+     */
+    public void offer(LoginResult result, String studentId, long windowMs, Emitter emitter) {
+        executor.execute(() -> {
+            long now = System.currentTimeMillis();
+            if (windowMs <= 0 || (now >= windowEndsAt && pending == null)) {
+                // 不在窗口内，立即发出并开启新窗口
+                windowEndsAt = now + Math.max(0, windowMs);
+                emitter.emit(new Digest(result, studentId));
+                return;
+            }
+            mergedCount.incrementAndGet();
+            if (pending == null) {
+                pending = new Digest(result, studentId);
+                executor.schedule(() -> flush(emitter), Math.max(0, windowEndsAt - now), TimeUnit.MILLISECONDS);
+            } else {
+                pending.add(result);
+            }
+        });
+    }
+
+    private void flush(Emitter emitter) {
+        Digest digest = pending;
+        pending = null;
+        if (digest != null) {
+            digestCount.incrementAndGet();
+            // 摘要发出后不再开启新窗口，下一次登录立即发出
+            windowEndsAt = System.currentTimeMillis();
+            emitter.emit(digest);
+        }
+    }
+
+    /**
+     * 获取被合并到摘要中的事件数
+     */
+    public long getMergedCount() {
+        return mergedCount.get();
+    }
+
+    /**
+     * 获取已发出的摘要数
+     */
+    public long getDigestCount() {
+        return digestCount.get();
+    }
+}
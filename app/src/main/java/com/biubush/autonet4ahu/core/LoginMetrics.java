@@ -0,0 +1,76 @@
+package com.biubush.autonet4ahu.core;
+
+import com.biubush.autonet4ahu.util.LatencyHistogram;
+
+/**
+ * 登录各阶段的耗时统计
+ * <p>
+ * 访问网关的阶段按请求是否绑定到WiFi网络分开统计，便于比较绑定前后的耗时差异。
+ */
+public class LoginMetrics {
+    /**
+     * 登录阶段
+     */
+    public enum Phase {
+        PROBE("网关检测"),
+        IP("获取IP"),
+        REQUEST("登录请求"),
+        PARSE("解析响应"),
+        TOTAL("总计"),
+        VALIDATE("联网验证"),
+        HANDOVER("会话切换");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+
+    private final LatencyHistogram[] bound = new LatencyHistogram[Phase.values().length];
+    private final LatencyHistogram[] unbound = new LatencyHistogram[Phase.values().length];
+
+    public LoginMetrics() {
+        for (int i = 0; i < bound.length; i++) {
+            bound[i] = new LatencyHistogram();
+            unbound[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * 记录一个阶段的耗时
+     *
+     * @param phase 阶段
+     * @param networkBound 请求是否绑定到WiFi网络，与网络无关的阶段传false
+     * @param ms 耗时（毫秒）
+     */
+    public void record(Phase phase, boolean networkBound, long ms) {
+        (networkBound ? bound : unbound)[phase.ordinal()].record(ms);
+    }
+
+    /**
+     * 获取某个阶段的耗时分布
+     */
+    public LatencyHistogram get(Phase phase, boolean networkBound) {
+        return (networkBound ? bound : unbound)[phase.ordinal()];
+    }
+
+    /**
+     * 获取各阶段的统计摘要，没有记录的阶段不输出
+     */
+    public String getSummary() {
+        StringBuilder sb = new StringBuilder("登录耗时:");
+        for (Phase phase : Phase.values()) {
+            append(sb, phase, "绑定WiFi", bound[phase.ordinal()]);
+            append(sb, phase, "默认网络", unbound[phase.ordinal()]);
+        }
+        return sb.toString();
+    }
+
+    private static void append(StringBuilder sb, Phase phase, String route, LatencyHistogram histogram) {
+        if (histogram.getCount() == 0) {
+            return;
+        }
+        sb.append("\n  ").append(phase.label).append('(').append(route).append(") ").append(histogram.getSummary());
+    }
+}
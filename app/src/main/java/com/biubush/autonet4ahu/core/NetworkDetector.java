@@ -19,7 +19,7 @@ import java.util.Enumeration;
 /**
  * 网络检测类，用于监测网络状态变化
  */
-public class NetworkDetector {
+public class NetworkDetector implements IpProvider {
     private final Context context;
 
     /**
@@ -118,11 +118,36 @@ public class NetworkDetector {
         return ssid;
     }
 
+    /**
+     * 获取当前连接的WiFi接入点的BSSID
+     *
+     * @return BSSID，未连接WiFi或无法获取时返回空字符串
+     */
+    public String getConnectedWifiBSSID() {
+        if (!isWifiConnected()) {
+            return "";
+        }
+
+        WifiManager wifiManager = (WifiManager) context.getApplicationContext().getSystemService(Context.WIFI_SERVICE);
+        if (wifiManager == null) {
+            return "";
+        }
+
+        WifiInfo wifiInfo = wifiManager.getConnectionInfo();
+        String bssid = wifiInfo != null ? wifiInfo.getBSSID() : null;
+        // 没有位置权限时系统返回占位地址
+        if (bssid == null || "02:00:00:00:00:00".equals(bssid)) {
+            return "";
+        }
+        return bssid;
+    }
+
     /**
      * 获取本机IP地址
      *
      * @return IP地址，如果无法获取有效IP则返回空字符串
      */
+    @Override
     public String getLocalIpAddress() {
         try {
             // 优先获取WiFi IP地址
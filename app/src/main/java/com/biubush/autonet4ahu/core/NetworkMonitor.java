@@ -27,6 +27,11 @@ import java.util.TimerTask;
 public class NetworkMonitor {
     private static final int PERIODIC_CHECK_INTERVAL = 60000; // 60秒定时检查
     
+    // 网络回调可能在短时间内大量触发，对相关日志限流
+    private static final Logger.Site CALLBACK_LOG = Logger.site("NetworkMonitor.callback", 10, 1);
+    // 网络检查每个定时周期一条，回调风暴中连续触发的检查只保留前几条
+    private static final Logger.Site CHECK_LOG = Logger.site("NetworkMonitor.check", 3, 1.0 / 60);
+    
     private final Context context;
     private final ConnectivityManager connectivityManager;
     private final WifiManager wifiManager;
@@ -38,7 +43,26 @@ public class NetworkMonitor {
     
     private String lastWifiSSID = "";
     private String lastIPAddress = "";
-    private boolean isMonitoring = false;
+    private volatile boolean isMonitoring = false;
+    private volatile Network wifiNetwork;   // 当前WiFi网络，供登录请求绑定
+    private volatile WifiNetworkListener wifiNetworkListener;
+    
+    /**
+     * WiFi网络变化监听器，在网络回调线程中调用
+     */
+    public interface WifiNetworkListener {
+        /**
+         * 出现新的WiFi网络
+         *
+         * @param network WiFi网络
+         */
+        void onWifiNetworkAvailable(Network network);
+        
+        /**
+         * 当前WiFi网络已断开
+         */
+        void onWifiNetworkLost();
+    }
     
     /**
      * 构造函数
@@ -53,6 +77,7 @@ public class NetworkMonitor {
         this.mainHandler = new Handler(Looper.getMainLooper());
         
         // 初始化记录当前状态
+        wifiNetwork = findWifiNetwork();
         updateNetworkState();
     }
     
@@ -117,6 +142,10 @@ public class NetworkMonitor {
                 public void onAvailable(@NonNull Network network) {
                     super.onAvailable(network);
                     Logger.d("网络可用回调触发");
+                    NetworkCapabilities capabilities = connectivityManager.getNetworkCapabilities(network);
+                    if (capabilities != null && capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+                        updateWifiNetwork(network);
+                    }
                     
                     // 使用主线程处理，确保不会有并发问题
                     mainHandler.post(() -> {
@@ -129,6 +158,14 @@ public class NetworkMonitor {
                 public void onLost(@NonNull Network network) {
                     super.onLost(network);
                     Logger.d("网络断开回调触发");
+                    if (network.equals(wifiNetwork)) {
+                        wifiNetwork = null;
+                        Logger.i("WiFi网络已断开，登录请求改用默认网络");
+                        WifiNetworkListener listener = wifiNetworkListener;
+                        if (listener != null) {
+                            listener.onWifiNetworkLost();
+                        }
+                    }
                     
                     // 更新网络状态
                     mainHandler.post(() -> checkNetworkChange(false));
@@ -137,10 +174,13 @@ public class NetworkMonitor {
                 @Override
                 public void onCapabilitiesChanged(@NonNull Network network, @NonNull NetworkCapabilities networkCapabilities) {
                     super.onCapabilitiesChanged(network, networkCapabilities);
-                    Logger.d("网络能力变化回调触发");
+                    CALLBACK_LOG.d("网络能力变化回调触发");
                     
                     // 检查网络是否为WiFi
                     boolean hasWifi = networkCapabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI);
+                    if (hasWifi) {
+                        updateWifiNetwork(network);
+                    }
                     
                     // 在网络能力变化时检查，可以捕获WiFi切换和IP变化
                     mainHandler.post(() -> checkNetworkChange(true));
@@ -155,6 +195,55 @@ public class NetworkMonitor {
         }
     }
     
+    /**
+     * 获取当前WiFi网络
+     * <p>
+     * WiFi已连接但尚未通过验证时，系统默认网络可能仍是移动数据，访问认证网关的请求需要绑定到这个网络。
+     *
+     * @return WiFi网络，未连接WiFi时返回null
+     */
+    public Network getWifiNetwork() {
+        // 未监控时没有回调更新，每次重新查找
+        return isMonitoring ? wifiNetwork : findWifiNetwork();
+    }
+    
+    /**
+     * 设置WiFi网络变化监听器
+     *
+     * @param listener 监听器，为null时取消监听
+     */
+    public void setWifiNetworkListener(WifiNetworkListener listener) {
+        this.wifiNetworkListener = listener;
+    }
+    
+    private void updateWifiNetwork(Network network) {
+        if (!network.equals(wifiNetwork)) {
+            wifiNetwork = network;
+            Logger.i("WiFi网络已就绪，登录请求将绑定到该网络");
+            WifiNetworkListener listener = wifiNetworkListener;
+            if (listener != null) {
+                listener.onWifiNetworkAvailable(network);
+            }
+        }
+    }
+    
+    /**
+     * 在已有网络中查找WiFi网络
+     */
+    private Network findWifiNetwork() {
+        try {
+            for (Network network : connectivityManager.getAllNetworks()) {
+                NetworkCapabilities capabilities = connectivityManager.getNetworkCapabilities(network);
+                if (capabilities != null && capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+                    return network;
+                }
+            }
+        } catch (Exception e) {
+            Logger.e("查找WiFi网络失败", e);
+        }
+        return null;
+    }
+    
     /**
      * 取消网络回调监听
      */
@@ -183,10 +272,7 @@ public class NetworkMonitor {
             @Override
             public void run() {
                 // 使用主线程处理定时检查
-                mainHandler.post(() -> {
-                    Logger.d("执行定时网络状态检查");
-                    checkNetworkChange(networkDetector.isNetworkConnected());
-                });
+                mainHandler.post(() -> checkNetworkChange(networkDetector.isNetworkConnected()));
             }
         }, PERIODIC_CHECK_INTERVAL, PERIODIC_CHECK_INTERVAL);
         
@@ -215,7 +301,7 @@ public class NetworkMonitor {
             String currentWifiSSID = getWifiSSID();
             String currentIPAddress = networkDetector.getLocalIpAddress();
             
-            Logger.d("网络检查 - WiFi: " + currentWifiSSID + ", IP: " + currentIPAddress);
+            CHECK_LOG.d("网络检查 - WiFi: " + currentWifiSSID + ", IP: " + currentIPAddress);
             
             boolean shouldTriggerLogin = false;
             
@@ -237,6 +323,9 @@ public class NetworkMonitor {
             
             // 如果需要触发登录
             if (shouldTriggerLogin) {
+                // 网络变化后重试未送达的webhook消息
+                WebhookOutbox.getInstance(context).onNetworkChanged();
+                
                 // 检查自动登录设置
                 triggerLoginIfEnabled();
             }
@@ -285,8 +374,7 @@ public class NetworkMonitor {
      */
     private void triggerLoginIfEnabled() {
         try {
-            ConfigManager configManager = new ConfigManager(context);
-            Config config = configManager.loadConfig();
+            Config config = ConfigManager.getConfig(context);
             
             if (config.isComplete() && config.isAutoLogin()) {
                 Logger.i("触发自动登录流程");
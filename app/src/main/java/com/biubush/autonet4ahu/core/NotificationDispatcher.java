@@ -0,0 +1,286 @@
+package com.biubush.autonet4ahu.core;
+
+import android.content.Context;
+
+import com.biubush.autonet4ahu.model.LoginResult;
+import com.biubush.autonet4ahu.util.JsonBuffer;
+import com.biubush.autonet4ahu.util.LatencyHistogram;
+import com.biubush.autonet4ahu.util.Logger;
+import com.biubush.autonet4ahu.util.TokenBucket;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 通知分发器，所有{@link NotificationSink}共用
+ * <p>
+ * 登录事件先经{@link LoginEventAggregator}合并，再在合并器线程中按通道限流和格式化，
+ * 持久化通道的消息写入{@link WebhookOutbox}，由发件箱负责失败重试，其他通道直接投递。
+ * <p>
+ * 投递使用一个最多{@value #MAX_PARALLEL}个线程的线程池，每个通道有自己的串行队列，
+ * 同一通道同时只占用一个线程，因此某个通道无响应时只会拖慢它自己的队列，不影响其他通道。
+ * 每个通道单独统计投递结果和耗时分布。
+ */
+public class NotificationDispatcher {
+    private static final int MAX_PARALLEL = 4;                  // 最大并发投递数
+    private static final int MAX_PENDING_PER_SINK = 16;         // 每个通道最多排队的消息数
+    private static final int SINK_BURST = 5;                    // 每个通道允许的突发消息数
+    private static final int SINK_PER_MINUTE = 20;              // 每个通道每分钟的消息数，与企业微信机器人的限制一致
+    private static final Logger.Site RATE_LIMIT_LOG = Logger.site("NotificationDispatcher.rateLimit", 3, 0.1);
+
+    private static final NotificationDispatcher INSTANCE = new NotificationDispatcher();
+
+    private final ThreadPoolExecutor executor;
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final LoginEventAggregator aggregator = new LoginEventAggregator();
+    private final Map<String, TokenBucket> rateLimiters = new ConcurrentHashMap<>();
+    private final AtomicLong suppressedCount = new AtomicLong();
+
+    // 以下对象只在合并器线程中使用
+    private final NotificationEvent event = new NotificationEvent();
+    private final JsonBuffer payloadBuffer = new JsonBuffer(512);
+
+    /**
+     * 投递结果回调，在投递线程中执行
+     */
+    public interface DeliveryListener {
+        /**
+         * @param sinkId 通道标识
+         * @param success 是否投递成功
+         * @param error 失败原因，成功时为null
+         */
+        void onDelivered(String sinkId, boolean success, String error);
+    }
+
+    public static NotificationDispatcher getInstance() {
+        return INSTANCE;
+    }
+
+    private NotificationDispatcher() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(MAX_PARALLEL, MAX_PARALLEL, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> new Thread(r, "Notify-" + threadIndex.incrementAndGet()));
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 分发一次登录结果，立即返回
+     *
+     * @param context 上下文
+     * @param result 登录结果
+     * @param studentId 学号
+     * @param windowMs 合并窗口，不大于0时不合并
+     * @param sinks 通知通道
+     */
+    public void dispatch(Context context, LoginResult result, String studentId, long windowMs,
+                         List<NotificationSink> sinks) {
+        if (sinks.isEmpty()) {
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        aggregator.offer(result, studentId, windowMs, digest -> fanOut(appContext, digest, sinks));
+    }
+
+    /**
+     * 把一条登录摘要格式化后交给各通道，只在合并器线程中调用
+     */
+    private void fanOut(Context context, LoginEventAggregator.Digest digest, List<NotificationSink> sinks) {
+        event.fill(digest);
+        for (NotificationSink sink : sinks) {
+            try {
+                TokenBucket bucket = rateLimiters.computeIfAbsent(sink.getId(),
+                        id -> new TokenBucket(SINK_BURST, SINK_PER_MINUTE / 60.0));
+                if (!bucket.tryAcquire()) {
+                    suppressedCount.incrementAndGet();
+                    RATE_LIMIT_LOG.w("通知发送过于频繁，丢弃本次通知: " + sink.getLabel());
+                    continue;
+                }
+                sink.format(event, payloadBuffer.reset());
+                byte[] payload = payloadBuffer.toByteArray();
+                if (sink.isDurable()) {
+                    // 先登记通道，发件箱投递时按标识找回同一个实例
+                    endpoint(sink);
+                    WebhookOutbox.getInstance(context).enqueue(event.getKey(), sink.getId(), payload);
+                } else {
+                    submit(sink, payload, null);
+                }
+            } catch (Exception e) {
+                Logger.e("构建通知失败: " + sink.getLabel(), e);
+            }
+        }
+    }
+
+    /**
+     * 提交一条格式化后的消息，立即返回
+     *
+     * @param sink 通知通道
+     * @param payload 消息内容
+     * @param listener 投递结果回调，可以为null
+     */
+    public void submit(NotificationSink sink, byte[] payload, DeliveryListener listener) {
+        endpoint(sink).enqueue(new Delivery(payload, listener));
+    }
+
+    /**
+     * 按通道标识提交消息，供发件箱重放使用
+     * <p>
+     * 进程重启后通道还没有登记时，webhook地址形式的标识会重新创建{@link WebhookSink}，
+     * 消息已经格式化过，模板不影响发送。
+     *
+     * @param sinkId 通道标识
+     * @param payload 消息内容
+     * @param listener 投递结果回调，可以为null
+     */
+    public void submit(String sinkId, byte[] payload, DeliveryListener listener) {
+        Endpoint endpoint = endpoints.get(sinkId);
+        if (endpoint == null) {
+            if (!sinkId.startsWith("http://") && !sinkId.startsWith("https://")) {
+                Logger.w("未知的通知通道，丢弃消息");
+                if (listener != null) {
+                    listener.onDelivered(sinkId, false, "未知通道");
+                }
+                return;
+            }
+            endpoint = endpoint(new WebhookSink(sinkId, null));
+        }
+        endpoint.enqueue(new Delivery(payload, listener));
+    }
+
+    /**
+     * 获取通知合并、限流和各通道投递的统计摘要
+     */
+    public String getStatsSummary() {
+        StringBuilder sb = new StringBuilder("通知合并: ").append(aggregator.getMergedCount())
+                .append("条，摘要: ").append(aggregator.getDigestCount())
+                .append("条，限流丢弃: ").append(suppressedCount.get()).append("条");
+        for (Endpoint endpoint : endpoints.values()) {
+            sb.append("\n  ").append(endpoint.sink.getLabel())
+                    .append(" 成功").append(endpoint.delivered.get())
+                    .append(" 失败").append(endpoint.failed.get())
+                    .append(" 丢弃").append(endpoint.dropped.get())
+                    .append(" ").append(endpoint.latency.getSummary());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 获取通道对应的投递队列，通道实例更新时替换为新实例
+     */
+    private Endpoint endpoint(NotificationSink sink) {
+        Endpoint endpoint = endpoints.computeIfAbsent(sink.getId(), id -> new Endpoint(sink));
+        endpoint.sink = sink;
+        return endpoint;
+    }
+
+    private static final class Delivery {
+        final byte[] payload;
+        final DeliveryListener listener;
+
+        Delivery(byte[] payload, DeliveryListener listener) {
+            this.payload = payload;
+            this.listener = listener;
+        }
+    }
+
+    /**
+     * 单个通道的串行队列和统计
+     */
+    private final class Endpoint {
+        volatile NotificationSink sink;
+        final ArrayDeque<Delivery> queue = new ArrayDeque<>();
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong delivered = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+        private boolean scheduled = false;
+
+        Endpoint(NotificationSink sink) {
+            this.sink = sink;
+        }
+
+        void enqueue(Delivery delivery) {
+            Delivery evicted = null;
+            synchronized (this) {
+                if (queue.size() >= MAX_PENDING_PER_SINK) {
+                    evicted = queue.pollFirst();
+                }
+                queue.addLast(delivery);
+                if (!scheduled) {
+                    scheduled = true;
+                    executor.execute(this::runNext);
+                }
+            }
+            if (evicted != null) {
+                dropped.incrementAndGet();
+                Logger.w("通知队列已满，丢弃最早的消息: " + sink.getLabel());
+                notifyListener(evicted, false, "队列已满");
+            }
+        }
+
+        /**
+         * 每次只投递一条，然后重新排队，让各地址公平地轮流使用线程
+         */
+        private void runNext() {
+            Delivery delivery;
+            synchronized (this) {
+                delivery = queue.pollFirst();
+                if (delivery == null) {
+                    scheduled = false;
+                    return;
+                }
+            }
+            try {
+                deliver(delivery);
+            } finally {
+                synchronized (this) {
+                    if (queue.isEmpty()) {
+                        scheduled = false;
+                    } else {
+                        executor.execute(this::runNext);
+                    }
+                }
+            }
+        }
+
+        private void deliver(Delivery delivery) {
+            NotificationSink sink = this.sink;
+            long start = System.nanoTime();
+            String error = null;
+            try {
+                sink.send(delivery.payload);
+            } catch (Exception e) {
+                error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            latency.record(elapsedMs);
+            if (error == null) {
+                delivered.incrementAndGet();
+                Logger.i("通知发送成功: " + sink.getLabel() + "，耗时" + elapsedMs + "ms");
+            } else {
+                failed.incrementAndGet();
+                Logger.w("通知发送失败: " + sink.getLabel() + "，" + error + "，耗时" + elapsedMs + "ms");
+            }
+            notifyListener(delivery, error == null, error);
+        }
+
+        private void notifyListener(Delivery delivery, boolean success, String error) {
+            if (delivery.listener == null) {
+                return;
+            }
+            try {
+                delivery.listener.onDelivered(sink.getId(), success, error);
+            } catch (Exception e) {
+                Logger.e("通知投递回调异常", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.biubush.autonet4ahu.core;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 通知事件，由登录摘要生成，字段按{@link PayloadTemplate}的变量下标排列
+ * <p>
+ * 分发线程只持有一个实例并在每次分发前重新填充，通道不能在{@link NotificationSink#format}之外保留它。
+ */
+public final class NotificationEvent {
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss", Locale.CHINA).withZone(ZoneId.systemDefault());
+
+    private final StringBuilder title = new StringBuilder(32);
+    private final StringBuilder time = new StringBuilder(48);
+    private final StringBuilder count = new StringBuilder(4);
+    private final CharSequence[] values = new CharSequence[PayloadTemplate.VARIABLE_COUNT];
+    private String key;
+    private int mergedCount;
+
+    /**
+     * 用登录摘要填充事件
+     *
+     * @param digest 登录摘要
+     */
+    void fill(LoginEventAggregator.Digest digest) {
+        title.setLength(0);
+        title.append("校园网登录成功通知");
+        if (digest.getCount() > 1) {
+            title.append('（').append(digest.getCount()).append("次合并）");
+        }
+        time.setLength(0);
+        TIME_FORMAT.formatTo(Instant.ofEpochMilli(digest.getFirstTime()), time);
+        if (digest.getCount() > 1) {
+            time.append(" ~ ");
+            TIME_FORMAT.formatTo(Instant.ofEpochMilli(digest.getLastTime()), time);
+        }
+        mergedCount = digest.getCount();
+        count.setLength(0);
+        count.append(mergedCount);
+        values[PayloadTemplate.VAR_TITLE] = title;
+        values[PayloadTemplate.VAR_STUDENT_ID] = digest.getStudentId();
+        values[PayloadTemplate.VAR_IP] = joinIps(digest.getIpAddresses());
+        values[PayloadTemplate.VAR_RESULT] = digest.getLastMessage();
+        values[PayloadTemplate.VAR_TIME] = time;
+        values[PayloadTemplate.VAR_COUNT] = count;
+        key = "login-" + digest.getFirstTime() + "x" + digest.getCount();
+    }
+
+    /**
+     * 获取幂等键，同一摘要的键相同
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * 获取模板变量值，按VAR_*下标排列
+     */
+    public CharSequence[] getValues() {
+        return values;
+    }
+
+    public CharSequence get(int variable) {
+        return values[variable];
+    }
+
+    /**
+     * 获取合并的登录次数
+     */
+    public int getCount() {
+        return mergedCount;
+    }
+
+    private static String joinIps(List<String> ipAddresses) {
+        if (ipAddresses.isEmpty()) {
+            return "unknown";
+        }
+        if (ipAddresses.size() == 1) {
+            return ipAddresses.get(0);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String ip : ipAddresses) {
+            if (sb.length() > 0) {
+                sb.append(" → ");
+            }
+            sb.append(ip);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,46 @@
+package com.biubush.autonet4ahu.core;
+
+import com.biubush.autonet4ahu.util.JsonBuffer;
+
+import java.io.IOException;
+
+/**
+ * 通知通道
+ * <p>
+ * 通道只负责把事件格式化为消息和把消息发送出去，线程、合并、限流、重试和统计都由
+ * {@link NotificationDispatcher}统一处理，新增通道不需要自己创建线程。
+ */
+public interface NotificationSink {
+    /**
+     * 获取通道标识，同一目标的通道标识相同
+     * <p>
+     * 持久化通道的标识会写入发件箱，重启后用它恢复通道，因此不能随运行状态变化。
+     */
+    String getId();
+
+    /**
+     * 获取日志中显示的名称，不能包含密钥
+     */
+    String getLabel();
+
+    /**
+     * 是否经{@link WebhookOutbox}持久化并在失败时重试
+     */
+    boolean isDurable();
+
+    /**
+     * 把事件格式化为消息，在分发线程中调用
+     *
+     * @param event 通知事件，只在本次调用中有效
+     * @param out 输出缓冲区，已清空
+     */
+    void format(NotificationEvent event, JsonBuffer out);
+
+    /**
+     * 发送一条格式化后的消息，在投递线程中调用，同一通道的消息依次发送
+     *
+     * @param payload {@link #format}的输出
+     * @throws IOException 发送失败
+     */
+    void send(byte[] payload) throws IOException;
+}
@@ -11,61 +11,66 @@ import android.os.Build;
 import androidx.core.app.NotificationCompat;
 
 import com.biubush.autonet4ahu.MainActivity;
-import com.biubush.autonet4ahu.R;
+import com.biubush.autonet4ahu.model.Config;
 import com.biubush.autonet4ahu.model.LoginResult;
+import com.biubush.autonet4ahu.util.ConfigManager;
 import com.biubush.autonet4ahu.util.Logger;
 
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Locale;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * 通知模块，用于发送消息通知
+ * <p>
+ * 根据配置组装悬浮窗、webhook和本地文件等{@link NotificationSink}，发送交给{@link NotificationDispatcher}完成，
+ * 调用线程不会被阻塞。
  */
-public class Notifier {
+public class Notifier implements ConfigManager.OnConfigChangeListener {
     private static final String CHANNEL_ID = "autonet4ahu_channel";
     private static final String CHANNEL_NAME = "校园网登录通知";
     private static final int NOTIFICATION_ID = 1001;
-    private static final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    private static final String NOTIFY_FILE_NAME = "notifications.log";
     
     private final Context context;
-    private final List<String> webhookUrls;
-    private final boolean notifyOnSuccess;
-    private final FloatingNotification floatingNotification;
+    private final OverlaySink overlaySink;
+    private volatile List<NotificationSink> sinks;
+    private volatile boolean notifyOnSuccess;
+    private volatile long windowMs;
     
     /**
      * 构造函数
      *
      * @param context 应用上下文
-     * @param webhookUrls 企业微信webhook URL列表
+     * @param webhookUrls webhook URL列表
      * @param notifyOnSuccess 是否在登录成功时发送通知
      */
     public Notifier(Context context, List<String> webhookUrls, boolean notifyOnSuccess) {
         this.context = context.getApplicationContext();
-        this.webhookUrls = webhookUrls;
+        this.overlaySink = new OverlaySink(FloatingNotification.getInstance(context));
         this.notifyOnSuccess = notifyOnSuccess;
-        this.floatingNotification = new FloatingNotification(context);
+        
+        Config config = ConfigManager.getConfig(this.context);
+        this.sinks = buildSinks(webhookUrls, config);
+        this.windowMs = config.getNotifyWindowSeconds() * 1000L;
         
         // 创建通知渠道（仍然需要用于前台服务）
         createNotificationChannel();
         
-        Logger.d("Notifier初始化完成，webhook数量: " + (webhookUrls != null ? webhookUrls.size() : 0) + 
-                "，登录成功时通知: " + notifyOnSuccess);
+        Logger.d("Notifier初始化完成，通知通道: " + describe(sinks) + "，登录成功时通知: " + notifyOnSuccess);
+    }
+    
+    @Override
+    public void onConfigChanged(Config config) {
+        this.sinks = buildSinks(config.getWebhookUrls(), config);
+        this.notifyOnSuccess = config.isNotifyOnSuccess();
+        this.windowMs = config.getNotifyWindowSeconds() * 1000L;
+        Logger.d("Notifier配置已更新，通知通道: " + describe(sinks) + "，登录成功时通知: " + notifyOnSuccess);
     }
     
     /**
-     * 发送登录结果通知
+     * 发送登录结果通知，立即返回
      *
      * @param loginResult 登录结果
      * @param studentId 学号
@@ -83,128 +88,62 @@ public class Notifier {
             return;
         }
         
-        // 发送悬浮窗通知
-        showFloatingNotification(loginResult);
-        
-        // 发送企业微信通知
-        if (webhookUrls != null && !webhookUrls.isEmpty()) {
-            sendWebhookNotification(loginResult, studentId);
-        }
+        // 窗口内的多次登录合并为一条摘要，由分发器在后台格式化和投递
+        NotificationDispatcher.getInstance().dispatch(context, loginResult, studentId, windowMs, sinks);
     }
     
     /**
-     * 显示悬浮窗通知
+     * 根据配置组装通知通道
      *
-     * @param loginResult 登录结果
+     * @param webhookUrls webhook URL列表
+     * @param config 当前配置，提供消息模板和本地文件开关
      */
-    private void showFloatingNotification(LoginResult loginResult) {
-        try {
-            // 构建通知内容
-            String message = loginResult.getMessage();
-            if (loginResult.getIpAddress() != null && !loginResult.getIpAddress().isEmpty()) {
-                message += " IP: " + loginResult.getIpAddress();
+    private List<NotificationSink> buildSinks(List<String> webhookUrls, Config config) {
+        List<NotificationSink> result = new ArrayList<>();
+        result.add(overlaySink);
+        
+        PayloadTemplate template = compileTemplate(config.getWebhookTemplate());
+        if (webhookUrls != null) {
+            for (String webhookUrl : webhookUrls) {
+                if (webhookUrl != null && !webhookUrl.trim().isEmpty()) {
+                    result.add(new WebhookSink(webhookUrl, template));
+                }
             }
-            
-            // 显示悬浮通知 (由于我们修改了sendLoginResultNotification方法，此处只会处理成功的情况)
-            floatingNotification.showSuccess(message);
-            
-            Logger.d("悬浮窗通知已发送: 成功 - " + message);
-        } catch (Exception e) {
-            Logger.e("发送悬浮窗通知失败", e);
         }
+        
+        if (config.isNotifyToFile()) {
+            result.add(new FileSink(new File(context.getFilesDir(), NOTIFY_FILE_NAME)));
+        }
+        return Collections.unmodifiableList(result);
     }
     
     /**
-     * 发送企业微信webhook通知
+     * 编译自定义消息模板
      *
-     * @param loginResult 登录结果
-     * @param studentId 学号
+     * @param source 模板文本
+     * @return 编译后的模板，未设置或无效时返回null，由各通道使用自己的默认模板
      */
-    private void sendWebhookNotification(LoginResult loginResult, String studentId) {
-        if (webhookUrls == null || webhookUrls.isEmpty()) {
-            return;
+    private static PayloadTemplate compileTemplate(String source) {
+        if (source == null || source.isEmpty()) {
+            return null;
         }
-        
-        // 使用线程池异步发送通知，避免阻塞主线程
-        executorService.execute(() -> {
-            try {
-                // 格式化时间
-                SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.CHINA);
-                String timeStr = sdf.format(new Date(loginResult.getTimestamp()));
-                
-                // 构建消息内容
-                String status = loginResult.isSuccess() ? "成功" : "失败";
-                String content = "校园网登录" + status + "通知\n\n" +
-                        "学号: " + studentId + "\n" +
-                        "IP地址: " + loginResult.getIpAddress() + "\n" +
-                        "登录结果: " + loginResult.getMessage() + "\n" +
-                        "时间: " + timeStr;
-                
-                // 构建JSON请求
-                JSONObject textObj = new JSONObject();
-                textObj.put("content", content);
-                
-                JSONObject jsonObject = new JSONObject();
-                jsonObject.put("msgtype", "text");
-                jsonObject.put("text", textObj);
-                
-                String jsonBody = jsonObject.toString();
-                Logger.d("企业微信通知内容: " + jsonBody);
-                
-                // 向所有webhook URL发送请求
-                for (String webhookUrl : webhookUrls) {
-                    if (webhookUrl == null || webhookUrl.trim().isEmpty()) {
-                        continue;
-                    }
-                    
-                    try {
-                        URL url = new URL(webhookUrl);
-                        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                        connection.setRequestMethod("POST");
-                        connection.setRequestProperty("Content-Type", "application/json");
-                        connection.setDoOutput(true);
-                        connection.setConnectTimeout(5000);
-                        connection.setReadTimeout(5000);
-                        
-                        try (OutputStream os = connection.getOutputStream()) {
-                            byte[] input = jsonBody.getBytes(StandardCharsets.UTF_8);
-                            os.write(input, 0, input.length);
-                        }
-                        
-                        int responseCode = connection.getResponseCode();
-                        
-                        // 读取响应
-                        StringBuilder response = new StringBuilder();
-                        try (BufferedReader br = new BufferedReader(
-                                new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
-                            String responseLine;
-                            while ((responseLine = br.readLine()) != null) {
-                                response.append(responseLine.trim());
-                            }
-                        }
-                        
-                        Logger.d("企业微信通知响应: " + responseCode + " - " + response.toString());
-                        
-                        if (responseCode == 200) {
-                            JSONObject responseJson = new JSONObject(response.toString());
-                            if (responseJson.optInt("errcode", -1) == 0) {
-                                Logger.i("企业微信通知发送成功");
-                            } else {
-                                Logger.w("企业微信通知发送失败: " + responseJson.optString("errmsg", "未知错误"));
-                            }
-                        } else {
-                            Logger.w("企业微信通知HTTP请求失败，状态码: " + responseCode);
-                        }
-                        
-                    } catch (Exception e) {
-                        Logger.e("发送企业微信通知失败: " + webhookUrl, e);
-                    }
-                }
-                
-            } catch (Exception e) {
-                Logger.e("构建企业微信通知失败", e);
+        try {
+            return PayloadTemplate.compile(source);
+        } catch (IllegalArgumentException e) {
+            Logger.w("消息模板无效，使用默认模板: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    private static String describe(List<NotificationSink> sinks) {
+        StringBuilder sb = new StringBuilder();
+        for (NotificationSink sink : sinks) {
+            if (sb.length() > 0) {
+                sb.append("、");
             }
-        });
+            sb.append(sink.getLabel());
+        }
+        return sb.toString();
     }
     
     /**
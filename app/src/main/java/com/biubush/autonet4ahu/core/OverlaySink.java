@@ -0,0 +1,55 @@
+package com.biubush.autonet4ahu.core;
+
+import com.biubush.autonet4ahu.util.JsonBuffer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 悬浮窗通知通道，消息内容为UTF-8文本，由{@link FloatingNotification}切换到主线程显示
+ */
+public class OverlaySink implements NotificationSink {
+    private final FloatingNotification floatingNotification;
+
+    /**
+     * 构造函数
+     *
+     * @param floatingNotification 悬浮通知
+     */
+    public OverlaySink(FloatingNotification floatingNotification) {
+        this.floatingNotification = floatingNotification;
+    }
+
+    @Override
+    public String getId() {
+        return "overlay";
+    }
+
+    @Override
+    public String getLabel() {
+        return "悬浮窗";
+    }
+
+    @Override
+    public boolean isDurable() {
+        return false;
+    }
+
+    @Override
+    public void format(NotificationEvent event, JsonBuffer out) {
+        StringBuilder message = new StringBuilder();
+        message.append(event.get(PayloadTemplate.VAR_RESULT));
+        CharSequence ip = event.get(PayloadTemplate.VAR_IP);
+        if (ip != null && ip.length() > 0) {
+            message.append(" IP: ").append(ip);
+        }
+        if (event.getCount() > 1) {
+            message.append("（").append(event.getCount()).append("次合并）");
+        }
+        out.writeRaw(message.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void send(byte[] payload) {
+        floatingNotification.showSuccess(new String(payload, StandardCharsets.UTF_8));
+    }
+}
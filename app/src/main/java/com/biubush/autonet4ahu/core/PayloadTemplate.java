@@ -0,0 +1,149 @@
+package com.biubush.autonet4ahu.core;
+
+import com.biubush.autonet4ahu.util.JsonBuffer;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 预编译的webhook消息模板
+ * <p>
+ * 模板是一段JSON文本，字符串值中可以使用{{变量名}}占位。编译时把模板切分为固定字节段和变量引用，
+ * 渲染时依次写入{@link JsonBuffer}，变量值按JSON字符串规则转义，整个过程不创建JSONObject。
+ * <p>
+ * 支持的变量：title（标题）、studentId（学号）、ip（IP地址）、result（登录结果）、time（时间）、count（合并次数）。
+ */
+public class PayloadTemplate {
+    public static final int VAR_TITLE = 0;
+    public static final int VAR_STUDENT_ID = 1;
+    public static final int VAR_IP = 2;
+    public static final int VAR_RESULT = 3;
+    public static final int VAR_TIME = 4;
+    public static final int VAR_COUNT = 5;
+    public static final int VARIABLE_COUNT = 6;
+
+    private static final String[] VARIABLE_NAMES = {"title", "studentId", "ip", "result", "time", "count"};
+
+    /**
+     * 默认的企业微信文本消息模板
+     */
+    public static final String DEFAULT_WECOM_TEXT = "{\"msgtype\":\"text\",\"text\":{\"content\":\"" +
+            "{{title}}\\n\\n学号: {{studentId}}\\nIP地址: {{ip}}\\n登录结果: {{result}}\\n时间: {{time}}\"}}";
+
+    /**
+     * 默认的飞书文本消息模板
+     */
+    public static final String DEFAULT_FEISHU_TEXT = "{\"msg_type\":\"text\",\"content\":{\"text\":\"" +
+            "{{title}}\\n\\n学号: {{studentId}}\\nIP地址: {{ip}}\\n登录结果: {{result}}\\n时间: {{time}}\"}}";
+
+    /**
+     * 默认的通用JSON模板，每个变量一个字段
+     */
+    public static final String DEFAULT_GENERIC_JSON = "{\"event\":\"login\",\"title\":\"{{title}}\"," +
+            "\"studentId\":\"{{studentId}}\",\"ip\":\"{{ip}}\",\"result\":\"{{result}}\"," +
+            "\"time\":\"{{time}}\",\"count\":\"{{count}}\"}";
+
+    private final String source;
+    private final byte[][] literals;  // literals[i]位于variables[i]之前，最后一段在所有变量之后
+    private final int[] variables;
+
+    private PayloadTemplate(String source, byte[][] literals, int[] variables) {
+        this.source = source;
+        this.literals = literals;
+        this.variables = variables;
+    }
+
+    /**
+     * 编译模板
+     *
+     * @param source 模板文本
+     * @return 编译后的模板
+     * @throws IllegalArgumentException 变量名未知、占位符未闭合或渲染结果不是合法JSON
+     */
+    public static PayloadTemplate compile(String source) {
+        List<byte[]> literals = new ArrayList<>();
+        List<Integer> variables = new ArrayList<>();
+        int pos = 0;
+        while (true) {
+            int open = source.indexOf("{{", pos);
+            if (open < 0) {
+                break;
+            }
+            int close = source.indexOf("}}", open + 2);
+            if (close < 0) {
+                throw new IllegalArgumentException("模板占位符未闭合，位置: " + open);
+            }
+            String name = source.substring(open + 2, close).trim();
+            int variable = indexOf(name);
+            if (variable < 0) {
+                throw new IllegalArgumentException("未知的模板变量: " + name);
+            }
+            literals.add(source.substring(pos, open).getBytes(StandardCharsets.UTF_8));
+            variables.add(variable);
+            pos = close + 2;
+        }
+        literals.add(source.substring(pos).getBytes(StandardCharsets.UTF_8));
+
+        int[] variableArray = new int[variables.size()];
+        for (int i = 0; i < variableArray.length; i++) {
+            variableArray[i] = variables.get(i);
+        }
+        PayloadTemplate template = new PayloadTemplate(source, literals.toArray(new byte[0][]), variableArray);
+        template.validate();
+        return template;
+    }
+
+    private static int indexOf(String name) {
+        for (int i = 0; i < VARIABLE_NAMES.length; i++) {
+            if (VARIABLE_NAMES[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 用示例值渲染一次，确认结果是合法的JSON对象，只在编译时执行
+     */
+    private void validate() {
+        CharSequence[] sample = new CharSequence[VARIABLE_COUNT];
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = "\"示例\"\n";
+        }
+        JsonBuffer buffer = new JsonBuffer(256);
+        render(buffer, sample);
+        try {
+            new JSONObject(new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+        } catch (JSONException e) {
+            throw new IllegalArgumentException("模板不是合法的JSON: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 渲染模板
+     *
+     * @param buffer 输出缓冲区，追加写入
+     * @param values 变量值，按VAR_*下标排列
+     */
+    public void render(JsonBuffer buffer, CharSequence[] values) {
+        for (int i = 0; i < variables.length; i++) {
+            buffer.writeRaw(literals[i]);
+            CharSequence value = values[variables[i]];
+            if (value != null) {
+                buffer.writeEscaped(value);
+            }
+        }
+        buffer.writeRaw(literals[variables.length]);
+    }
+
+    /**
+     * 获取模板原文
+     */
+    public String getSource() {
+        return source;
+    }
+}
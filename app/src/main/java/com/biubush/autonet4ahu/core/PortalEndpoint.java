@@ -0,0 +1,96 @@
+package com.biubush.autonet4ahu.core;
+
+import java.util.Locale;
+
+/**
+ * 单个认证网关节点及其健康状况
+ * <p>
+ * 延迟和错误率都用指数加权移动平均（EWMA）持续更新，近期的请求权重更高，节点变慢或恢复后几次请求内即可反映出来。
+ * 状态在多个请求线程中更新，方法均为同步方法。
+ */
+public class PortalEndpoint {
+    private static final double ALPHA = 0.3;                // EWMA权重
+    private static final double INITIAL_LATENCY_MS = 200;   // 尚无记录时假定的延迟
+    private static final double ERROR_PENALTY = 4;          // 错误率对评分的放大系数
+    private static final long FAILURE_LATENCY_MS = 2000;    // 失败至少按该延迟计入，快速失败的节点不会因延迟低而排在前面
+
+    private final String host;
+    private double ewmaLatencyMs = INITIAL_LATENCY_MS;
+    private double ewmaErrorRate;
+    private long requestCount;
+    private long errorCount;
+    private long hedgeWinCount;
+
+    /**
+     * 构造函数
+     *
+     * @param host 网关地址
+     */
+    public PortalEndpoint(String host) {
+        this.host = host;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * 生成该节点上指定端口和路径的地址
+     *
+     * @param port 端口，80时省略
+     * @param path 以/开头的路径和查询参数
+     */
+    public String url(int port, String path) {
+        return "http://" + host + (port == 80 ? "" : ":" + port) + path;
+    }
+
+    /**
+     * 记录一次请求的结果
+     *
+     * @param success 节点是否正常应答
+     * @param latencyMs 请求耗时（毫秒），失败时为等待的时间
+     */
+    public synchronized void record(boolean success, long latencyMs) {
+        requestCount++;
+        if (!success) {
+            errorCount++;
+            latencyMs = Math.max(latencyMs, FAILURE_LATENCY_MS);
+        }
+        ewmaLatencyMs = requestCount == 1 ? latencyMs : ALPHA * latencyMs + (1 - ALPHA) * ewmaLatencyMs;
+        ewmaErrorRate = ALPHA * (success ? 0 : 1) + (1 - ALPHA) * ewmaErrorRate;
+    }
+
+    /**
+     * 记录一次对冲请求胜出
+     */
+    public synchronized void recordHedgeWin() {
+        hedgeWinCount++;
+    }
+
+    /**
+     * 健康评分，越小越好
+     */
+    public synchronized double score() {
+        return ewmaLatencyMs * (1 + ERROR_PENALTY * ewmaErrorRate);
+    }
+
+    /**
+     * 获取延迟的移动平均（毫秒）
+     */
+    public synchronized long getEwmaLatencyMs() {
+        return Math.round(ewmaLatencyMs);
+    }
+
+    /**
+     * 获取错误率的移动平均，取值0~1
+     */
+    public synchronized double getEwmaErrorRate() {
+        return ewmaErrorRate;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.ROOT, "%s 延迟%dms 错误率%.0f%% 请求%d次 失败%d次 对冲胜出%d次",
+                host, Math.round(ewmaLatencyMs), ewmaErrorRate * 100, requestCount, errorCount, hedgeWinCount);
+    }
+}
@@ -0,0 +1,276 @@
+package com.biubush.autonet4ahu.core;
+
+import com.biubush.autonet4ahu.util.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多个认证网关节点的选择与故障转移
+ * <p>
+ * 请求先发往评分最好的节点；该节点超过对冲延迟仍未应答时，向下一个节点再发一次相同的请求，先到的应答胜出。
+ * 节点出错时立即改用下一个节点。对冲延迟按首选节点的延迟移动平均动态计算，节点正常时几乎不会触发对冲。
+ * 未胜出的请求在后台完成，其结果同样计入节点评分。
+ * <p>
+ * 只有幂等且不带账号的请求（如校园网探测、网关首页）才对冲。登录和注销会改变网关上的会话，
+ * 同时发往两个节点可能产生重复会话，或者一个节点注销了另一个节点刚建立的会话，因此只做故障转移。
+ */
+public class PortalEndpoints {
+    private static final long MIN_HEDGE_DELAY_MS = 150;
+    private static final long MAX_HEDGE_DELAY_MS = 1500;
+    private static final int MAX_HEDGES = 1;
+
+    private final PortalTransport transport;
+    private final ExecutorService executor;
+    private volatile List<PortalEndpoint> endpoints;
+    private final AtomicLong hedgeCount = new AtomicLong();
+    private final AtomicLong failoverCount = new AtomicLong();
+
+    /**
+     * 一次请求的应答
+     */
+    public static final class Reply {
+        private final PortalEndpoint endpoint;
+        private final PortalTransport.Response response;
+
+        Reply(PortalEndpoint endpoint, PortalTransport.Response response) {
+            this.endpoint = endpoint;
+            this.response = response;
+        }
+
+        /**
+         * 应答的节点
+         */
+        public PortalEndpoint getEndpoint() {
+            return endpoint;
+        }
+
+        public PortalTransport.Response getResponse() {
+            return response;
+        }
+    }
+
+    /**
+     * 单个节点上的一次请求，完成后放入结果队列
+     */
+    private static final class Attempt {
+        final PortalEndpoint endpoint;
+        final boolean hedged;
+        PortalTransport.Response response;
+        IOException error;
+
+        Attempt(PortalEndpoint endpoint, boolean hedged) {
+            this.endpoint = endpoint;
+            this.hedged = hedged;
+        }
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param transport HTTP传输层
+     * @param hosts 网关地址，按优先顺序排列
+     */
+    public PortalEndpoints(PortalTransport transport, List<String> hosts) {
+        this.transport = transport;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "PortalRequest-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        setHosts(hosts);
+    }
+
+    /**
+     * 更新网关地址列表，已有节点的统计保留
+     *
+     * @param hosts 网关地址，按优先顺序排列
+     */
+    public synchronized void setHosts(List<String> hosts) {
+        if (hosts.isEmpty()) {
+            throw new IllegalArgumentException("网关地址不能为空");
+        }
+        List<PortalEndpoint> previous = endpoints != null ? endpoints : Collections.emptyList();
+        List<PortalEndpoint> updated = new ArrayList<>(hosts.size());
+        for (String host : hosts) {
+            PortalEndpoint endpoint = null;
+            for (PortalEndpoint existing : previous) {
+                if (existing.getHost().equals(host)) {
+                    endpoint = existing;
+                    break;
+                }
+            }
+            updated.add(endpoint != null ? endpoint : new PortalEndpoint(host));
+        }
+        endpoints = Collections.unmodifiableList(updated);
+    }
+
+    /**
+     * 获取所有节点，按配置顺序排列
+     */
+    public List<PortalEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * 获取按评分排序的节点，评分相同时保持配置顺序
+     */
+    public List<PortalEndpoint> ranked() {
+        List<PortalEndpoint> ranked = new ArrayList<>(endpoints);
+        ranked.sort(Comparator.comparingDouble(PortalEndpoint::score));
+        return ranked;
+    }
+
+    /**
+     * 向最合适的节点发送幂等的GET请求，必要时对冲或转移到其他节点，不能用于登录和注销
+     *
+     * @param port 端口
+     * @param path 以/开头的路径和查询参数
+     * @param timeoutMs 单个节点的超时时间
+     * @param readBody 是否读取响应内容
+     * @return 最先到达的应答
+     * @throws IOException 所有节点都请求失败时抛出最后一个错误
+     */
+    public Reply get(int port, String path, int timeoutMs, boolean readBody) throws IOException {
+        return request(port, path, timeoutMs, readBody, MAX_HEDGES);
+    }
+
+    /**
+     * 向最合适的节点发送会改变会话的GET请求，同一时间只有一个节点在处理，出错时才转移到下一个节点
+     *
+     * @param port 端口
+     * @param path 以/开头的路径和查询参数
+     * @param timeoutMs 单个节点的超时时间
+     * @param readBody 是否读取响应内容
+     * @return 应答
+     * @throws IOException 所有节点都请求失败时抛出最后一个错误
+     */
+    public Reply getWithFailover(int port, String path, int timeoutMs, boolean readBody) throws IOException {
+        return request(port, path, timeoutMs, readBody, 0);
+    }
+
+    private Reply request(int port, String path, int timeoutMs, boolean readBody, int maxHedges) throws IOException {
+        List<PortalEndpoint> ranked = ranked();
+        if (ranked.size() == 1) {
+            Attempt attempt = new Attempt(ranked.get(0), false);
+            run(attempt, port, path, timeoutMs, readBody);
+            if (attempt.error != null) {
+                throw attempt.error;
+            }
+            return new Reply(attempt.endpoint, attempt.response);
+        }
+
+        LinkedBlockingQueue<Attempt> done = new LinkedBlockingQueue<>();
+        long hedgeDelayMs = Math.max(MIN_HEDGE_DELAY_MS, Math.min(MAX_HEDGE_DELAY_MS, ranked.get(0).getEwmaLatencyMs() * 2));
+        int next = 0;
+        int outstanding = 0;
+        int hedges = 0;
+        IOException lastError = null;
+        launch(new Attempt(ranked.get(next++), false), port, path, timeoutMs, readBody, done);
+        outstanding++;
+        try {
+            while (outstanding > 0) {
+                boolean canHedge = hedges < maxHedges && next < ranked.size();
+                Attempt attempt = canHedge ? done.poll(hedgeDelayMs, TimeUnit.MILLISECONDS) : done.take();
+                if (attempt == null) {
+                    // 首选节点迟迟未应答，向下一个节点对冲
+                    hedges++;
+                    hedgeCount.incrementAndGet();
+                    Logger.d("网关" + ranked.get(0).getHost() + "超过" + hedgeDelayMs + "ms未应答，对冲到" + ranked.get(next).getHost());
+                    launch(new Attempt(ranked.get(next++), true), port, path, timeoutMs, readBody, done);
+                    outstanding++;
+                    continue;
+                }
+                outstanding--;
+                if (attempt.error == null) {
+                    if (attempt.hedged) {
+                        attempt.endpoint.recordHedgeWin();
+                    }
+                    return new Reply(attempt.endpoint, attempt.response);
+                }
+                lastError = attempt.error;
+                if (outstanding == 0 && next < ranked.size()) {
+                    // 节点出错，立即转移到下一个节点
+                    failoverCount.incrementAndGet();
+                    Logger.d("网关" + attempt.endpoint.getHost() + "请求失败，转移到" + ranked.get(next).getHost());
+                    launch(new Attempt(ranked.get(next++), false), port, path, timeoutMs, readBody, done);
+                    outstanding++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("网关请求被中断", e);
+        }
+        throw lastError;
+    }
+
+    /**
+     * 在后台发送会改变会话的GET请求，不阻塞调用线程，不对冲
+     *
+     * @return 应答，所有节点都失败时以IOException异常完成
+     */
+    public CompletableFuture<Reply> getWithFailoverAsync(int port, String path, int timeoutMs, boolean readBody) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return getWithFailover(port, path, timeoutMs, readBody);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    private void launch(Attempt attempt, int port, String path, int timeoutMs, boolean readBody,
+                        LinkedBlockingQueue<Attempt> done) {
+        executor.execute(() -> {
+            run(attempt, port, path, timeoutMs, readBody);
+            done.add(attempt);
+        });
+    }
+
+    private void run(Attempt attempt, int port, String path, int timeoutMs, boolean readBody) {
+        long start = System.nanoTime();
+        try {
+            attempt.response = transport.get(attempt.endpoint.url(port, path), timeoutMs, readBody);
+            // 网关返回5xx视为节点故障，其他状态码说明节点在正常工作
+            if (attempt.response.getCode() >= 500) {
+                attempt.error = new IOException("网关" + attempt.endpoint.getHost() + "返回" + attempt.response.getCode());
+            }
+        } catch (IOException e) {
+            attempt.error = e;
+        } catch (RuntimeException e) {
+            attempt.error = new IOException(e);
+        }
+        attempt.endpoint.record(attempt.error == null, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 获取各节点的健康统计
+     */
+    public String getSummary() {
+        StringBuilder sb = new StringBuilder("网关节点: 对冲").append(hedgeCount.get())
+                .append("次，故障转移").append(failoverCount.get()).append("次");
+        for (PortalEndpoint endpoint : endpoints) {
+            sb.append("\n  ").append(endpoint);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 停止请求线程
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,166 @@
+package com.biubush.autonet4ahu.core;
+
+import android.net.Network;
+
+import com.biubush.autonet4ahu.util.LatencyHistogram;
+import com.biubush.autonet4ahu.util.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 认证网关连接预热
+ * <p>
+ * WiFi网络刚出现时，DHCP、网络监控的延迟和网关检测都还没完成，此时先在后台建立到网关的TCP连接并暂存，
+ * 登录时直接在这条连接上发送请求，省去建连的时间。暂存的连接超过{@value #MAX_IDLE_MS}毫秒未使用即关闭，
+ * 网关通常会关闭长时间空闲的连接。
+ */
+public class PortalPrewarmer {
+    private static final long MAX_IDLE_MS = 15 * 1000;
+    private static final int CONNECT_TIMEOUT_MS = 3000;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "PortalPrewarmer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, Parked> parked = new HashMap<>();   // 受this保护，键为host:port
+    private final LatencyHistogram savedConnect = new LatencyHistogram();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+
+    /**
+     * 暂存的连接
+     */
+    static final class Parked {
+        final Socket socket;
+        final Network network;
+        final long connectMs;       // 建连耗时，即使用时节省的时间
+        final long parkedAt;
+
+        Parked(Socket socket, Network network, long connectMs, long parkedAt) {
+            this.socket = socket;
+            this.network = network;
+            this.connectMs = connectMs;
+            this.parkedAt = parkedAt;
+        }
+    }
+
+    /**
+     * 在后台为指定网络建立到网关各端口的连接，已有的同一网络的连接保留
+     *
+     * @param network WiFi网络
+     * @param host 网关地址
+     * @param ports 网关端口
+     */
+    public void prewarm(Network network, String host, int... ports) {
+        for (int port : ports) {
+            executor.execute(() -> connect(network, host, port));
+        }
+    }
+
+    private void connect(Network network, String host, int port) {
+        String key = host + ":" + port;
+        synchronized (this) {
+            Parked existing = parked.get(key);
+            if (existing != null && network.equals(existing.network) && isFresh(existing)) {
+                return;
+            }
+        }
+        Socket socket = null;
+        try {
+            long start = System.nanoTime();
+            socket = network.getSocketFactory().createSocket();
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+            long connectMs = (System.nanoTime() - start) / 1_000_000;
+            Parked previous;
+            synchronized (this) {
+                previous = parked.put(key, new Parked(socket, network, connectMs, System.currentTimeMillis()));
+            }
+            closeQuietly(previous);
+            Logger.d("已预热网关连接 " + key + "，建连耗时" + connectMs + "ms");
+        } catch (IOException e) {
+            Logger.d("预热网关连接失败 " + key + ": " + e.getMessage());
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                    // 忽略
+                }
+            }
+        }
+    }
+
+    /**
+     * 取出暂存的连接，取出后由调用方负责关闭
+     *
+     * @param host 网关地址
+     * @param port 端口
+     * @param network 本次请求要使用的网络，为null时不使用暂存的连接
+     * @return 可用的连接，没有时返回null
+     */
+    Parked take(String host, int port, Network network) {
+        Parked entry;
+        synchronized (this) {
+            entry = parked.remove(host + ":" + port);
+        }
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        if (network == null || !network.equals(entry.network) || !isFresh(entry)) {
+            expiredCount.incrementAndGet();
+            closeQuietly(entry);
+            return null;
+        }
+        hitCount.incrementAndGet();
+        savedConnect.record(entry.connectMs);
+        return entry;
+    }
+
+    /**
+     * 关闭所有暂存的连接，在网络断开时调用
+     */
+    public void clear() {
+        Map<String, Parked> copy;
+        synchronized (this) {
+            copy = new HashMap<>(parked);
+            parked.clear();
+        }
+        for (Parked entry : copy.values()) {
+            closeQuietly(entry);
+        }
+    }
+
+    private static boolean isFresh(Parked entry) {
+        return System.currentTimeMillis() - entry.parkedAt < MAX_IDLE_MS
+                && entry.socket.isConnected() && !entry.socket.isClosed();
+    }
+
+    private static void closeQuietly(Parked entry) {
+        if (entry == null) {
+            return;
+        }
+        try {
+            entry.socket.close();
+        } catch (IOException ignored) {
+            // 忽略
+        }
+    }
+
+    /**
+     * 获取预热统计摘要，包括命中次数和节省的建连时间
+     */
+    public String getSummary() {
+        return "连接预热: 命中" + hitCount.get() + "次，未命中" + missCount.get() + "次，过期" + expiredCount.get() +
+                "次，节省建连 " + savedConnect.getSummary();
+    }
+}
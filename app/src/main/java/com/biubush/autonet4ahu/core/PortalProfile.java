@@ -0,0 +1,125 @@
+package com.biubush.autonet4ahu.core;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.regex.Pattern;
+
+/**
+ * 认证网关的协议参数
+ * <p>
+ * Dr.COM网关升级后callback、login_method、jsVersion和v可能变化，这些参数从网关首页中发现，
+ * 发现失败时使用{@link #DEFAULT}。版本摘要只由协议参数计算，参数不变时摘要不变，登录请求模板无需重建。
+ */
+public final class PortalProfile {
+    /**
+     * 内置的协议参数，与本应用发布时的网关一致
+     */
+    public static final PortalProfile DEFAULT = new PortalProfile("dr1003", "1", "3.3.2", "1117", 0);
+
+    private final String callback;
+    private final String loginMethod;
+    private final String jsVersion;
+    private final String version;
+    private final long discoveredAt;
+    private final String versionHash;
+
+    /**
+     * 构造函数
+     *
+     * @param callback JSONP回调名
+     * @param loginMethod 登录方式
+     * @param jsVersion 网关脚本版本
+     * @param version 网关页面版本号
+     * @param discoveredAt 发现时间，内置参数为0
+     */
+    public PortalProfile(String callback, String loginMethod, String jsVersion, String version, long discoveredAt) {
+        this.callback = callback;
+        this.loginMethod = loginMethod;
+        this.jsVersion = jsVersion;
+        this.version = version;
+        this.discoveredAt = discoveredAt;
+        this.versionHash = hash(callback + '|' + loginMethod + '|' + jsVersion + '|' + version);
+    }
+
+    public String getCallback() {
+        return callback;
+    }
+
+    public String getLoginMethod() {
+        return loginMethod;
+    }
+
+    public String getJsVersion() {
+        return jsVersion;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * 获取发现时间，内置参数为0
+     */
+    public long getDiscoveredAt() {
+        return discoveredAt;
+    }
+
+    /**
+     * 获取协议参数的摘要
+     */
+    public String getVersionHash() {
+        return versionHash;
+    }
+
+    /**
+     * 生成登录请求中IP地址之前的部分
+     *
+     * @param loginPath 登录接口路径
+     */
+    public String buildRequestPrefix(String loginPath) {
+        String params = "c=Portal&a=login&callback=" + callback + "&login_method=" + loginMethod +
+                "&jsVersion=" + jsVersion + "&v=" + version;
+        return loginPath + "?" + params + "&" + params +
+                "&wlan_user_ipv6=&wlan_user_mac=000000000000&wlan_ac_ip=&wlan_ac_name=&wlan_user_ip=";
+    }
+
+    /**
+     * 生成注销指定IP会话的请求地址，账号和密码使用网关页面注销时的固定占位值
+     *
+     * @param loginPath 登录接口路径
+     * @param userIp 已URL编码的IP地址
+     */
+    public String buildLogoutPath(String loginPath, String userIp) {
+        return loginPath + "?c=Portal&a=logout&callback=" + callback + "&login_method=" + loginMethod +
+                "&user_account=drcom&user_password=123&ac_logout=1&register_mode=1&wlan_user_ip=" + userIp +
+                "&wlan_user_ipv6=&wlan_vlan_id=1&wlan_user_mac=000000000000&wlan_ac_ip=&wlan_ac_name=" +
+                "&jsVersion=" + jsVersion + "&v=" + version;
+    }
+
+    /**
+     * 生成匹配JSONP响应的正则表达式
+     */
+    public Pattern buildResponsePattern() {
+        return Pattern.compile(Pattern.quote(callback) + "\\((.*)\\)");
+    }
+
+    private static String hash(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(16);
+            for (int i = 0; i < 8; i++) {
+                hex.append(Character.forDigit((digest[i] >> 4) & 0xF, 16)).append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "callback=" + callback + ", login_method=" + loginMethod + ", jsVersion=" + jsVersion +
+                ", v=" + version + "（" + versionHash + "）";
+    }
+}
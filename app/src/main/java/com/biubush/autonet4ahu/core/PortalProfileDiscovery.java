@@ -0,0 +1,303 @@
+package com.biubush.autonet4ahu.core;
+
+import com.biubush.autonet4ahu.util.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * 认证网关协议参数发现
+ * <p>
+ * 从网关首页中登录请求的参数里提取callback、login_method、jsVersion和v，只认登录请求的查询串
+ * （{@code c=Portal&a=login&...}）或含login_method的参数对象，页面其他位置的{@code ?v=}缓存参数和dr开头的单词不参与。
+ * 页面中找不到的参数沿用上一次的值；同一参数出现多个不同的值时无法判断哪个是真的，使用{@link PortalProfile#DEFAULT}中的值。
+ * <p>
+ * 结果缓存{@code ttlMs}毫秒并保存到文件，进程重启后直接使用。{@link #current()}不访问网络，缓存过期或失效时
+ * 在后台线程中重新发现，登录使用发现完成前的参数，不多等一次往返。发现失败时一段时间后再试。线程安全。
+ */
+public class PortalProfileDiscovery {
+    public static final long DEFAULT_TTL_MS = 24 * 60 * 60 * 1000L;
+    private static final long RETRY_AFTER_FAILURE_MS = 10 * 60 * 1000L;
+    private static final int LANDING_PORT = 80;
+    private static final String LANDING_PATH = "/";
+    private static final int FETCH_TIMEOUT_MS = 3000;
+    private static final int MAGIC = 0x414E5050; // "ANPP"
+    private static final short VERSION_1 = 1;
+
+    // 登录请求的查询串和参数对象
+    private static final Pattern QUERY_BLOCK = Pattern.compile("[?&]c=Portal&a=login&[^\"'\\s<>]*");
+    private static final Pattern OBJECT_BLOCK = Pattern.compile("\\{[^{}]*\\blogin_method['\"]?\\s*:[^{}]*}");
+    private static final Pattern QUERY_PARAM = Pattern.compile("(?:^|&)(callback|login_method|jsVersion|v)=([^&]*)");
+    private static final Pattern OBJECT_PARAM = Pattern.compile(
+            "['\"]?\\b(callback|login_method|jsVersion|v)['\"]?\\s*:\\s*['\"]?([^'\",}\\s]*)");
+
+    private static final Pattern CALLBACK = Pattern.compile("dr[0-9]+");
+    private static final Pattern LOGIN_METHOD = Pattern.compile("[0-9]+");
+    private static final Pattern JS_VERSION = Pattern.compile("[0-9][0-9.]*");
+    private static final Pattern VERSION = Pattern.compile("_?([0-9]+)");
+
+    private final PortalEndpoints endpoints;
+    private final long ttlMs;
+    private final File file;        // 为null时只缓存在内存中
+    private final File tmpFile;
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "PortalProfileDiscovery");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final AtomicInteger discoveryCount = new AtomicInteger();
+    private final AtomicInteger changeCount = new AtomicInteger();
+    private volatile PortalProfile profile = PortalProfile.DEFAULT;
+    private volatile long nextRefreshAt;   // 0表示需要立即发现
+    private volatile boolean invalidated;
+
+    /**
+     * 构造函数，结果只缓存在内存中
+     *
+     * @param endpoints 网关节点
+     * @param ttlMs 发现结果的有效期
+     */
+    public PortalProfileDiscovery(PortalEndpoints endpoints, long ttlMs) {
+        this(endpoints, ttlMs, null);
+    }
+
+    /**
+     * 构造函数，读取上次保存的结果
+     *
+     * @param endpoints 网关节点
+     * @param ttlMs 发现结果的有效期
+     * @param file 保存结果的文件，为null时只缓存在内存中
+     */
+    public PortalProfileDiscovery(PortalEndpoints endpoints, long ttlMs, File file) {
+        this.endpoints = endpoints;
+        this.ttlMs = ttlMs;
+        this.file = file;
+        this.tmpFile = file != null ? new File(file.getPath() + ".tmp") : null;
+        load();
+    }
+
+    /**
+     * 获取当前协议参数，不访问网络；缓存过期或失效时在后台重新发现
+     *
+     * @return 协议参数，不会为null
+     */
+    public PortalProfile current() {
+        if (invalidated || System.currentTimeMillis() >= nextRefreshAt) {
+            scheduleRefresh();
+        }
+        return profile;
+    }
+
+    /**
+     * 使缓存失效并在后台重新发现，在登录响应无法解析时调用
+     */
+    public void invalidate() {
+        invalidated = true;
+        scheduleRefresh();
+    }
+
+    /**
+     * 等待正在进行的发现完成
+     *
+     * @param timeoutMs 最长等待时间
+     * @return 是否在超时前完成
+     */
+    public boolean awaitRefresh(long timeoutMs) {
+        try {
+            return refresher.submit(() -> { }).get(timeoutMs, TimeUnit.MILLISECONDS) == null;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 停止后台发现线程
+     */
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    private void scheduleRefresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    invalidated = false;
+                    refresh(System.currentTimeMillis());
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            // 已停止
+            refreshing.set(false);
+        }
+    }
+
+    private void refresh(long now) {
+        discoveryCount.incrementAndGet();
+        PortalProfile previous = profile;
+        try {
+            PortalTransport.Response response = endpoints.get(LANDING_PORT, LANDING_PATH, FETCH_TIMEOUT_MS, true).getResponse();
+            if (response.getCode() != 200) {
+                throw new IllegalStateException("网关首页响应码: " + response.getCode());
+            }
+            PortalProfile discovered = parse(response.getBody(), previous, now);
+            if (!discovered.getVersionHash().equals(previous.getVersionHash())) {
+                changeCount.incrementAndGet();
+                Logger.i("网关协议参数已更新: " + previous + " -> " + discovered);
+            } else {
+                Logger.d("网关协议参数未变化: " + discovered);
+            }
+            profile = discovered;
+            nextRefreshAt = now + ttlMs;
+            save(discovered);
+        } catch (Exception e) {
+            Logger.w("网关协议参数发现失败，继续使用 " + previous + ": " + e.getMessage());
+            nextRefreshAt = now + Math.min(ttlMs, RETRY_AFTER_FAILURE_MS);
+        }
+    }
+
+    /**
+     * 从网关页面中登录请求的参数里提取协议参数
+     *
+     * @param page 页面内容
+     * @param fallback 页面中找不到的参数使用的值
+     * @param now 发现时间
+     */
+    static PortalProfile parse(String page, PortalProfile fallback, long now) {
+        List<String[]> params = new ArrayList<>();
+        Matcher block = QUERY_BLOCK.matcher(page);
+        while (block.find()) {
+            collect(QUERY_PARAM.matcher(block.group().substring(1)), params);
+        }
+        block = OBJECT_BLOCK.matcher(page);
+        while (block.find()) {
+            collect(OBJECT_PARAM.matcher(block.group()), params);
+        }
+        return new PortalProfile(
+                pick(params, "callback", CALLBACK, fallback.getCallback(), PortalProfile.DEFAULT.getCallback()),
+                pick(params, "login_method", LOGIN_METHOD, fallback.getLoginMethod(), PortalProfile.DEFAULT.getLoginMethod()),
+                pick(params, "jsVersion", JS_VERSION, fallback.getJsVersion(), PortalProfile.DEFAULT.getJsVersion()),
+                pick(params, "v", VERSION, fallback.getVersion(), PortalProfile.DEFAULT.getVersion()),
+                now);
+    }
+
+    private static void collect(Matcher matcher, List<String[]> params) {
+        while (matcher.find()) {
+            params.add(new String[]{matcher.group(1), matcher.group(2)});
+        }
+    }
+
+    /**
+     * 选出参数的值：没有合法的候选时用fallback，候选不唯一时用内置值
+     */
+    private static String pick(List<String[]> params, String name, Pattern format, String fallback, String ambiguous) {
+        Set<String> candidates = new LinkedHashSet<>();
+        for (String[] param : params) {
+            if (param[0].equals(name)) {
+                Matcher matcher = format.matcher(param[1]);
+                if (matcher.matches()) {
+                    candidates.add(matcher.groupCount() > 0 ? matcher.group(1) : matcher.group());
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return fallback;
+        }
+        if (candidates.size() > 1) {
+            Logger.w("网关页面中" + name + "有多个候选值" + candidates + "，使用内置值" + ambiguous);
+            return ambiguous;
+        }
+        return candidates.iterator().next();
+    }
+
+    private void load() {
+        if (file == null || !file.exists()) {
+            return;
+        }
+        try {
+            byte[] data = Files.readAllBytes(file.toPath());
+            if (data.length < 10) {
+                throw new IOException("协议参数文件过短");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, data.length - 4);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            in.skipBytes(data.length - 4);
+            if ((int) crc.getValue() != in.readInt()) {
+                throw new IOException("协议参数文件校验失败");
+            }
+            in = new DataInputStream(new ByteArrayInputStream(data, 0, data.length - 4));
+            if (in.readInt() != MAGIC) {
+                throw new IOException("协议参数文件格式错误");
+            }
+            in.readShort();
+            PortalProfile loaded = new PortalProfile(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readLong());
+            profile = loaded;
+            nextRefreshAt = loaded.getDiscoveredAt() + ttlMs;
+            Logger.d("已读取网关协议参数: " + loaded);
+        } catch (IOException e) {
+            Logger.w("读取网关协议参数失败，使用内置参数: " + e.getMessage());
+        }
+    }
+
+    private void save(PortalProfile saved) {
+        if (file == null) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION_1);
+            out.writeUTF(saved.getCallback());
+            out.writeUTF(saved.getLoginMethod());
+            out.writeUTF(saved.getJsVersion());
+            out.writeUTF(saved.getVersion());
+            out.writeLong(saved.getDiscoveredAt());
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray(), 0, bytes.size());
+            out.writeInt((int) crc.getValue());
+            out.flush();
+            try (FileOutputStream fos = new FileOutputStream(tmpFile)) {
+                bytes.writeTo(fos);
+                fos.getFD().sync();
+            }
+            if (!tmpFile.renameTo(file)) {
+                throw new IOException("重命名协议参数文件失败");
+            }
+        } catch (IOException e) {
+            Logger.e("保存网关协议参数失败", e);
+            tmpFile.delete();
+        }
+    }
+
+    /**
+     * 获取发现统计
+     */
+    public String getSummary() {
+        return "网关协议: " + profile + "，发现" + discoveryCount.get() + "次，参数变化" + changeCount.get() + "次";
+    }
+}
@@ -0,0 +1,136 @@
+package com.biubush.autonet4ahu.core;
+
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * 认证网关登录响应分类
+ * <p>
+ * 网关在dr1003回调中返回result、ret_code和msg，msg有时是Base64编码的英文错误，有时是中文提示。
+ * 这里把它们归为成功、已在线、可重试、账号受限和终止五类：终止类错误（账号不存在、密码错误、欠费停机等）
+ * 换个时间重试也不会成功，反复登录只会增加网关负担，还可能触发账号锁定；账号受限（在线设备数或流量达到上限）
+ * 过一段时间可能恢复，但同样只与当前账号有关，换用其他账号即可登录。
+ */
+public final class PortalResponseClassifier {
+    /**
+     * 响应类别
+     */
+    public enum Category {
+        SUCCESS,
+        ALREADY_ONLINE,
+        RETRYABLE,
+        ACCOUNT_LIMIT,
+        TERMINAL;
+
+        /**
+         * 失败是否只与当前账号有关，换用其他账号可能成功
+         */
+        public boolean isAccountSpecific() {
+            return this == ACCOUNT_LIMIT || this == TERMINAL;
+        }
+    }
+
+    // 已在线的提示
+    private static final String[] ONLINE_KEYWORDS = {"已经在线", "已在线", "already online"};
+
+    // 账号的在线设备数或流量达到上限
+    private static final String[] LIMIT_KEYWORDS = {
+            "limit users", "终端数", "在线数", "设备数", "已达上限", "达到上限",
+            "流量已用完", "剩余流量", "流量不足", "时长已用完"
+    };
+
+    // 不会因重试而改变的错误，只收网关明确指向账号本身的提示；注销成功、会话过期等提示
+    // 以及不带具体原因的auth error按可重试处理，以免正常账号被冷却数小时
+    private static final String[] TERMINAL_KEYWORDS = {
+            "userid error1", "userid error2", "ldap auth error",
+            "账号不存在", "用户不存在", "密码错误", "账号或密码", "用户名或密码",
+            "欠费", "余额不足", "费用超支", "停机", "账号已停用", "账号已禁用", "账号被禁用",
+            "账号已冻结", "账号被冻结", "账号已注销", "账号已过期"
+    };
+
+    private PortalResponseClassifier() {
+    }
+
+    /**
+     * 分类结果
+     */
+    public static final class Classification {
+        private final Category category;
+        private final String message;
+
+        Classification(Category category, String message) {
+            this.category = category;
+            this.message = message;
+        }
+
+        public Category getCategory() {
+            return category;
+        }
+
+        /**
+         * 网关的提示信息，Base64编码的内容已解码
+         */
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    /**
+     * 对dr1003回调中的JSON进行分类
+     *
+     * @param response 网关返回的JSON
+     * @return 分类结果
+     */
+    public static Classification classify(JSONObject response) {
+        String message = decodeMessage(response.optString("msg", ""));
+        if ("1".equals(response.optString("result"))) {
+            return new Classification(Category.SUCCESS, message);
+        }
+
+        String retCode = response.optString("ret_code", "");
+        String lower = message.toLowerCase(Locale.ROOT);
+        if ("2".equals(retCode) || containsAny(lower, ONLINE_KEYWORDS)) {
+            return new Classification(Category.ALREADY_ONLINE, message);
+        }
+        if (containsAny(lower, LIMIT_KEYWORDS)) {
+            return new Classification(Category.ACCOUNT_LIMIT, message);
+        }
+        if (containsAny(lower, TERMINAL_KEYWORDS)) {
+            return new Classification(Category.TERMINAL, message);
+        }
+        return new Classification(Category.RETRYABLE, message.isEmpty() ? "登录失败，未知原因" : message);
+    }
+
+    /**
+     * 解码Base64编码的提示，不是Base64或解码后不是可读文本时原样返回
+     */
+    static String decodeMessage(String msg) {
+        if (msg.isEmpty() || msg.length() % 4 != 0 || !msg.matches("[A-Za-z0-9+/]+={0,2}")) {
+            return msg;
+        }
+        try {
+            String decoded = new String(Base64.getDecoder().decode(msg), StandardCharsets.UTF_8);
+            for (int i = 0; i < decoded.length(); i++) {
+                char c = decoded.charAt(i);
+                if (c < 0x20 || c == '�') {
+                    return msg;
+                }
+            }
+            return decoded;
+        } catch (IllegalArgumentException e) {
+            return msg;
+        }
+    }
+
+    private static boolean containsAny(String text, String[] keywords) {
+        for (String keyword : keywords) {
+            if (text.contains(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,61 @@
+package com.biubush.autonet4ahu.core;
+
+import java.io.IOException;
+
+/**
+ * 认证网关的HTTP传输层，{@link EPortal}通过它发送请求，便于替换连接方式
+ */
+public interface PortalTransport {
+    /**
+     * 发送GET请求并读取响应
+     *
+     * @param url 请求地址
+     * @param timeoutMs 连接和读取超时
+     * @param readBody 是否读取响应内容，为false时只取状态码
+     * @return 响应
+     * @throws IOException 连接或读取失败
+     */
+    Response get(String url, int timeoutMs, boolean readBody) throws IOException;
+
+    /**
+     * HTTP响应
+     */
+    final class Response {
+        private final int code;
+        private final String body;
+        private final boolean networkBound;
+
+        public Response(int code, String body) {
+            this(code, body, false);
+        }
+
+        /**
+         * @param code HTTP状态码
+         * @param body 响应内容
+         * @param networkBound 请求是否绑定到指定网络发出
+         */
+        public Response(int code, String body, boolean networkBound) {
+            this.code = code;
+            this.body = body;
+            this.networkBound = networkBound;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        /**
+         * 获取响应内容，未读取时为空字符串
+         */
+        public String getBody() {
+            return body;
+        }
+
+        /**
+         * 请求是否绑定到指定网络发出
+         */
+        public boolean isNetworkBound() {
+            return networkBound;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.biubush.autonet4ahu.core;
+
+import android.content.Context;
+
+import com.biubush.autonet4ahu.util.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+
+/**
+ * 持久化的登录会话记录
+ * <p>
+ * 登录服务是START_STICKY的，被系统杀死重启后内存中的网络状态全部丢失。这里记录最近一次登录时的
+ * WiFi（SSID、BSSID）、IP地址、登录时间和网关会话状态，服务重启时读取，网络未变化时可以跳过登录。
+ * 文件很小，写入时先写临时文件再重命名，读取失败时视为没有记录。线程安全。
+ */
+public class SessionStore {
+    private static final String FILE_NAME = "session.bin";
+    private static final int MAGIC = 0x414E5353; // "ANSS"
+    private static final short VERSION = 1;
+
+    private static volatile SessionStore instance;
+
+    private final File file;
+    private final File tmpFile;
+    private Session session;      // 受this保护，没有记录时为null
+    private long avoidedCount;    // 重启后免于登录的次数，受this保护
+
+    /**
+     * 会话记录
+     */
+    public static final class Session {
+        private final String ssid;
+        private final String bssid;
+        private final String ipAddress;
+        private final String portalHost;
+        private final long loginAt;
+        private final boolean online;
+
+        public Session(String ssid, String bssid, String ipAddress, String portalHost, long loginAt, boolean online) {
+            this.ssid = ssid != null ? ssid : "";
+            this.bssid = bssid != null ? bssid : "";
+            this.ipAddress = ipAddress != null ? ipAddress : "";
+            this.portalHost = portalHost != null ? portalHost : "";
+            this.loginAt = loginAt;
+            this.online = online;
+        }
+
+        public String getSsid() {
+            return ssid;
+        }
+
+        public String getBssid() {
+            return bssid;
+        }
+
+        public String getIpAddress() {
+            return ipAddress;
+        }
+
+        /**
+         * 登录时应答的网关地址
+         */
+        public String getPortalHost() {
+            return portalHost;
+        }
+
+        public long getLoginAt() {
+            return loginAt;
+        }
+
+        /**
+         * 网关上的会话是否在线
+         */
+        public boolean isOnline() {
+            return online;
+        }
+
+        /**
+         * 会话是否属于指定的网络，BSSID未知时只比较SSID和IP
+         */
+        public boolean matches(String ssid, String bssid, String ipAddress) {
+            return this.ssid.equals(ssid != null ? ssid : "")
+                    && this.ipAddress.equals(ipAddress != null ? ipAddress : "")
+                    && (this.bssid.isEmpty() || bssid == null || bssid.isEmpty() || this.bssid.equals(bssid));
+        }
+
+        @Override
+        public String toString() {
+            return "WiFi: " + ssid + (bssid.isEmpty() ? "" : "(" + bssid + ")") + ", IP: " + ipAddress +
+                    ", 网关: " + portalHost + ", " + (online ? "在线" : "离线");
+        }
+    }
+
+    /**
+     * 获取全局实例
+     *
+     * @param context 上下文
+     */
+    public static SessionStore getInstance(Context context) {
+        if (instance == null) {
+            synchronized (SessionStore.class) {
+                if (instance == null) {
+                    instance = new SessionStore(context.getApplicationContext().getFilesDir());
+                }
+            }
+        }
+        return instance;
+    }
+
+    SessionStore(File dir) {
+        this.file = new File(dir, FILE_NAME);
+        this.tmpFile = new File(dir, FILE_NAME + ".tmp");
+        load();
+    }
+
+    /**
+     * 获取最近一次的会话记录
+     *
+     * @return 会话记录，没有时返回null
+     */
+    public synchronized Session get() {
+        return session;
+    }
+
+    /**
+     * 保存会话记录
+     *
+     * @param session 会话记录
+     */
+    public synchronized void save(Session session) {
+        this.session = session;
+        write();
+    }
+
+    /**
+     * 将会话标记为离线，在配置变更后调用，下次启动时会重新登录
+     */
+    public synchronized void markOffline() {
+        if (session != null && session.isOnline()) {
+            session = new Session(session.ssid, session.bssid, session.ipAddress, session.portalHost, session.loginAt, false);
+            write();
+        }
+    }
+
+    /**
+     * 记录一次因网络未变化而免于登录的重启
+     */
+    public synchronized void recordAvoided() {
+        avoidedCount++;
+        write();
+    }
+
+    /**
+     * 获取重启后免于登录的累计次数
+     */
+    public synchronized long getAvoidedCount() {
+        return avoidedCount;
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            byte[] data = Files.readAllBytes(file.toPath());
+            if (data.length < 10) {
+                throw new IOException("会话文件过短");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, data.length - 4);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            in.skipBytes(data.length - 4);
+            if ((int) crc.getValue() != in.readInt()) {
+                throw new IOException("会话文件校验失败");
+            }
+            in = new DataInputStream(new ByteArrayInputStream(data, 0, data.length - 4));
+            if (in.readInt() != MAGIC) {
+                throw new IOException("会话文件格式错误");
+            }
+            in.readShort();
+            avoidedCount = in.readLong();
+            if (in.readBoolean()) {
+                session = new Session(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readLong(), in.readBoolean());
+            }
+            Logger.d("已读取会话记录: " + session);
+        } catch (IOException e) {
+            Logger.w("读取会话记录失败，忽略: " + e.getMessage());
+            session = null;
+        }
+    }
+
+    private void write() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(avoidedCount);
+            out.writeBoolean(session != null);
+            if (session != null) {
+                out.writeUTF(session.ssid);
+                out.writeUTF(session.bssid);
+                out.writeUTF(session.ipAddress);
+                out.writeUTF(session.portalHost);
+                out.writeLong(session.loginAt);
+                out.writeBoolean(session.online);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray(), 0, bytes.size());
+            out.writeInt((int) crc.getValue());
+            out.flush();
+            try (FileOutputStream fos = new FileOutputStream(tmpFile)) {
+                bytes.writeTo(fos);
+                fos.getFD().sync();
+            }
+            if (!tmpFile.renameTo(file)) {
+                throw new IOException("重命名会话文件失败");
+            }
+        } catch (IOException e) {
+            Logger.e("写入会话记录失败", e);
+            tmpFile.delete();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.biubush.autonet4ahu.core;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 终止类登录失败的缓存
+ * <p>
+ * 以凭据指纹为键记录网关返回的终止类错误，同一凭据之后的登录直接返回缓存的结果而不再访问网关，
+ * 直到配置变更时清空。只保存指纹和提示信息，不保存凭据本身。线程安全。
+ */
+public class TerminalFailureCache {
+    private final Map<String, Entry> entries = new HashMap<>();   // 受this保护
+    private final AtomicLong suppressedCount = new AtomicLong();
+
+    /**
+     * 缓存的失败
+     */
+    public static final class Entry {
+        private final String message;
+        private final long failedAt;
+
+        Entry(String message, long failedAt) {
+            this.message = message;
+            this.failedAt = failedAt;
+        }
+
+        /**
+         * 网关的提示信息
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * 失败发生的时间
+         */
+        public long getFailedAt() {
+            return failedAt;
+        }
+    }
+
+    /**
+     * 记录一次终止类失败
+     *
+     * @param fingerprint 凭据指纹
+     * @param message 网关的提示信息
+     */
+    public synchronized void put(String fingerprint, String message) {
+        entries.put(fingerprint, new Entry(message, System.currentTimeMillis()));
+    }
+
+    /**
+     * 查询凭据是否已确定无法登录，命中时计入被拦截的登录次数
+     *
+     * @param fingerprint 凭据指纹
+     * @return 缓存的失败，没有时返回null
+     */
+    public Entry check(String fingerprint) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(fingerprint);
+        }
+        if (entry != null) {
+            suppressedCount.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * 清空缓存，在配置变更时调用
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * 获取被拦截的登录次数
+     */
+    public long getSuppressedCount() {
+        return suppressedCount.get();
+    }
+}
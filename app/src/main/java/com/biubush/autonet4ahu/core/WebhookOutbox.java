@@ -0,0 +1,462 @@
+package com.biubush.autonet4ahu.core;
+
+import android.content.Context;
+
+import com.biubush.autonet4ahu.model.LoginResult;
+import com.biubush.autonet4ahu.util.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Webhook持久化发件箱
+ * <p>
+ * 待发送的消息先追加写入磁盘，再交给{@link NotificationDispatcher}投递，投递成功后追加一条确认记录。
+ * 记录中的地址即{@link NotificationSink#getId()}，webhook通道的标识就是地址本身。
+ * 进程被杀后重新加载时，没有确认记录的消息会继续发送。投递失败按指数退避重试，
+ * 登录成功或网络变化时立即重试。每条消息有幂等键，同一个键对同一地址只会入队一次。
+ * <p>
+ * 文件由若干条记录组成：长度(4字节) + 内容 + CRC32(4字节)，内容第一个字节为记录类型。
+ */
+public class WebhookOutbox {
+    private static final String DIR_NAME = "webhook_outbox";
+    private static final String FILE_NAME = "outbox.log";
+
+    private static final byte RECORD_ENQUEUE = 1;
+    private static final byte RECORD_ACK = 2;
+
+    private static final long RETRY_BASE_MS = 15 * 1000;                // 首次重试间隔
+    private static final long RETRY_MAX_MS = 60 * 60 * 1000;            // 重试间隔上限
+    private static final int MAX_ATTEMPTS = 10;                         // 最多尝试次数
+    private static final long MAX_AGE_MS = 24 * 60 * 60 * 1000;         // 消息最长保留时间
+    private static final int MAX_PENDING = 200;                         // 最多保留的消息数
+    private static final long COMPACT_THRESHOLD_BYTES = 64 * 1024;      // 文件超过64KB时压缩
+
+    private static volatile WebhookOutbox instance;
+
+    private final File file;
+    private final ScheduledExecutorService executor;
+
+    // 以下状态只在executor线程中访问
+    private final Map<String, Entry> pending = new LinkedHashMap<>();
+    private FileOutputStream out;
+    private ScheduledFuture<?> retryTask;
+    private int ackedSinceCompact = 0;
+
+    private final AtomicLong depth = new AtomicLong();
+    private final AtomicLong oldestCreatedAt = new AtomicLong();
+    private final AtomicLong deliveredCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /**
+     * 获取全局实例
+     *
+     * @param context 上下文
+     */
+    public static WebhookOutbox getInstance(Context context) {
+        if (instance == null) {
+            synchronized (WebhookOutbox.class) {
+                if (instance == null) {
+                    instance = new WebhookOutbox(new File(context.getApplicationContext().getFilesDir(), DIR_NAME));
+                }
+            }
+        }
+        return instance;
+    }
+
+    private WebhookOutbox(File dir) {
+        this.file = new File(dir, FILE_NAME);
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "WebhookOutbox"));
+        executor.execute(() -> {
+            if (!dir.exists() && !dir.mkdirs()) {
+                Logger.e("创建webhook发件箱目录失败: " + dir);
+            }
+            load();
+            drain();
+        });
+    }
+
+    /**
+     * 将消息写入发件箱并尝试投递
+     *
+     * @param key 幂等键，同一条通知发往多个地址时使用相同的键
+     * @param url webhook地址
+     * @param body 请求体
+     */
+    public void enqueue(String key, String url, byte[] body) {
+        if (url == null || url.trim().isEmpty()) {
+            return;
+        }
+        String id = key + "|" + url.trim();
+        executor.execute(() -> {
+            if (pending.containsKey(id)) {
+                Logger.d("webhook消息已在发件箱中，忽略重复提交: " + key);
+                return;
+            }
+            Entry entry = new Entry(id, url.trim(), System.currentTimeMillis(), body);
+            try {
+                appendEnqueue(entry);
+            } catch (IOException e) {
+                // 写盘失败时仍然尝试投递，只是无法在进程重启后恢复
+                Logger.e("写入webhook发件箱失败", e);
+            }
+            pending.put(id, entry);
+            trimOverflow();
+            updateGauges();
+            deliver(entry);
+        });
+    }
+
+    /**
+     * 登录结果回调，登录成功后立即重试所有未送达的消息
+     *
+     * @param result 登录结果
+     */
+    public void onLoginResult(LoginResult result) {
+        if (result != null && result.isSuccess()) {
+            executor.execute(this::retryNow);
+        }
+    }
+
+    /**
+     * 网络变化回调，立即重试所有未送达的消息
+     */
+    public void onNetworkChanged() {
+        executor.execute(this::retryNow);
+    }
+
+    private void retryNow() {
+        for (Entry entry : pending.values()) {
+            entry.nextAttemptAt = 0;
+        }
+        drain();
+    }
+
+    /**
+     * 投递所有已到重试时间的消息，并安排下一次重试
+     */
+    private void drain() {
+        long now = System.currentTimeMillis();
+        long nextAt = Long.MAX_VALUE;
+        for (Entry entry : pending.values().toArray(new Entry[0])) {
+            if (entry.inFlight) {
+                continue;
+            }
+            if (now - entry.createdAt > MAX_AGE_MS) {
+                Logger.w("webhook消息超过保留时间，放弃发送: " + entry.label());
+                drop(entry);
+                continue;
+            }
+            if (entry.nextAttemptAt <= now) {
+                deliver(entry);
+            } else {
+                nextAt = Math.min(nextAt, entry.nextAttemptAt);
+            }
+        }
+        scheduleRetry(nextAt);
+    }
+
+    private void deliver(Entry entry) {
+        entry.inFlight = true;
+        entry.attempts++;
+        if (entry.attempts > 1) {
+            retryCount.incrementAndGet();
+        }
+        NotificationDispatcher.getInstance().submit(entry.url, entry.body,
+                (sinkId, success, error) -> executor.execute(() -> onDelivered(entry, success)));
+    }
+
+    private void onDelivered(Entry entry, boolean success) {
+        entry.inFlight = false;
+        if (pending.get(entry.id) != entry) {
+            return;
+        }
+        if (success) {
+            deliveredCount.incrementAndGet();
+            ack(entry);
+            return;
+        }
+        if (entry.attempts >= MAX_ATTEMPTS) {
+            Logger.w("webhook消息重试" + entry.attempts + "次仍失败，放弃发送: " + entry.label());
+            drop(entry);
+            return;
+        }
+        long delay = Math.min(RETRY_MAX_MS, RETRY_BASE_MS << Math.min(entry.attempts - 1, 16));
+        entry.nextAttemptAt = System.currentTimeMillis() + delay;
+        Logger.d("webhook消息将在" + (delay / 1000) + "秒后重试: " + entry.label());
+        drain();
+    }
+
+    private void scheduleRetry(long at) {
+        if (retryTask != null) {
+            retryTask.cancel(false);
+            retryTask = null;
+        }
+        if (at != Long.MAX_VALUE) {
+            long delay = Math.max(0, at - System.currentTimeMillis());
+            retryTask = executor.schedule(this::drain, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void drop(Entry entry) {
+        droppedCount.incrementAndGet();
+        ack(entry);
+    }
+
+    private void ack(Entry entry) {
+        pending.remove(entry.id);
+        try {
+            appendAck(entry.id);
+        } catch (IOException e) {
+            Logger.e("写入webhook发件箱确认记录失败", e);
+        }
+        ackedSinceCompact++;
+        updateGauges();
+        maybeCompact();
+    }
+
+    /**
+     * 消息数超过上限时丢弃最早的消息
+     */
+    private void trimOverflow() {
+        while (pending.size() > MAX_PENDING) {
+            Entry oldest = pending.values().iterator().next();
+            Logger.w("webhook发件箱已满，丢弃最早的消息: " + oldest.label());
+            drop(oldest);
+        }
+    }
+
+    private void updateGauges() {
+        depth.set(pending.size());
+        oldestCreatedAt.set(pending.isEmpty() ? 0 : pending.values().iterator().next().createdAt);
+    }
+
+    // ---------------- 持久化 ----------------
+
+    /**
+     * 重放发件箱文件，恢复未确认的消息，截断末尾不完整的记录
+     */
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                byte[] payload = readRecord(in);
+                if (payload == null) {
+                    break;
+                }
+                validLength += 8 + payload.length;
+                applyRecord(payload);
+            }
+        } catch (IOException e) {
+            Logger.e("读取webhook发件箱失败", e);
+        }
+        if (validLength < file.length()) {
+            Logger.w("webhook发件箱末尾记录不完整，已截断");
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            } catch (IOException e) {
+                Logger.e("截断webhook发件箱失败", e);
+            }
+        }
+        updateGauges();
+        if (!pending.isEmpty()) {
+            Logger.i("webhook发件箱恢复未发送消息: " + pending.size() + "条");
+        }
+    }
+
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length <= 0 || length > 1024 * 1024) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        try {
+            in.readFully(payload);
+            int crc = in.readInt();
+            return crc == crc(payload) ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private void applyRecord(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        String id = in.readUTF();
+        if (type == RECORD_ENQUEUE) {
+            String url = in.readUTF();
+            long createdAt = in.readLong();
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            pending.put(id, new Entry(id, url, createdAt, body));
+        } else if (type == RECORD_ACK) {
+            pending.remove(id);
+            ackedSinceCompact++;
+        }
+    }
+
+    private void appendEnqueue(Entry entry) throws IOException {
+        appendRecord(encodeEnqueue(entry), true);
+    }
+
+    private void appendAck(String id) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeByte(RECORD_ACK);
+        payload.writeUTF(id);
+        // 确认记录丢失只会导致重复发送一次，不需要同步到磁盘
+        appendRecord(bytes.toByteArray(), false);
+    }
+
+    private void appendRecord(byte[] payload, boolean sync) throws IOException {
+        if (out == null) {
+            out = new FileOutputStream(file, true);
+        }
+        writeRecord(out, payload);
+        if (sync) {
+            out.getFD().sync();
+        }
+    }
+
+    private static byte[] encodeEnqueue(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + entry.body.length);
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeByte(RECORD_ENQUEUE);
+        payload.writeUTF(entry.id);
+        payload.writeUTF(entry.url);
+        payload.writeLong(entry.createdAt);
+        payload.writeInt(entry.body.length);
+        payload.write(entry.body);
+        return bytes.toByteArray();
+    }
+
+    private static void writeRecord(OutputStream os, byte[] payload) throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream(payload.length + 8);
+        DataOutputStream data = new DataOutputStream(record);
+        data.writeInt(payload.length);
+        data.write(payload);
+        data.writeInt(crc(payload));
+        record.writeTo(os);
+    }
+
+    /**
+     * 已确认的记录较多时重写文件，只保留未确认的消息
+     */
+    private void maybeCompact() {
+        if (ackedSinceCompact < 32 || (file.length() < COMPACT_THRESHOLD_BYTES && !pending.isEmpty())) {
+            return;
+        }
+        closeOut();
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            for (Entry entry : pending.values()) {
+                writeRecord(fos, encodeEnqueue(entry));
+            }
+            fos.getFD().sync();
+        } catch (IOException e) {
+            Logger.e("压缩webhook发件箱失败", e);
+            tmp.delete();
+            return;
+        }
+        if (tmp.renameTo(file)) {
+            ackedSinceCompact = 0;
+        } else {
+            Logger.e("重命名webhook发件箱失败");
+            tmp.delete();
+        }
+    }
+
+    private void closeOut() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                // 忽略
+            }
+            out = null;
+        }
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    // ---------------- 统计 ----------------
+
+    /**
+     * 获取未送达的消息数
+     */
+    public long getDepth() {
+        return depth.get();
+    }
+
+    /**
+     * 获取最早一条未送达消息的等待时间（毫秒），没有消息时返回0
+     */
+    public long getOldestAgeMs() {
+        long createdAt = oldestCreatedAt.get();
+        return createdAt == 0 ? 0 : System.currentTimeMillis() - createdAt;
+    }
+
+    /**
+     * 获取统计摘要
+     */
+    public String getStatsSummary() {
+        return "webhook发件箱: 待发送" + getDepth() + "条，最早等待" + (getOldestAgeMs() / 1000) + "秒" +
+                "，已送达" + deliveredCount.get() + "，重试" + retryCount.get() + "，放弃" + droppedCount.get();
+    }
+
+    private static final class Entry {
+        final String id;
+        final String url;
+        final long createdAt;
+        final byte[] body;
+        int attempts = 0;
+        long nextAttemptAt = 0;
+        boolean inFlight = false;
+
+        Entry(String id, String url, long createdAt, byte[] body) {
+            this.id = id;
+            this.url = url;
+            this.createdAt = createdAt;
+            this.body = body;
+        }
+
+        /**
+         * 日志中使用的名称，隐藏地址中的密钥
+         */
+        String label() {
+            int separator = id.lastIndexOf('|', id.length() - url.length() - 1);
+            return (separator >= 0 ? id.substring(0, separator) : id) + "@" + WebhookSink.maskUrl(url);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.biubush.autonet4ahu.core;
+
+import com.biubush.autonet4ahu.util.JsonBuffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Webhook通知通道，向一个地址POST JSON消息
+ * <p>
+ * 根据地址的主机名识别企业微信、钉钉和飞书机器人，使用对应的默认模板并按各自的结果字段判断是否成功，
+ * 其他地址按通用JSON处理，以HTTP状态码判断结果。
+ * <p>
+ * 超时时间按机器人类型设置：公共机器人接口应答很快，超时较短；通用地址多为自建服务，读取超时放宽。
+ */
+public class WebhookSink implements NotificationSink {
+    static final long NO_RESULT_CODE = Long.MIN_VALUE;
+    private static final ThreadLocal<byte[]> SCAN_BUFFER = ThreadLocal.withInitial(() -> new byte[512]);
+
+    /**
+     * 机器人类型
+     */
+    public enum Flavor {
+        WECOM(PayloadTemplate.DEFAULT_WECOM_TEXT, "errcode", 3000, 5000),
+        DINGTALK(PayloadTemplate.DEFAULT_WECOM_TEXT, "errcode", 3000, 5000),
+        FEISHU(PayloadTemplate.DEFAULT_FEISHU_TEXT, "code", 3000, 5000),
+        GENERIC(PayloadTemplate.DEFAULT_GENERIC_JSON, null, 5000, 10000);
+
+        private final String defaultTemplate;
+        private final byte[] resultKey;       // 响应中表示结果的字段，带引号；为null时只看HTTP状态码
+        private final int connectTimeoutMs;
+        private final int readTimeoutMs;
+        private volatile PayloadTemplate compiled;
+
+        Flavor(String defaultTemplate, String resultKey, int connectTimeoutMs, int readTimeoutMs) {
+            this.defaultTemplate = defaultTemplate;
+            this.resultKey = resultKey != null ? ("\"" + resultKey + "\"").getBytes(StandardCharsets.US_ASCII) : null;
+            this.connectTimeoutMs = connectTimeoutMs;
+            this.readTimeoutMs = readTimeoutMs;
+        }
+
+        public int getConnectTimeoutMs() {
+            return connectTimeoutMs;
+        }
+
+        public int getReadTimeoutMs() {
+            return readTimeoutMs;
+        }
+
+        /**
+         * 获取编译后的默认模板
+         */
+        public PayloadTemplate getDefaultTemplate() {
+            PayloadTemplate template = compiled;
+            if (template == null) {
+                template = PayloadTemplate.compile(defaultTemplate);
+                compiled = template;
+            }
+            return template;
+        }
+
+        /**
+         * 根据地址识别机器人类型
+         */
+        public static Flavor detect(String url) {
+            String host;
+            try {
+                host = new URL(url).getHost().toLowerCase(Locale.ROOT);
+            } catch (Exception e) {
+                return GENERIC;
+            }
+            if (host.equals("qyapi.weixin.qq.com")) {
+                return WECOM;
+            }
+            if (host.equals("oapi.dingtalk.com")) {
+                return DINGTALK;
+            }
+            if (host.equals("open.feishu.cn") || host.equals("open.larksuite.com")) {
+                return FEISHU;
+            }
+            return GENERIC;
+        }
+    }
+
+    private final String url;
+    private final String label;
+    private final Flavor flavor;
+    private final PayloadTemplate template;
+
+    /**
+     * 构造函数
+     *
+     * @param url webhook地址
+     * @param template 消息模板，为null时使用机器人类型的默认模板
+     */
+    public WebhookSink(String url, PayloadTemplate template) {
+        this.url = url.trim();
+        this.label = maskUrl(this.url);
+        this.flavor = Flavor.detect(this.url);
+        this.template = template != null ? template : flavor.getDefaultTemplate();
+    }
+
+    public Flavor getFlavor() {
+        return flavor;
+    }
+
+    @Override
+    public String getId() {
+        return url;
+    }
+
+    @Override
+    public String getLabel() {
+        return label;
+    }
+
+    @Override
+    public boolean isDurable() {
+        return true;
+    }
+
+    @Override
+    public void format(NotificationEvent event, JsonBuffer out) {
+        template.render(out, event.getValues());
+    }
+
+    @Override
+    public void send(byte[] payload) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(payload.length);
+            connection.setConnectTimeout(flavor.getConnectTimeoutMs());
+            connection.setReadTimeout(flavor.getReadTimeoutMs());
+
+            try (OutputStream os = connection.getOutputStream()) {
+                os.write(payload);
+            }
+
+            int responseCode = connection.getResponseCode();
+            if (responseCode < 200 || responseCode >= 300) {
+                throw new IOException("HTTP状态码: " + responseCode);
+            }
+            if (flavor.resultKey != null) {
+                // 机器人接口用结果字段表示是否成功，没有该字段时以HTTP状态码为准
+                try (InputStream is = connection.getInputStream()) {
+                    long code = scanResultCode(is, flavor.resultKey);
+                    if (code != NO_RESULT_CODE && code != 0) {
+                        throw new IOException(new String(flavor.resultKey, StandardCharsets.US_ASCII) + "=" + code);
+                    }
+                }
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * 流式扫描响应中的整数结果字段，不缓存整个响应也不解析JSON
+     *
+     * @param is 响应流，读到结尾
+     * @param key 字段名，带引号
+     * @return 字段的值，没有该字段时返回{@link #NO_RESULT_CODE}
+     */
+    static long scanResultCode(InputStream is, byte[] key) throws IOException {
+        byte[] buffer = SCAN_BUFFER.get();
+        int matched = 0;          // 已匹配的键字节数
+        int state = 0;            // 0: 查找键 1: 等待冒号 2: 等待数字 3: 读取数字
+        boolean negative = false;
+        long value = 0;
+        int n;
+        while ((n = is.read(buffer)) > 0) {
+            for (int i = 0; i < n; i++) {
+                byte b = buffer[i];
+                switch (state) {
+                    case 0:
+                        if (b == key[matched]) {
+                            if (++matched == key.length) {
+                                state = 1;
+                            }
+                        } else {
+                            matched = b == key[0] ? 1 : 0;
+                        }
+                        break;
+                    case 1:
+                        if (b == ':') {
+                            state = 2;
+                        } else if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                            state = 0;
+                            matched = 0;
+                        }
+                        break;
+                    case 2:
+                        if (b == '-') {
+                            negative = true;
+                            state = 3;
+                        } else if (b >= '0' && b <= '9') {
+                            value = b - '0';
+                            state = 3;
+                        } else if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                            return NO_RESULT_CODE;
+                        }
+                        break;
+                    default:
+                        if (b >= '0' && b <= '9') {
+                            value = value * 10 + (b - '0');
+                        } else {
+                            drain(is, buffer);
+                            return negative ? -value : value;
+                        }
+                        break;
+                }
+            }
+        }
+        return state == 3 ? (negative ? -value : value) : NO_RESULT_CODE;
+    }
+
+    private static void drain(InputStream is, byte[] buffer) throws IOException {
+        // 读完响应以便复用连接
+        while (is.read(buffer) > 0) {
+            // 丢弃
+        }
+    }
+
+    /**
+     * 隐藏webhook地址中的密钥，只保留主机名和末尾几位，用于日志输出
+     */
+    static String maskUrl(String url) {
+        try {
+            URL parsed = new URL(url);
+            String tail = url.length() > 4 ? url.substring(url.length() - 4) : "";
+            return parsed.getHost() + "…" + tail;
+        } catch (Exception e) {
+            return "***";
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.biubush.autonet4ahu.model;
+
+/**
+ * 校园网账号，用于账号池中的备用账号
+ * <p>
+ * 配置快照中的账号不含密码明文，只标记密码已保存；界面保存时密码留空也用该标记表示沿用原密码。
+ */
+public class Account {
+    private final String studentId;         // 学号
+    private final String password;          // 密码
+    private final boolean passwordStored;   // 没有密码明文时，密码是否已保存
+
+    public Account(String studentId, String password) {
+        this(studentId, password, false);
+    }
+
+    private Account(String studentId, String password, boolean passwordStored) {
+        this.studentId = studentId != null ? studentId : "";
+        this.password = password != null ? password : "";
+        this.passwordStored = passwordStored;
+    }
+
+    /**
+     * 创建沿用已保存密码的账号
+     *
+     * @param studentId 学号
+     */
+    public static Account stored(String studentId) {
+        return new Account(studentId, null, true);
+    }
+
+    public String getStudentId() {
+        return studentId;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * 密码是否已保存，有密码明文时同样为true
+     */
+    public boolean isPasswordStored() {
+        return passwordStored || !password.isEmpty();
+    }
+
+    /**
+     * 账号是否完整（学号不为空，且有密码或密码已保存）
+     */
+    public boolean isComplete() {
+        return !studentId.isEmpty() && isPasswordStored();
+    }
+
+    /**
+     * 去掉密码明文，只保留密码已保存的标记
+     */
+    public Account withoutPassword() {
+        return password.isEmpty() ? this : stored(studentId);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Account)) {
+            return false;
+        }
+        Account other = (Account) o;
+        return studentId.equals(other.studentId) && password.equals(other.password)
+                && passwordStored == other.passwordStored;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * studentId.hashCode() + password.hashCode()) + (passwordStored ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return "Account{studentId='" + studentId + "'}";
+    }
+}
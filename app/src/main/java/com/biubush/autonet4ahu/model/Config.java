@@ -1,22 +1,41 @@
 package com.biubush.autonet4ahu.model;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * 配置信息类，用于存储学号、密码和企业微信webhook URL
+ * <p>
+ * 调用{@link #freeze()}后配置变为只读，可以在线程间安全共享，修改时需先通过{@link #copy()}获取副本。
+ * {@link com.biubush.autonet4ahu.util.ConfigManager}发布的快照不含主账号和备用账号的密码明文，只标记密码已保存。
  */
 public class Config {
+    public static final String DEFAULT_PORTAL_HOST = "172.16.253.3";
+
     private String studentId;       // 学号
     private String password;        // 密码
+    private boolean passwordStored; // 密码只保存在加密存储和登录凭据中，快照中不含明文
     private List<String> webhookUrls;  // 企业微信webhook URL列表
     private boolean autoLogin;      // 是否自动登录
     private boolean notifyOnSuccess; // 登录成功时是否通知
+    private String logShipUrl;      // 日志上报地址，为空表示不上报
+    private int notifyWindowSeconds; // 登录通知合并窗口（秒），0表示不合并
+    private String webhookTemplate; // webhook消息模板，为空表示使用默认模板
+    private boolean notifyToFile;   // 是否把通知记录到本地文件
+    private List<String> portalHosts;  // 认证网关地址列表，按优先顺序排列
+    private List<Account> backupAccounts;  // 备用账号，主账号不可用时按顺序尝试
+    private boolean frozen;         // 是否只读
 
     public Config() {
         this.webhookUrls = new ArrayList<>();
         this.autoLogin = true;
         this.notifyOnSuccess = true;
+        this.logShipUrl = "";
+        this.notifyWindowSeconds = 30;
+        this.webhookTemplate = "";
+        this.portalHosts = new ArrayList<>(Collections.singletonList(DEFAULT_PORTAL_HOST));
+        this.backupAccounts = new ArrayList<>();
     }
 
     public String getStudentId() {
@@ -24,6 +43,7 @@ public class Config {
     }
 
     public void setStudentId(String studentId) {
+        checkMutable();
         this.studentId = studentId;
     }
 
@@ -32,24 +52,40 @@ public class Config {
     }
 
     public void setPassword(String password) {
+        checkMutable();
         this.password = password;
     }
 
+    /**
+     * 密码是否只保存在加密存储中，{@link #getPassword()}为空时沿用已保存的密码
+     */
+    public boolean isPasswordStored() {
+        return passwordStored;
+    }
+
+    public void setPasswordStored(boolean passwordStored) {
+        checkMutable();
+        this.passwordStored = passwordStored;
+    }
+
     public List<String> getWebhookUrls() {
         return webhookUrls;
     }
 
     public void setWebhookUrls(List<String> webhookUrls) {
+        checkMutable();
         this.webhookUrls = webhookUrls != null ? webhookUrls : new ArrayList<>();
     }
 
     public void addWebhookUrl(String url) {
+        checkMutable();
         if (url != null && !url.isEmpty() && !webhookUrls.contains(url)) {
             webhookUrls.add(url);
         }
     }
 
     public void clearWebhookUrls() {
+        checkMutable();
         webhookUrls.clear();
     }
 
@@ -58,6 +94,7 @@ public class Config {
     }
 
     public void setAutoLogin(boolean autoLogin) {
+        checkMutable();
         this.autoLogin = autoLogin;
     }
 
@@ -66,14 +103,181 @@ public class Config {
     }
 
     public void setNotifyOnSuccess(boolean notifyOnSuccess) {
+        checkMutable();
         this.notifyOnSuccess = notifyOnSuccess;
     }
 
+    public String getLogShipUrl() {
+        return logShipUrl;
+    }
+
+    public void setLogShipUrl(String logShipUrl) {
+        checkMutable();
+        this.logShipUrl = logShipUrl != null ? logShipUrl : "";
+    }
+
+    public int getNotifyWindowSeconds() {
+        return notifyWindowSeconds;
+    }
+
+    public void setNotifyWindowSeconds(int notifyWindowSeconds) {
+        checkMutable();
+        this.notifyWindowSeconds = Math.max(0, notifyWindowSeconds);
+    }
+
+    public String getWebhookTemplate() {
+        return webhookTemplate;
+    }
+
+    public void setWebhookTemplate(String webhookTemplate) {
+        checkMutable();
+        this.webhookTemplate = webhookTemplate != null ? webhookTemplate : "";
+    }
+
+    public boolean isNotifyToFile() {
+        return notifyToFile;
+    }
+
+    public void setNotifyToFile(boolean notifyToFile) {
+        checkMutable();
+        this.notifyToFile = notifyToFile;
+    }
+
+    public List<String> getPortalHosts() {
+        return portalHosts;
+    }
+
+    /**
+     * 设置认证网关地址列表，为空时使用默认网关
+     */
+    public void setPortalHosts(List<String> portalHosts) {
+        checkMutable();
+        this.portalHosts = new ArrayList<>();
+        if (portalHosts != null) {
+            for (String host : portalHosts) {
+                String trimmed = host != null ? host.trim() : "";
+                if (!trimmed.isEmpty() && !this.portalHosts.contains(trimmed)) {
+                    this.portalHosts.add(trimmed);
+                }
+            }
+        }
+        if (this.portalHosts.isEmpty()) {
+            this.portalHosts.add(DEFAULT_PORTAL_HOST);
+        }
+    }
+
+    public List<Account> getBackupAccounts() {
+        return backupAccounts;
+    }
+
+    /**
+     * 设置备用账号，不完整的账号、与主账号相同的学号和重复的学号被忽略
+     */
+    public void setBackupAccounts(List<Account> backupAccounts) {
+        checkMutable();
+        this.backupAccounts = new ArrayList<>();
+        if (backupAccounts != null) {
+            for (Account account : backupAccounts) {
+                if (account != null && account.isComplete() && !account.getStudentId().equals(studentId)
+                        && findBackupAccount(account.getStudentId()) == null) {
+                    this.backupAccounts.add(account);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按学号查找备用账号
+     *
+     * @return 备用账号，没有时返回null
+     */
+    public Account findBackupAccount(String studentId) {
+        for (Account account : backupAccounts) {
+            if (account.getStudentId().equals(studentId)) {
+                return account;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取账号池，主账号在前，备用账号按配置顺序在后
+     */
+    public List<Account> getAccounts() {
+        List<Account> accounts = new ArrayList<>(backupAccounts.size() + 1);
+        accounts.add(new Account(studentId, password));
+        accounts.addAll(backupAccounts);
+        return accounts;
+    }
+
+    /**
+     * 复制一份可修改的配置
+     */
+    public Config copy() {
+        Config copy = new Config();
+        copy.studentId = studentId;
+        copy.password = password;
+        copy.passwordStored = passwordStored;
+        copy.webhookUrls = new ArrayList<>(webhookUrls);
+        copy.autoLogin = autoLogin;
+        copy.notifyOnSuccess = notifyOnSuccess;
+        copy.logShipUrl = logShipUrl;
+        copy.notifyWindowSeconds = notifyWindowSeconds;
+        copy.webhookTemplate = webhookTemplate;
+        copy.notifyToFile = notifyToFile;
+        copy.portalHosts = new ArrayList<>(portalHosts);
+        copy.backupAccounts = new ArrayList<>(backupAccounts);
+        return copy;
+    }
+
+    /**
+     * 复制一份不含密码明文的配置，登录凭据已由{@link Credentials}保存
+     */
+    public Config withoutPassword() {
+        Config copy = copy();
+        copy.passwordStored = hasPlaintextPassword() || passwordStored;
+        copy.password = null;
+        copy.backupAccounts.clear();
+        for (Account account : backupAccounts) {
+            copy.backupAccounts.add(account.withoutPassword());
+        }
+        return copy;
+    }
+
+    private boolean hasPlaintextPassword() {
+        return password != null && !password.isEmpty();
+    }
+
+    /**
+     * 将配置设为只读
+     *
+     * @return 当前对象
+     */
+    public Config freeze() {
+        if (!frozen) {
+            webhookUrls = Collections.unmodifiableList(new ArrayList<>(webhookUrls));
+            portalHosts = Collections.unmodifiableList(new ArrayList<>(portalHosts));
+            backupAccounts = Collections.unmodifiableList(new ArrayList<>(backupAccounts));
+            frozen = true;
+        }
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkMutable() {
+        if (frozen) {
+            throw new IllegalStateException("配置已只读，请先调用copy()");
+        }
+    }
+
     /**
      * 配置是否完整（至少包含学号和密码）
      */
     public boolean isComplete() {
         return studentId != null && !studentId.isEmpty() 
-                && password != null && !password.isEmpty();
+                && (hasPlaintextPassword() || passwordStored);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,100 @@
+package com.biubush.autonet4ahu.model;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * 登录凭据，保存已经URL编码好的登录参数，用完可以清零
+ * <p>
+ * 每次登录直接把编码后的参数拼接到请求中，不需要重复编码学号和密码。
+ */
+public class Credentials {
+    private final String studentId;
+    private final char[] encodedParams; // "user_account=...&user_password=..."
+    private final String fingerprint;   // 学号和密码的摘要，凭据清零后仍可用
+    private boolean wiped;
+
+    private Credentials(String studentId, char[] encodedParams, String fingerprint) {
+        this.studentId = studentId;
+        this.encodedParams = encodedParams;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * 由学号和密码创建凭据
+     *
+     * @param studentId 学号
+     * @param password 密码
+     */
+    public static Credentials of(String studentId, String password) {
+        try {
+            String encoded = "user_account=" + URLEncoder.encode(studentId != null ? studentId : "", "UTF-8") +
+                    "&user_password=" + URLEncoder.encode(password != null ? password : "", "UTF-8");
+            return new Credentials(studentId, encoded.toCharArray(), fingerprint(encoded));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String fingerprint(String encoded) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(encoded.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(16);
+            for (int i = 0; i < 8; i++) {
+                hex.append(Character.forDigit((digest[i] >> 4) & 0xF, 16)).append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String getStudentId() {
+        return studentId;
+    }
+
+    /**
+     * 获取凭据指纹，学号或密码变化时指纹随之变化，不能由指纹还原密码
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * 将编码后的登录参数追加到请求参数中
+     *
+     * @param query 请求参数
+     * @return 凭据已被清零时返回false
+     */
+    public synchronized boolean appendTo(StringBuilder query) {
+        if (wiped) {
+            return false;
+        }
+        if (query.length() > 0) {
+            query.append('&');
+        }
+        query.append(encodedParams);
+        return true;
+    }
+
+    /**
+     * 清零内存中的凭据
+     */
+    public synchronized void wipe() {
+        Arrays.fill(encodedParams, '\0');
+        wiped = true;
+    }
+
+    public synchronized boolean isWiped() {
+        return wiped;
+    }
+
+    @Override
+    public String toString() {
+        return "Credentials{studentId='" + studentId + "'}";
+    }
+}
@@ -0,0 +1,199 @@
+package com.biubush.autonet4ahu.model;
+
+import java.util.regex.Pattern;
+
+/**
+ * 日志查询条件，包含级别、时间范围和文本/正则过滤
+ */
+public class LogQuery {
+    public static final int ALL_LEVELS = 0xF;
+
+    private int levelMask;      // 级别位掩码，第n位对应级别n
+    private long fromTime;      // 起始时间（包含）
+    private long toTime;        // 结束时间（包含）
+    private String text;        // 搜索文本
+    private boolean regex;      // 是否按正则表达式匹配
+    private Pattern pattern;    // 编译后的正则
+
+    public LogQuery() {
+        this.levelMask = ALL_LEVELS;
+        this.fromTime = Long.MIN_VALUE;
+        this.toTime = Long.MAX_VALUE;
+        this.text = "";
+        this.regex = false;
+    }
+
+    public int getLevelMask() {
+        return levelMask;
+    }
+
+    public void setLevelMask(int levelMask) {
+        this.levelMask = levelMask & ALL_LEVELS;
+    }
+
+    /**
+     * 设置最低日志级别，只保留该级别及以上的记录
+     */
+    public void setMinLevel(int minLevel) {
+        setLevelMask(ALL_LEVELS & ~((1 << minLevel) - 1));
+    }
+
+    public long getFromTime() {
+        return fromTime;
+    }
+
+    public long getToTime() {
+        return toTime;
+    }
+
+    public void setTimeRange(long fromTime, long toTime) {
+        this.fromTime = fromTime;
+        this.toTime = toTime;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * 设置搜索文本
+     *
+     * @param text 搜索文本
+     * @param regex 是否按正则表达式匹配
+     * @throws java.util.regex.PatternSyntaxException 正则表达式无效时抛出
+     */
+    public void setText(String text, boolean regex) {
+        this.text = text != null ? text : "";
+        this.regex = regex;
+        this.pattern = regex && !this.text.isEmpty() ? Pattern.compile(this.text) : null;
+    }
+
+    public boolean isRegex() {
+        return regex;
+    }
+
+    public boolean hasText() {
+        return !text.isEmpty();
+    }
+
+    public boolean hasTimeRange() {
+        return fromTime != Long.MIN_VALUE || toTime != Long.MAX_VALUE;
+    }
+
+    /**
+     * 是否没有任何过滤条件
+     */
+    public boolean isEmpty() {
+        return levelMask == ALL_LEVELS && !hasTimeRange() && !hasText();
+    }
+
+    public boolean matchesLevel(int level) {
+        return (levelMask & (1 << level)) != 0;
+    }
+
+    public boolean matchesTime(long timestamp) {
+        return timestamp >= fromTime && timestamp <= toTime;
+    }
+
+    /**
+     * 文本条件是否匹配，只匹配日志内容，不含时间戳和级别
+     *
+     * @param message 日志内容
+     */
+    public boolean matchesText(String message) {
+        if (!hasText()) {
+            return true;
+        }
+        return pattern != null ? pattern.matcher(message).find() : message.contains(text);
+    }
+
+    /**
+     * 获取匹配时必须出现的字面文本，用于索引剪枝
+     * <p>
+     * 正则表达式只处理字面字符、转义的标点、.、^、$、字符类转义和作用于单个字符的量词，
+     * 取其中最长的一段必然出现的字面片段；含有分组、分支、字符集合、内联标志等其他结构时无法确定，
+     * 此时返回null，由调用方逐条匹配，宁可多读也不能漏掉命中的记录。
+     *
+     * @return 字面文本，无法确定时返回null
+     */
+    public String requiredLiteral() {
+        if (!hasText()) {
+            return null;
+        }
+        if (!regex) {
+            return text;
+        }
+        String longest = "";
+        StringBuilder run = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                if (++i >= text.length()) {
+                    return null;
+                }
+                char escaped = text.charAt(i);
+                if (!Character.isLetterOrDigit(escaped)) {
+                    // 转义的标点就是字面字符
+                    run.append(escaped);
+                    continue;
+                }
+                if ("dDwWsSbB".indexOf(escaped) < 0) {
+                    // \Q、\p{}、\x、反向引用等不做处理
+                    return null;
+                }
+            } else if (c == '?' || c == '*' || c == '{') {
+                // 前一个字符可以不出现
+                dropLastChar(run);
+                if (c == '{') {
+                    int close = text.indexOf('}', i + 1);
+                    if (close < 0) {
+                        return null;
+                    }
+                    i = close;
+                }
+            } else if (c == '+') {
+                // 前一个字符至少出现一次，但后面的字面文本不一定紧跟在它后面
+                if (run.length() > longest.length()) {
+                    longest = run.toString();
+                }
+                run.setLength(0);
+                continue;
+            } else if (c == '(' || c == ')' || c == '|' || c == '[' || c == ']') {
+                return null;
+            } else if (c != '.' && c != '^' && c != '$') {
+                run.append(c);
+                continue;
+            }
+            if (run.length() > longest.length()) {
+                longest = run.toString();
+            }
+            run.setLength(0);
+        }
+        if (run.length() > longest.length()) {
+            longest = run.toString();
+        }
+        return longest.isEmpty() ? null : longest;
+    }
+
+    /**
+     * 去掉片段末尾的一个字符，补充平面字符的两个代理项一起去掉
+     */
+    private static void dropLastChar(StringBuilder run) {
+        int length = run.length();
+        if (length == 0) {
+            return;
+        }
+        if (length >= 2 && Character.isLowSurrogate(run.charAt(length - 1))
+                && Character.isHighSurrogate(run.charAt(length - 2))) {
+            run.setLength(length - 2);
+        } else {
+            run.setLength(length - 1);
+        }
+    }
+
+    public boolean matches(LogRecord record) {
+        return matchesLevel(record.getLevel())
+                && matchesTime(record.getTimestamp())
+                && matchesText(record.getMessage());
+    }
+}
@@ -0,0 +1,106 @@
+package com.biubush.autonet4ahu.model;
+
+/**
+ * 日志记录类，对应持久化日志中的一条记录
+ */
+public class LogRecord {
+    public static final int LEVEL_DEBUG = 0;
+    public static final int LEVEL_INFO = 1;
+    public static final int LEVEL_WARN = 2;
+    public static final int LEVEL_ERROR = 3;
+
+    private final long seq;         // 全局递增序号
+    private final long timestamp;   // 记录时间戳
+    private final int level;        // 日志级别
+    private final String line;      // 格式化后的日志行
+    private final int repeatCount;  // 连续重复次数
+
+    public LogRecord(long seq, long timestamp, int level, String line) {
+        this(seq, timestamp, level, line, 1);
+    }
+
+    public LogRecord(long seq, long timestamp, int level, String line, int repeatCount) {
+        this.seq = seq;
+        this.timestamp = timestamp;
+        this.level = level;
+        this.line = line;
+        this.repeatCount = Math.max(1, repeatCount);
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public String getLine() {
+        return line;
+    }
+
+    /**
+     * 获取日志内容，即日志行中时间戳和级别之后的部分
+     */
+    public String getMessage() {
+        return messageOf(line);
+    }
+
+    public int getRepeatCount() {
+        return repeatCount;
+    }
+
+    /**
+     * 从格式化后的日志行中取出日志内容
+     *
+     * @param line 格式为“时间戳 [级别] 内容”的日志行
+     * @return 日志内容，格式不符时返回整行
+     */
+    public static String messageOf(String line) {
+        int end = line.indexOf("] ");
+        return end >= 0 ? line.substring(end + 2) : line;
+    }
+
+    /**
+     * 日志级别名称转换为级别编号
+     */
+    public static int levelOf(String levelName) {
+        switch (levelName) {
+            case "DEBUG":
+                return LEVEL_DEBUG;
+            case "WARN":
+                return LEVEL_WARN;
+            case "ERROR":
+                return LEVEL_ERROR;
+            case "INFO":
+            default:
+                return LEVEL_INFO;
+        }
+    }
+
+    /**
+     * 级别编号转换为级别名称
+     */
+    public static String levelName(int level) {
+        switch (level) {
+            case LEVEL_DEBUG:
+                return "DEBUG";
+            case LEVEL_WARN:
+                return "WARN";
+            case LEVEL_ERROR:
+                return "ERROR";
+            case LEVEL_INFO:
+            default:
+                return "INFO";
+        }
+    }
+
+    @Override
+    public String toString() {
+        return line;
+    }
+}
@@ -19,8 +19,7 @@ public class BootCompleteReceiver extends BroadcastReceiver {
             Logger.i("设备启动完成，准备启动登录服务");
             
             // 检查配置是否完整
-            ConfigManager configManager = new ConfigManager(context);
-            if (configManager.isConfigComplete()) {
+            if (ConfigManager.getConfig(context).isComplete()) {
                 // 启动登录服务
                 startLoginService(context);
             } else {
@@ -10,6 +10,7 @@ import android.net.wifi.WifiManager;
 import android.os.Build;
 
 import com.biubush.autonet4ahu.core.NetworkDetector;
+import com.biubush.autonet4ahu.core.WebhookOutbox;
 import com.biubush.autonet4ahu.model.Config;
 import com.biubush.autonet4ahu.service.LoginService;
 import com.biubush.autonet4ahu.util.ConfigManager;
@@ -71,9 +72,11 @@ public class NetworkChangeReceiver extends BroadcastReceiver {
                 
                 // 如果需要触发登录，检查配置并启动登录服务
                 if (shouldTriggerLogin) {
+                    // 网络变化后重试未送达的webhook消息
+                    WebhookOutbox.getInstance(context).onNetworkChanged();
+                    
                     // 检查配置是否完整且自动登录开关已打开
-                    ConfigManager configManager = new ConfigManager(context);
-                    Config config = configManager.loadConfig();
+                    Config config = ConfigManager.getConfig(context);
                     
                     if (config.isComplete() && config.isAutoLogin()) {
                         // 启动登录服务
@@ -103,8 +106,7 @@ public class NetworkChangeReceiver extends BroadcastReceiver {
                     ", WiFi: " + lastWifiSSID + ", IP: " + lastIPAddress);
             
             // 检查配置是否完整且自动登录开关已打开
-            ConfigManager configManager = new ConfigManager(context);
-            Config config = configManager.loadConfig();
+            Config config = ConfigManager.getConfig(context);
             
             if (config.isComplete() && config.isAutoLogin()) {
                 // 启动登录服务
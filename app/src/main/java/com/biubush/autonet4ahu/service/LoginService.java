@@ -3,35 +3,137 @@ package com.biubush.autonet4ahu.service;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
+import android.net.Network;
+import android.os.Binder;
 import android.os.IBinder;
 
 import androidx.annotation.Nullable;
 
+import com.biubush.autonet4ahu.core.AccountPool;
+import com.biubush.autonet4ahu.core.ConnectivityValidator;
 import com.biubush.autonet4ahu.core.EPortal;
+import com.biubush.autonet4ahu.core.HttpPortalTransport;
+import com.biubush.autonet4ahu.core.LoginMetrics;
 import com.biubush.autonet4ahu.core.NetworkDetector;
 import com.biubush.autonet4ahu.core.NetworkMonitor;
 import com.biubush.autonet4ahu.core.Notifier;
+import com.biubush.autonet4ahu.core.PortalEndpoints;
+import com.biubush.autonet4ahu.core.PortalProfileDiscovery;
+import com.biubush.autonet4ahu.core.SessionStore;
+import com.biubush.autonet4ahu.core.WebhookOutbox;
 import com.biubush.autonet4ahu.model.Config;
+import com.biubush.autonet4ahu.model.Credentials;
 import com.biubush.autonet4ahu.model.LoginResult;
 import com.biubush.autonet4ahu.util.ConfigManager;
+import com.biubush.autonet4ahu.util.LogShipper;
 import com.biubush.autonet4ahu.util.Logger;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 登录服务，实现后台自动登录功能
+ * <p>
+ * 界面通过{@link LocalBinder}绑定服务后调用{@link #login()}手动登录，与自动登录共用同一套登录流程。
+ * 同一时间只执行一次登录，登录进行中再次请求时直接返回进行中的结果。
+ * 未开启自动登录时服务只被绑定，界面解除绑定后服务会被销毁；手动登录期间服务以启动状态运行，登录完成后再停止，
+ * 用户离开界面不会中断进行中的登录。
  */
-public class LoginService extends Service {
+public class LoginService extends Service implements ConfigManager.OnConfigChangeListener {
     private static final int FOREGROUND_SERVICE_ID = 1001;
+    private static final String PORTAL_PROFILE_FILE = "portal_profile.bin";
+    private static final String ACTION_HOLD_FOR_LOGIN = "com.biubush.autonet4ahu.action.HOLD_FOR_LOGIN";
+    private static final long VALIDATE_DEADLINE_MS = 5000;   // 登录后确认联网的期限
     
     private ConfigManager configManager;
     private NetworkDetector networkDetector;
     private NetworkMonitor networkMonitor;
     private Notifier notifier;
+    private EPortal ePortal;
+    private HttpPortalTransport portalTransport;
+    private ConnectivityValidator connectivityValidator;
+    private SessionStore sessionStore;
+    private final AccountPool accountPool = new AccountPool();
+    // 已应用的网关地址和账号指纹，配置变更时据此判断是否真的改动了账号或网关
+    private volatile List<String> appliedPortalHosts;
+    private volatile List<String> appliedAccountFingerprints;
     private ExecutorService executorService;
     private boolean isRunning = false;
     
+    private final LocalBinder binder = new LocalBinder();
+    private final Object loginLock = new Object();
+    private final CopyOnWriteArrayList<LoginResultListener> resultListeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong loginCount = new AtomicLong();
+    private final AtomicLong joinedCount = new AtomicLong();
+    private CompletableFuture<LoginResult> inFlight;   // 受loginLock保护
+    private boolean monitoringStarted;                 // 是否已按自动登录启动，受loginLock保护
+    private int holdStartId = -1;                      // 手动登录期间的启动ID，受loginLock保护
+    private volatile Status status = new Status(false, null, 0);
+    
+    /**
+     * 本地绑定接口，返回服务实例
+     */
+    public class LocalBinder extends Binder {
+        public LoginService getService() {
+            return LoginService.this;
+        }
+    }
+    
+    /**
+     * 登录结果监听器
+     */
+    public interface LoginResultListener {
+        /**
+         * 每次登录完成时在登录线程中调用
+         *
+         * @param result 登录结果
+         */
+        void onLoginResult(LoginResult result);
+    }
+    
+    /**
+     * 登录状态快照
+     */
+    public static final class Status {
+        private final boolean loggingIn;
+        private final LoginResult lastResult;
+        private final long lastLoginAt;
+        
+        Status(boolean loggingIn, LoginResult lastResult, long lastLoginAt) {
+            this.loggingIn = loggingIn;
+            this.lastResult = lastResult;
+            this.lastLoginAt = lastLoginAt;
+        }
+        
+        /**
+         * 是否正在登录
+         */
+        public boolean isLoggingIn() {
+            return loggingIn;
+        }
+        
+        /**
+         * 获取最近一次登录结果，从未登录过时返回null
+         */
+        public LoginResult getLastResult() {
+            return lastResult;
+        }
+        
+        /**
+         * 获取最近一次登录完成的时间
+         */
+        public long getLastLoginAt() {
+            return lastLoginAt;
+        }
+    }
+    
     /**
      * 静态启动方法，便于从各处调用
      *
@@ -67,34 +169,80 @@ public class LoginService extends Service {
         // 初始化网络监控器
         networkMonitor = new NetworkMonitor(this);
         
+        // 登录会话在服务生命周期内复用
+        List<String> portalHosts = ConfigManager.getConfig(this).getPortalHosts();
+        portalTransport = new HttpPortalTransport(networkMonitor::getWifiNetwork);
+        portalTransport.setPortalHosts(portalHosts);
+        PortalEndpoints endpoints = new PortalEndpoints(portalTransport, portalHosts);
+        ePortal = new EPortal(networkDetector, endpoints, new PortalProfileDiscovery(endpoints,
+                PortalProfileDiscovery.DEFAULT_TTL_MS, new File(getFilesDir(), PORTAL_PROFILE_FILE)));
+        appliedPortalHosts = portalHosts;
+        appliedAccountFingerprints = fingerprintsOf(ConfigManager.getCredentialPool(this));
+        connectivityValidator = new ConnectivityValidator(portalTransport);
+        
+        // 恢复上一次进程中的会话，IP变化时可以注销旧会话
+        sessionStore = SessionStore.getInstance(this);
+        SessionStore.Session session = sessionStore.get();
+        if (session != null && session.isOnline()) {
+            ePortal.restoreSession(session.getIpAddress(), session.getLoginAt());
+            Logger.d("已恢复会话记录: " + session);
+        }
+        
+        // WiFi出现时预先建立到网关的连接
+        networkMonitor.setWifiNetworkListener(new NetworkMonitor.WifiNetworkListener() {
+            @Override
+            public void onWifiNetworkAvailable(Network network) {
+                portalTransport.prewarm(network);
+            }
+            
+            @Override
+            public void onWifiNetworkLost() {
+                portalTransport.clearPrewarmed();
+            }
+        });
+        
         // 初始化线程池
-        executorService = Executors.newSingleThreadExecutor();
+        executorService = Executors.newSingleThreadExecutor(r -> new Thread(r, "LoginService"));
+        
+        // 初始化通知器，仅绑定未启动时也需要发送通知
+        Config config = ConfigManager.getConfig(this);
+        notifier = new Notifier(this, config.getWebhookUrls(), config.isNotifyOnSuccess());
+        ConfigManager.addOnConfigChangeListener(notifier);
+        ConfigManager.addOnConfigChangeListener(this);
         
         isRunning = true;
     }
     
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
+        if (intent != null && ACTION_HOLD_FOR_LOGIN.equals(intent.getAction())) {
+            return holdForLogin(startId);
+        }
         Logger.i("LoginService启动");
+        synchronized (loginLock) {
+            monitoringStarted = true;
+            holdStartId = -1;
+        }
         
         // 加载配置
         Config config = configManager.loadConfig();
         
-        // 初始化通知器
-        notifier = new Notifier(this, config.getWebhookUrls(), config.isNotifyOnSuccess());
-        
         // 启动前台服务
         startForeground(FOREGROUND_SERVICE_ID, notifier.createForegroundNotification());
         
         // 启动网络监控
         networkMonitor.startMonitoring();
         
+        // 按配置启动或停止日志上报
+        LogShipper.getInstance(this).start(config.getLogShipUrl());
+        
         // 如果配置了自动登录，检查网络连接状态，连接成功则执行登录操作
         if (config.isAutoLogin() && config.isComplete()) {
             // 检查网络是否连接
             if (networkDetector.isNetworkConnected()) {
                 Logger.i("检测到网络已连接，执行自动登录");
-                handleLogin(config);
+                // 服务重启或网络事件触发，网络未变化时沿用已有会话
+                startLogin(true);
             } else {
                 Logger.w("网络未连接，等待网络连接后自动登录");
             }
@@ -110,11 +258,29 @@ public class LoginService extends Service {
     public void onDestroy() {
         Logger.i("LoginService销毁");
         isRunning = false;
+        resultListeners.clear();
+        
+        // 取消配置变更监听
+        ConfigManager.removeOnConfigChangeListener(this);
+        if (notifier != null) {
+            ConfigManager.removeOnConfigChangeListener(notifier);
+        }
         
         // 停止网络监控
         if (networkMonitor != null) {
+            networkMonitor.setWifiNetworkListener(null);
             networkMonitor.stopMonitoring();
         }
+        if (portalTransport != null) {
+            portalTransport.clearPrewarmed();
+        }
+        if (connectivityValidator != null) {
+            connectivityValidator.shutdown();
+        }
+        if (ePortal != null) {
+            ePortal.getProfileDiscovery().shutdown();
+            ePortal.getEndpoints().shutdown();
+        }
         
         // 关闭线程池
         if (executorService != null && !executorService.isShutdown()) {
@@ -124,63 +290,270 @@ public class LoginService extends Service {
         super.onDestroy();
     }
     
+    @Override
+    public void onConfigChanged(Config config) {
+        LogShipper.getInstance(this).start(config.getLogShipUrl());
+        
+        // 保存配置的通常是UI线程，凭据指纹计算和会话文件写入放到登录线程上，也与进行中的登录按顺序执行
+        try {
+            executorService.execute(() -> applyConfig(config));
+        } catch (RejectedExecutionException e) {
+            Logger.d("服务已停止，忽略配置变更");
+        }
+    }
+    
+    /**
+     * 应用账号和网关配置的变更，在登录线程上执行
+     */
+    private void applyConfig(Config config) {
+        // 通知开关等无关的改动不影响登录状态
+        boolean hostsChanged = !config.getPortalHosts().equals(appliedPortalHosts);
+        if (hostsChanged) {
+            appliedPortalHosts = config.getPortalHosts();
+            portalTransport.setPortalHosts(config.getPortalHosts());
+            ePortal.getEndpoints().setHosts(config.getPortalHosts());
+        }
+        List<String> fingerprints = fingerprintsOf(ConfigManager.getCredentialPool(this));
+        boolean accountsChanged = !fingerprints.equals(appliedAccountFingerprints);
+        if (accountsChanged) {
+            appliedAccountFingerprints = fingerprints;
+            // 凭据可能已更正，允许重新登录
+            ePortal.clearTerminalFailures();
+        }
+        if (hostsChanged || accountsChanged) {
+            Logger.i("账号或网关配置已变更，下次启动时重新登录");
+            sessionStore.markOffline();
+        }
+    }
+    
+    private static List<String> fingerprintsOf(List<Credentials> pool) {
+        List<String> fingerprints = new ArrayList<>(pool.size());
+        for (Credentials credentials : pool) {
+            fingerprints.add(credentials.getFingerprint());
+        }
+        return fingerprints;
+    }
+    
     @Nullable
     @Override
     public IBinder onBind(Intent intent) {
-        return null;
+        return binder;
     }
     
     /**
-     * 处理登录操作
+     * 异步登录，使用已保存的配置
+     * <p>
+     * 已有登录在进行时不会重复登录，直接返回进行中的结果。
      *
-     * @param config 配置信息
+     * @return 登录结果，在登录线程中完成
      */
-    public void handleLogin(Config config) {
-        if (!isRunning) {
-            Logger.w("服务已停止，取消登录操作");
-            return;
+    public CompletableFuture<LoginResult> login() {
+        CompletableFuture<LoginResult> future = startLogin(false);
+        if (!future.isDone()) {
+            try {
+                startService(new Intent(this, LoginService.class).setAction(ACTION_HOLD_FOR_LOGIN));
+            } catch (IllegalStateException e) {
+                // 应用已在后台时不允许启动服务，登录仍依靠绑定继续
+                Logger.w("手动登录期间无法保持服务运行: " + e.getMessage());
+            }
         }
-        
-        if (!config.isComplete()) {
-            Logger.w("配置不完整，取消登录操作");
-            return;
+        return future;
+    }
+    
+    /**
+     * 手动登录期间保持服务处于启动状态，登录已结束时立即停止
+     */
+    private int holdForLogin(int startId) {
+        synchronized (loginLock) {
+            if (monitoringStarted) {
+                return START_STICKY;
+            }
+            if (inFlight != null) {
+                holdStartId = startId;
+            } else {
+                stopSelf(startId);
+            }
+            return START_NOT_STICKY;
         }
-        
-        // 使用线程池执行登录操作，避免阻塞主线程
-        executorService.execute(() -> {
-            try {
-                // 检查网络连接
-                if (!networkDetector.isNetworkConnected()) {
-                    Logger.w("网络未连接，取消登录操作");
-                    return;
+    }
+    
+    /**
+     * 开始一次登录，已有登录在进行时返回进行中的结果
+     *
+     * @param resume 网络与持久化的会话一致且可以联网时是否跳过登录
+     */
+    private CompletableFuture<LoginResult> startLogin(boolean resume) {
+        synchronized (loginLock) {
+            if (inFlight != null) {
+                joinedCount.incrementAndGet();
+                Logger.d("登录正在进行，等待当前登录结果");
+                return inFlight;
+            }
+            CompletableFuture<LoginResult> future = new CompletableFuture<>();
+            if (!isRunning) {
+                Logger.w("服务已停止，取消登录操作");
+                future.complete(new LoginResult(false, "服务已停止"));
+                return future;
+            }
+            inFlight = future;
+            status = new Status(true, status.getLastResult(), status.getLastLoginAt());
+            executorService.execute(() -> finishLogin(future, performLogin(resume)));
+            return future;
+        }
+    }
+    
+    /**
+     * 获取当前登录状态
+     */
+    public Status status() {
+        return status;
+    }
+    
+    /**
+     * 添加登录结果监听器
+     *
+     * @param listener 监听器
+     */
+    public void addLoginResultListener(LoginResultListener listener) {
+        resultListeners.addIfAbsent(listener);
+    }
+    
+    /**
+     * 移除登录结果监听器
+     *
+     * @param listener 监听器
+     */
+    public void removeLoginResultListener(LoginResultListener listener) {
+        resultListeners.remove(listener);
+    }
+    
+    /**
+     * 获取登录次数统计
+     */
+    public String getStatsSummary() {
+        long suppressed = ePortal != null ? ePortal.getSuppressedCount() : 0;
+        long avoided = sessionStore != null ? sessionStore.getAvoidedCount() : 0;
+        return "登录" + loginCount.get() + "次，合并请求" + joinedCount.get() + "次，拦截无效登录" + suppressed +
+                "次，沿用会话免登录" + avoided + "次";
+    }
+    
+    /**
+     * 执行一次登录，在登录线程中调用
+     *
+     * @param resume 网络与持久化的会话一致且可以联网时是否跳过登录
+     * @return 登录结果，不会为null
+     */
+    private LoginResult performLogin(boolean resume) {
+        Config config = ConfigManager.getConfig(this);
+        try {
+            if (!config.isComplete()) {
+                Logger.w("配置不完整，取消登录操作");
+                return new LoginResult(false, "配置不完整");
+            }
+            
+            // 检查网络连接
+            if (!networkDetector.isNetworkConnected()) {
+                Logger.w("网络未连接，取消登录操作");
+                return new LoginResult(false, "网络未连接");
+            }
+            
+            String ssid = networkDetector.getConnectedWifiSSID();
+            String bssid = networkDetector.getConnectedWifiBSSID();
+            if (resume) {
+                String ip = networkDetector.getLocalIpAddress();
+                // 网络未变化且已在线时不访问网关，只有经WiFi的探测返回204才能确认会话仍有效
+                SessionStore.Session session = sessionStore.get();
+                if (session != null && session.isOnline() && session.matches(ssid, bssid, ip)
+                        && validateConnectivity() == ConnectivityValidator.Outcome.CONNECTED) {
+                    sessionStore.recordAvoided();
+                    Logger.i("网络未变化且已在线，沿用已有会话: " + session);
+                    LoginResult result = new LoginResult(true, "网络未变化，沿用已有会话", ip);
+                    publishResult(result, config.getStudentId());
+                    return result;
                 }
-                
-                // 获取IP地址
-                String ipAddress = networkDetector.getLocalIpAddress();
-                if (ipAddress == null || ipAddress.isEmpty() || ipAddress.startsWith("127.")) {
-                    Logger.e("获取到无效IP地址: " + (ipAddress == null || ipAddress.isEmpty() ? "空" : ipAddress) + "，取消登录操作");
-                    notifier.sendLoginResultNotification(
-                            new LoginResult(false, "无法获取有效的IP地址", "unknown"),
-                            config.getStudentId());
-                    return;
+            }
+            
+            // IP地址由EPortal在登录时获取，账号池随配置更新，未改动账号的健康状况保留
+            accountPool.update(ConfigManager.getCredentialPool(this));
+            LoginResult result = ePortal.login(accountPool);
+            loginCount.incrementAndGet();
+            // 无法经WiFi探测时保留网关的登录结果
+            if (result.isSuccess() && validateConnectivity() == ConnectivityValidator.Outcome.BLOCKED) {
+                // 网关返回成功但流量未放行，立即重新登录一次
+                Logger.w("登录成功但无法访问互联网，立即重新登录");
+                result = ePortal.login(accountPool);
+                loginCount.incrementAndGet();
+                if (result.isSuccess() && validateConnectivity() == ConnectivityValidator.Outcome.BLOCKED) {
+                    result = new LoginResult(false, "登录成功但无法访问互联网", result.getIpAddress());
                 }
-                
-                Logger.d("当前IP地址: " + ipAddress);
-                
-                // 创建ePortal实例
-                EPortal ePortal = new EPortal(config.getStudentId(), config.getPassword());
-                
-                // 执行登录
-                LoginResult result = ePortal.login();
-                Logger.i("登录结果: " + result);
-                
-                // 发送通知
-                notifier.sendLoginResultNotification(result, config.getStudentId());
-                
+            }
+            Logger.i("登录结果: " + result);
+            sessionStore.save(new SessionStore.Session(ssid, bssid, ePortal.getIpAddress(), ePortal.getLastPortalHost(),
+                    System.currentTimeMillis(), result.isSuccess()));
+            publishResult(result, ePortal.getLastStudentId());
+            return result;
+        } catch (Exception e) {
+            Logger.e("登录过程中发生异常", e);
+            return new LoginResult(false, "登录异常: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 登录结束后的统一处理：输出统计、通知日志上报和webhook发件箱联网状态、发送通知
+     * <p>
+     * 沿用已有会话时同样调用，日志上报只在这里得知已联网，跳过会导致积压的日志一直不发送。
+     *
+     * @param result 登录结果
+     * @param studentId 登录使用的学号
+     */
+    private void publishResult(LoginResult result, String studentId) {
+        Logger.d(ePortal.getMetrics().getSummary());
+        Logger.d(portalTransport.getPrewarmSummary());
+        Logger.d(ePortal.getEndpoints().getSummary());
+        Logger.d(ePortal.getProfileDiscovery().getSummary());
+        Logger.d(accountPool.getSummary());
+        LogShipper.getInstance(this).onLoginResult(result);
+        WebhookOutbox.getInstance(this).onLoginResult(result);
+        
+        // 发送通知
+        notifier.sendLoginResultNotification(result, studentId);
+    }
+    
+    /**
+     * 确认登录后可以访问互联网，并记录从登录成功到真正联网的耗时
+     *
+     * @return 验证结论，没有可用的WiFi网络时为UNKNOWN
+     */
+    private ConnectivityValidator.Outcome validateConnectivity() {
+        ConnectivityValidator.Result validation = connectivityValidator.validate(VALIDATE_DEADLINE_MS);
+        ePortal.getMetrics().record(LoginMetrics.Phase.VALIDATE, validation.isNetworkBound(), validation.getElapsedMs());
+        Logger.i("联网验证: " + validation);
+        return validation.getOutcome();
+    }
+    
+    /**
+     * 发布登录结果并结束本次登录
+     */
+    private void finishLogin(CompletableFuture<LoginResult> future, LoginResult result) {
+        synchronized (loginLock) {
+            inFlight = null;
+            status = new Status(false, result, System.currentTimeMillis());
+            if (holdStartId >= 0) {
+                // 手动登录结束，仅被绑定时服务随界面解除绑定而销毁
+                if (!monitoringStarted) {
+                    stopSelf(holdStartId);
+                }
+                holdStartId = -1;
+            }
+        }
+        for (LoginResultListener listener : resultListeners) {
+            try {
+                listener.onLoginResult(result);
             } catch (Exception e) {
-                Logger.e("登录过程中发生异常", e);
+                Logger.e("登录结果回调异常", e);
             }
-        });
+        }
+        future.complete(result);
     }
     
     /**
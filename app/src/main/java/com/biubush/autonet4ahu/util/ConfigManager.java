@@ -3,17 +3,30 @@ package com.biubush.autonet4ahu.util;
 import android.content.Context;
 import android.content.SharedPreferences;
 
+import com.biubush.autonet4ahu.model.Account;
 import com.biubush.autonet4ahu.model.Config;
+import com.biubush.autonet4ahu.model.Credentials;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 配置管理工具类，用于保存和加载配置
+ * <p>
+ * 配置保存在{@link ConfigStore}管理的二进制文件中，进程内只读取一次，之后所有读取都返回同一份只读快照；
+ * 保存配置时原子替换快照并通知已注册的{@link OnConfigChangeListener}，磁盘写入在后台完成。
+ * 旧版本保存在SharedPreferences中的配置会在首次加载时迁移。学号和密码在磁盘上加密保存，
+ * 只在进程首次加载时解密一次，登录时通过{@link #getCredentials(Context)}获取预先编码好的凭据。
+ * 发布的配置快照不含主账号密码明文，密码只保存在可清零的凭据中；保存时密码为空且标记为已保存表示沿用原密码。
  */
 public class ConfigManager {
     private static final String PREF_NAME = "autonet4ahu_config";
@@ -22,9 +35,114 @@ public class ConfigManager {
     private static final String KEY_WEBHOOK_URLS = "webhook_urls";
     private static final String KEY_AUTO_LOGIN = "auto_login";
     private static final String KEY_NOTIFY_ON_SUCCESS = "notify_on_success";
+    private static final String KEY_LOG_SHIP_URL = "log_ship_url";
+
+    private static final Object LOCK = new Object();
+    private static final List<OnConfigChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private static final AtomicLong diskLoads = new AtomicLong();
+    private static final AtomicLong loadsAvoided = new AtomicLong();
+    private static volatile Config current; // 当前配置快照，只读
+    private static volatile Credentials credentials; // 与当前快照对应的登录凭据
+    private static volatile List<Credentials> credentialPool; // 账号池的登录凭据，第一个为主账号凭据
+    private static ConfigStore store;
 
     private final Context context;
     private final SharedPreferences preferences;
+    private final ConfigStore configStore;
+
+    /**
+     * 配置变更监听器
+     */
+    public interface OnConfigChangeListener {
+        /**
+         * 配置已保存或清除，在调用saveConfig/clearConfig的线程中回调
+         *
+         * @param config 新的只读配置
+         */
+        void onConfigChanged(Config config);
+    }
+
+    /**
+     * 获取当前配置快照，已加载过时只需一次volatile读取
+     *
+     * @param context 上下文
+     * @return 只读配置，修改前需调用{@link Config#copy()}
+     */
+    public static Config getConfig(Context context) {
+        Config config = current;
+        if (config != null) {
+            loadsAvoided.incrementAndGet();
+            return config;
+        }
+        return new ConfigManager(context).loadConfig();
+    }
+
+    /**
+     * 获取当前配置对应的登录凭据，配置变更后旧凭据会被清零
+     *
+     * @param context 上下文
+     * @return 登录凭据
+     */
+    public static Credentials getCredentials(Context context) {
+        Credentials cached = credentials;
+        if (cached != null) {
+            return cached;
+        }
+        getConfig(context);
+        return credentials;
+    }
+
+    /**
+     * 获取当前配置中账号池的登录凭据，主账号在前，配置变更后旧凭据会被清零
+     *
+     * @param context 上下文
+     * @return 登录凭据列表，只读
+     */
+    public static List<Credentials> getCredentialPool(Context context) {
+        List<Credentials> cached = credentialPool;
+        if (cached != null) {
+            return cached;
+        }
+        getConfig(context);
+        return credentialPool;
+    }
+
+    /**
+     * 注册配置变更监听器
+     */
+    public static void addOnConfigChangeListener(OnConfigChangeListener listener) {
+        if (listener != null && !listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * 移除配置变更监听器
+     */
+    public static void removeOnConfigChangeListener(OnConfigChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 获取从磁盘读取配置的次数
+     */
+    public static long getDiskLoadCount() {
+        return diskLoads.get();
+    }
+
+    /**
+     * 获取因命中内存快照而省去的读取次数
+     */
+    public static long getLoadsAvoidedCount() {
+        return loadsAvoided.get();
+    }
+
+    /**
+     * 获取统计摘要
+     */
+    public static String getStatsSummary() {
+        return "配置读取: " + diskLoads.get() + "次，内存命中: " + loadsAvoided.get() + "次";
+    }
 
     /**
      * 构造函数
@@ -34,8 +152,13 @@ public class ConfigManager {
     public ConfigManager(Context context) {
         this.context = context.getApplicationContext();
         this.preferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        
-        Logger.d("ConfigManager初始化完成");
+        synchronized (LOCK) {
+            if (store == null) {
+                store = new ConfigStore(this.context.getFilesDir(),
+                        new CredentialVault(new KeystoreKeyProvider()));
+            }
+            this.configStore = store;
+        }
     }
 
     /**
@@ -50,44 +173,86 @@ public class ConfigManager {
             return false;
         }
 
-        try {
-            Logger.d("开始保存配置");
-            
-            SharedPreferences.Editor editor = preferences.edit();
-            editor.putString(KEY_STUDENT_ID, config.getStudentId());
-            editor.putString(KEY_PASSWORD, config.getPassword());
-            editor.putBoolean(KEY_AUTO_LOGIN, config.isAutoLogin());
-            editor.putBoolean(KEY_NOTIFY_ON_SUCCESS, config.isNotifyOnSuccess());
-            
-            // 将webhook URLs列表转换为JSON字符串
-            JSONArray webhookArray = new JSONArray();
-            for (String url : config.getWebhookUrls()) {
-                webhookArray.put(url);
-            }
-            editor.putString(KEY_WEBHOOK_URLS, webhookArray.toString());
-            
-            boolean success = editor.commit();
-            Logger.i("配置保存" + (success ? "成功" : "失败"));
-            return success;
-        } catch (Exception e) {
-            Logger.e("保存配置时发生异常", e);
-            return false;
+        // 内存快照立即生效，磁盘写入由后台线程完成，连续保存只写最后一次
+        // 监听器在释放LOCK后通知，其他线程读取配置时不必等待监听器中的I/O
+        Config copy = config.copy();
+        Config published;
+        synchronized (LOCK) {
+            resolveStoredPasswords(copy);
+            Config snapshot = copy.freeze();
+            configStore.save(snapshot);
+            published = replace(snapshot);
         }
+        notifyListeners(published);
+        Logger.i("配置保存成功");
+        return true;
     }
 
     /**
-     * 加载配置
+     * 加载配置，首次调用时从配置文件读取，之后返回内存中的快照
      *
-     * @return 配置对象
+     * @return 只读配置对象，修改前需调用{@link Config#copy()}
      */
     public Config loadConfig() {
+        Config config = current;
+        if (config != null) {
+            loadsAvoided.incrementAndGet();
+            return config;
+        }
+        synchronized (LOCK) {
+            if (current == null) {
+                setCurrent(readFromDisk());
+            } else {
+                loadsAvoided.incrementAndGet();
+            }
+            return current;
+        }
+    }
+
+    /**
+     * 从配置文件读取配置，配置文件不存在时从SharedPreferences迁移
+     */
+    private Config readFromDisk() {
         Logger.d("开始加载配置");
+        diskLoads.incrementAndGet();
+        long start = System.nanoTime();
+        
+        Config config = null;
+        try {
+            config = configStore.load();
+        } catch (IOException e) {
+            Logger.e("读取配置文件失败，尝试使用旧版配置", e);
+        }
         
+        if (config == null) {
+            config = readPreferences();
+            if (preferences.contains(KEY_STUDENT_ID)) {
+                Logger.i("迁移旧版配置到配置文件");
+                configStore.save(config.copy().freeze());
+            }
+        } else if (preferences.contains(KEY_STUDENT_ID)) {
+            // 配置文件已写入成功，清除旧版明文配置
+            preferences.edit().clear().apply();
+        }
+        
+        Logger.i("配置加载完成，耗时" + TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) + "微秒" +
+                "，学号：" + maskString(config.getStudentId()) + 
+                "，密码长度：" + (config.getPassword() == null ? 0 : config.getPassword().length()) + 
+                "，webhook数量：" + config.getWebhookUrls().size());
+        
+        return config.freeze();
+    }
+
+    /**
+     * 读取旧版保存在SharedPreferences中的配置
+     */
+    private Config readPreferences() {
         Config config = new Config();
         config.setStudentId(preferences.getString(KEY_STUDENT_ID, ""));
         config.setPassword(preferences.getString(KEY_PASSWORD, ""));
         config.setAutoLogin(preferences.getBoolean(KEY_AUTO_LOGIN, true));
         config.setNotifyOnSuccess(preferences.getBoolean(KEY_NOTIFY_ON_SUCCESS, true));
+        config.setLogShipUrl(preferences.getString(KEY_LOG_SHIP_URL, ""));
         
         // 解析webhook URLs
         try {
@@ -105,19 +270,158 @@ public class ConfigManager {
             config.setWebhookUrls(new ArrayList<>());
         }
         
-        Logger.i("配置加载完成，学号：" + maskString(config.getStudentId()) + 
-                "，密码长度：" + (config.getPassword() == null ? 0 : config.getPassword().length()) + 
-                "，webhook数量：" + config.getWebhookUrls().size());
-        
         return config;
     }
 
+    /**
+     * 处理沿用原密码的账号：没有可沿用的凭据（例如学号已修改）时，主账号取消“沿用原密码”标记，
+     * 备用账号被移除，调用方需持有LOCK
+     *
+     * @param config 可修改的配置
+     */
+    private static void resolveStoredPasswords(Config config) {
+        String password = config.getPassword();
+        if (config.isPasswordStored() && (password == null || password.isEmpty())) {
+            Credentials previous = credentials;
+            if (previous == null || previous.isWiped() || !previous.getStudentId().equals(config.getStudentId())) {
+                Logger.w("学号已修改但未输入密码，密码视为未设置");
+                config.setPasswordStored(false);
+            }
+        }
+        List<Account> backups = new ArrayList<>(config.getBackupAccounts().size());
+        for (Account account : config.getBackupAccounts()) {
+            if (account.getPassword().isEmpty() && findBackup(credentialPool, account.getStudentId()) == null) {
+                Logger.w("备用账号没有可沿用的密码，已忽略");
+                continue;
+            }
+            backups.add(account);
+        }
+        config.setBackupAccounts(backups);
+    }
+
+    /**
+     * 替换配置快照和登录凭据，快照中不保留密码明文，调用方需持有LOCK
+     * <p>
+     * 账号和密码未变化的凭据原样沿用，只清除被移除或修改的凭据，进行中的登录不会因无关的保存而使用已清除的凭据。
+     *
+     * @param config 配置，可以包含密码明文
+     */
+    private static void setCurrent(Config config) {
+        List<Credentials> previous = credentialPool;
+        List<Account> accounts = config.getAccounts();
+        List<Credentials> pool = new ArrayList<>(accounts.size());
+        for (int i = 0; i < accounts.size(); i++) {
+            Account account = accounts.get(i);
+            boolean stored = i == 0 ? config.isPasswordStored() : account.isPasswordStored();
+            Credentials reused = null;
+            if (account.getPassword().isEmpty() && stored) {
+                // 密码未修改，主账号沿用原主账号的凭据，备用账号沿用同一学号的凭据
+                Credentials primary = credentials;
+                reused = i > 0 ? findBackup(previous, account.getStudentId())
+                        : primary != null && !primary.isWiped() && primary.getStudentId().equals(account.getStudentId()) ? primary : null;
+            } else {
+                Credentials fresh = Credentials.of(account.getStudentId(), account.getPassword());
+                reused = findByFingerprint(previous, fresh.getFingerprint());
+                if (reused != null) {
+                    fresh.wipe();
+                } else {
+                    reused = fresh;
+                }
+            }
+            pool.add(reused != null ? reused : Credentials.of(account.getStudentId(), ""));
+        }
+        credentials = pool.get(0);
+        credentialPool = Collections.unmodifiableList(pool);
+        current = config.withoutPassword().freeze();
+        if (previous != null) {
+            for (Credentials old : previous) {
+                if (!containsSame(pool, old)) {
+                    old.wipe();
+                }
+            }
+        }
+    }
+
+    /**
+     * 在账号池的备用账号中按学号查找未清除的凭据
+     *
+     * @param pool 账号池的凭据，第一个为主账号，可以为null
+     */
+    private static Credentials findBackup(List<Credentials> pool, String studentId) {
+        if (pool == null) {
+            return null;
+        }
+        for (int i = 1; i < pool.size(); i++) {
+            Credentials item = pool.get(i);
+            if (item.getStudentId().equals(studentId) && !item.isWiped()) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    private static Credentials findByFingerprint(List<Credentials> pool, String fingerprint) {
+        if (pool == null) {
+            return null;
+        }
+        for (Credentials item : pool) {
+            if (item.getFingerprint().equals(fingerprint) && !item.isWiped()) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    private static boolean containsSame(List<Credentials> pool, Credentials target) {
+        for (Credentials item : pool) {
+            if (item == target) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 替换配置快照，调用方需持有LOCK
+     *
+     * @return 新的配置快照
+     */
+    private static Config replace(Config config) {
+        setCurrent(config);
+        return current;
+    }
+
+    /**
+     * 通知监听器配置已变更，调用方不能持有LOCK
+     *
+     * @param snapshot 变更后的配置快照
+     */
+    private static void notifyListeners(Config snapshot) {
+        if (snapshot != current) {
+            // 期间又有新的配置发布，由那次发布通知，避免监听器最后收到旧配置
+            return;
+        }
+        for (OnConfigChangeListener listener : listeners) {
+            try {
+                listener.onConfigChanged(snapshot);
+            } catch (Exception e) {
+                Logger.e("配置变更通知失败", e);
+            }
+        }
+    }
+
     /**
      * 清除配置
      */
     public void clearConfig() {
         Logger.d("正在清除配置");
         preferences.edit().clear().apply();
+        Config published;
+        synchronized (LOCK) {
+            configStore.delete();
+            published = replace(new Config().freeze());
+        }
+        notifyListeners(published);
         Logger.i("配置已清除");
     }
 
@@ -0,0 +1,405 @@
+package com.biubush.autonet4ahu.util;
+
+import com.biubush.autonet4ahu.model.Account;
+import com.biubush.autonet4ahu.model.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+
+/**
+ * 配置文件存储，使用紧凑的二进制格式保存配置
+ * <p>
+ * 文件格式：魔数(4字节) + 版本(2字节) + 若干字段 + CRC32(4字节)。
+ * 每个字段为 标签(1字节) + 长度(4字节) + 内容，读取时跳过不认识的标签，新增字段不需要升级版本。
+ * 学号和密码由{@link CredentialVault}加密后整体保存在一个字段中，旧版的明文字段仍可读取，下次保存时改为加密。
+ * 密钥丢失（例如备份恢复或重设锁屏）导致无法解密时只丢弃凭据，其余配置照常读取。
+ * 主账号和备用账号的密文在读写时保留一份，保存不含密码明文的配置时直接沿用，不需要再次取得明文。
+ * 写入由单个后台线程完成：先写临时文件并同步到磁盘，再重命名覆盖，短时间内的多次保存只写最后一次。
+ */
+public class ConfigStore {
+    private static final String FILE_NAME = "config.bin";
+
+    private static final int MAGIC = 0x414E4346; // "ANCF"
+    private static final short VERSION = 1;
+
+    static final byte TAG_STUDENT_ID = 1;           // 旧版明文，只读
+    static final byte TAG_PASSWORD = 2;             // 旧版明文，只读
+    static final byte TAG_WEBHOOK_URL = 3;          // 可重复
+    static final byte TAG_AUTO_LOGIN = 4;
+    static final byte TAG_NOTIFY_ON_SUCCESS = 5;
+    static final byte TAG_LOG_SHIP_URL = 6;
+    static final byte TAG_SEALED_CREDENTIALS = 7;
+    static final byte TAG_NOTIFY_WINDOW = 8;
+    static final byte TAG_WEBHOOK_TEMPLATE = 9;
+    static final byte TAG_NOTIFY_TO_FILE = 10;
+    static final byte TAG_PORTAL_HOST = 11;         // 可重复
+    static final byte TAG_SEALED_BACKUP_ACCOUNT = 12;   // 可重复
+
+    private final File file;
+    private final File tmpFile;
+    private final CredentialVault vault;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> new Thread(r, "ConfigWriter"));
+    private final AtomicReference<Config> pending = new AtomicReference<>();
+    private final Object sealedLock = new Object();
+    private String sealedStudentId;     // 受sealedLock保护，sealedCredentials对应的学号
+    private byte[] sealedCredentials;   // 受sealedLock保护，最近一次读写的主账号密文
+    private final Map<String, byte[]> sealedBackups = new HashMap<>();   // 受sealedLock保护，键为备用账号学号
+
+    /**
+     * 构造函数
+     *
+     * @param dir 存储目录
+     * @param vault 凭据保险箱
+     */
+    public ConfigStore(File dir, CredentialVault vault) {
+        this.file = new File(dir, FILE_NAME);
+        this.tmpFile = new File(dir, FILE_NAME + ".tmp");
+        this.vault = vault;
+    }
+
+    /**
+     * 配置文件是否存在
+     */
+    public boolean exists() {
+        return file.exists();
+    }
+
+    /**
+     * 同步读取配置文件
+     *
+     * @return 配置对象，文件不存在时返回null
+     * @throws IOException 文件损坏或读取失败
+     */
+    public Config load() throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        boolean[] plaintext = new boolean[1];
+        Config config = decode(ByteBuffer.wrap(Files.readAllBytes(file.toPath())), plaintext);
+        if (plaintext[0]) {
+            Logger.i("配置文件中的凭据为明文，重新加密保存");
+            save(config.copy().freeze());
+        }
+        return config;
+    }
+
+    /**
+     * 异步保存配置，已有未完成的写入时只替换待写入的内容
+     *
+     * @param config 只读配置
+     */
+    public void save(Config config) {
+        if (pending.getAndSet(config) == null) {
+            writer.execute(this::writePending);
+        }
+    }
+
+    /**
+     * 异步删除配置文件，排在之前的写入之后执行
+     */
+    public void delete() {
+        pending.set(null);
+        writer.execute(() -> {
+            if (file.exists() && !file.delete()) {
+                Logger.w("删除配置文件失败");
+            }
+        });
+    }
+
+    /**
+     * 等待已提交的写入完成
+     *
+     * @param timeoutMs 最长等待时间
+     * @return 是否在超时前完成
+     */
+    public boolean awaitWrites(long timeoutMs) {
+        try {
+            return writer.submit(() -> { }).get(timeoutMs, TimeUnit.MILLISECONDS) == null;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void writePending() {
+        Config config = pending.getAndSet(null);
+        if (config == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            byte[] data = encode(config);
+            try (FileOutputStream fos = new FileOutputStream(tmpFile)) {
+                fos.write(data);
+                fos.getFD().sync();
+            }
+            if (!tmpFile.renameTo(file)) {
+                throw new IOException("重命名配置文件失败");
+            }
+            Logger.d("配置已写入磁盘，" + data.length + "字节，耗时" +
+                    TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) + "微秒");
+        } catch (IOException e) {
+            Logger.e("写入配置文件失败", e);
+            tmpFile.delete();
+        }
+    }
+
+    byte[] encode(Config config) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        writeBytes(out, TAG_SEALED_CREDENTIALS, sealCredentials(config));
+        for (String url : config.getWebhookUrls()) {
+            writeString(out, TAG_WEBHOOK_URL, url);
+        }
+        writeBoolean(out, TAG_AUTO_LOGIN, config.isAutoLogin());
+        writeBoolean(out, TAG_NOTIFY_ON_SUCCESS, config.isNotifyOnSuccess());
+        writeString(out, TAG_LOG_SHIP_URL, config.getLogShipUrl());
+        writeInt(out, TAG_NOTIFY_WINDOW, config.getNotifyWindowSeconds());
+        writeString(out, TAG_WEBHOOK_TEMPLATE, config.getWebhookTemplate());
+        writeBoolean(out, TAG_NOTIFY_TO_FILE, config.isNotifyToFile());
+        for (String host : config.getPortalHosts()) {
+            writeString(out, TAG_PORTAL_HOST, host);
+        }
+        Set<String> backupIds = new HashSet<>();
+        for (Account account : config.getBackupAccounts()) {
+            byte[] sealed = sealBackup(account);
+            if (sealed != null) {
+                writeBytes(out, TAG_SEALED_BACKUP_ACCOUNT, sealed);
+                backupIds.add(account.getStudentId());
+            }
+        }
+        synchronized (sealedLock) {
+            sealedBackups.keySet().retainAll(backupIds);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray(), 0, bytes.size());
+        out.writeInt((int) crc.getValue());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 解析配置文件内容
+     *
+     * @param buffer 文件内容
+     * @param plaintext 输出参数，文件中是否包含旧版明文凭据
+     */
+    Config decode(ByteBuffer buffer, boolean[] plaintext) throws IOException {
+        int length = buffer.remaining();
+        if (length < 10 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("配置文件格式错误");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), buffer.arrayOffset(), length - 4);
+        if ((int) crc.getValue() != buffer.getInt(length - 4)) {
+            throw new IOException("配置文件校验失败");
+        }
+        buffer.position(4);
+        short version = buffer.getShort();
+        if (version > VERSION) {
+            Logger.w("配置文件版本较新: " + version + "，按已知字段读取");
+        }
+
+        Config config = new Config();
+        config.setStudentId("");
+        config.setPassword("");
+        List<String> webhookUrls = new ArrayList<>();
+        List<String> portalHosts = new ArrayList<>();
+        List<Account> backupAccounts = new ArrayList<>();
+        int end = length - 4;
+        while (buffer.position() < end) {
+            if (end - buffer.position() < 5) {
+                throw new IOException("配置文件字段截断");
+            }
+            byte tag = buffer.get();
+            int size = buffer.getInt();
+            if (size < 0 || size > end - buffer.position()) {
+                throw new IOException("配置文件字段长度错误");
+            }
+            int next = buffer.position() + size;
+            switch (tag) {
+                case TAG_STUDENT_ID:
+                    config.setStudentId(readString(buffer, size));
+                    plaintext[0] = true;
+                    break;
+                case TAG_PASSWORD:
+                    config.setPassword(readString(buffer, size));
+                    plaintext[0] = true;
+                    break;
+                case TAG_SEALED_CREDENTIALS: {
+                    byte[] sealed = new byte[size];
+                    buffer.get(sealed);
+                    String[] credentials = openQuietly(sealed);
+                    if (credentials != null) {
+                        config.setStudentId(credentials[0]);
+                        config.setPassword(credentials[1]);
+                        rememberSealed(credentials[0], sealed);
+                    } else {
+                        Logger.w("无法解密已保存的学号和密码，需要重新输入，其余配置不受影响");
+                    }
+                    break;
+                }
+                case TAG_WEBHOOK_URL:
+                    webhookUrls.add(readString(buffer, size));
+                    break;
+                case TAG_AUTO_LOGIN:
+                    config.setAutoLogin(size > 0 && buffer.get() != 0);
+                    break;
+                case TAG_NOTIFY_ON_SUCCESS:
+                    config.setNotifyOnSuccess(size > 0 && buffer.get() != 0);
+                    break;
+                case TAG_LOG_SHIP_URL:
+                    config.setLogShipUrl(readString(buffer, size));
+                    break;
+                case TAG_WEBHOOK_TEMPLATE:
+                    config.setWebhookTemplate(readString(buffer, size));
+                    break;
+                case TAG_NOTIFY_TO_FILE:
+                    config.setNotifyToFile(size > 0 && buffer.get() != 0);
+                    break;
+                case TAG_PORTAL_HOST:
+                    portalHosts.add(readString(buffer, size));
+                    break;
+                case TAG_SEALED_BACKUP_ACCOUNT: {
+                    byte[] sealed = new byte[size];
+                    buffer.get(sealed);
+                    String[] account = openQuietly(sealed);
+                    if (account != null) {
+                        backupAccounts.add(new Account(account[0], account[1]));
+                        synchronized (sealedLock) {
+                            sealedBackups.put(account[0], sealed.clone());
+                        }
+                    } else {
+                        Logger.w("无法解密备用账号，已忽略");
+                    }
+                    break;
+                }
+                case TAG_NOTIFY_WINDOW:
+                    if (size >= 4) {
+                        config.setNotifyWindowSeconds(buffer.getInt());
+                    }
+                    break;
+                default:
+                    // 未知字段，跳过
+                    break;
+            }
+            buffer.position(next);
+        }
+        config.setWebhookUrls(webhookUrls);
+        config.setPortalHosts(portalHosts);
+        config.setBackupAccounts(backupAccounts);
+        return config;
+    }
+
+    /**
+     * 加密主账号凭据，配置中没有密码明文但标记为已保存时沿用保留的密文
+     */
+    private byte[] sealCredentials(Config config) throws IOException {
+        String studentId = config.getStudentId() != null ? config.getStudentId() : "";
+        String password = config.getPassword();
+        if ((password == null || password.isEmpty()) && config.isPasswordStored()) {
+            synchronized (sealedLock) {
+                if (studentId.equals(sealedStudentId) && sealedCredentials != null) {
+                    return sealedCredentials.clone();
+                }
+            }
+            Logger.w("没有可沿用的已保存密码，按未设置密码保存");
+        }
+        byte[] sealed = vault.seal(studentId, password);
+        rememberSealed(studentId, sealed);
+        return sealed;
+    }
+
+    /**
+     * 加密备用账号，没有密码明文时沿用保留的密文
+     *
+     * @return 密文，没有可沿用的密文时返回null
+     */
+    private byte[] sealBackup(Account account) throws IOException {
+        if (account.getPassword().isEmpty()) {
+            synchronized (sealedLock) {
+                byte[] retained = sealedBackups.get(account.getStudentId());
+                if (retained != null) {
+                    return retained.clone();
+                }
+            }
+            Logger.w("备用账号没有可沿用的已保存密码，已忽略");
+            return null;
+        }
+        byte[] sealed = vault.seal(account.getStudentId(), account.getPassword());
+        synchronized (sealedLock) {
+            sealedBackups.put(account.getStudentId(), sealed.clone());
+        }
+        return sealed;
+    }
+
+    private void rememberSealed(String studentId, byte[] sealed) {
+        synchronized (sealedLock) {
+            sealedStudentId = studentId;
+            sealedCredentials = Arrays.copyOf(sealed, sealed.length);
+        }
+    }
+
+    /**
+     * 解密凭据，密钥丢失或密文损坏时返回null
+     */
+    private String[] openQuietly(byte[] sealed) {
+        try {
+            return vault.open(sealed);
+        } catch (IOException e) {
+            Logger.e("解密凭据失败", e);
+            return null;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, byte tag, String value) throws IOException {
+        byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        out.writeByte(tag);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte tag, byte[] bytes) throws IOException {
+        out.writeByte(tag);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeInt(DataOutputStream out, byte tag, int value) throws IOException {
+        out.writeByte(tag);
+        out.writeInt(4);
+        out.writeInt(value);
+    }
+
+    private static void writeBoolean(DataOutputStream out, byte tag, boolean value) throws IOException {
+        out.writeByte(tag);
+        out.writeInt(1);
+        out.writeByte(value ? 1 : 0);
+    }
+
+    private static String readString(ByteBuffer buffer, int size) {
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), size, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + size);
+        return value;
+    }
+}
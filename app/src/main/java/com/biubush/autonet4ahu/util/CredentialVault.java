@@ -0,0 +1,97 @@
+package com.biubush.autonet4ahu.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * 凭据保险箱，使用AES-GCM加密保存学号和密码
+ * <p>
+ * 密文格式：版本(1字节) + IV长度(1字节) + IV + 密文（含GCM认证标签）。
+ * 密钥由{@link KeyProvider}提供，解密只在进程加载配置时进行一次。
+ */
+public class CredentialVault {
+    private static final byte VERSION = 1;
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int TAG_BITS = 128;
+
+    private final KeyProvider keyProvider;
+
+    /**
+     * 构造函数
+     *
+     * @param keyProvider 密钥提供者
+     */
+    public CredentialVault(KeyProvider keyProvider) {
+        this.keyProvider = keyProvider;
+    }
+
+    /**
+     * 加密学号和密码
+     *
+     * @return 密文
+     * @throws IOException 加密失败
+     */
+    public byte[] seal(String studentId, String password) throws IOException {
+        ByteArrayOutputStream plain = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(plain);
+        out.writeUTF(studentId != null ? studentId : "");
+        out.writeUTF(password != null ? password : "");
+        out.flush();
+        byte[] plainBytes = plain.toByteArray();
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, keyProvider.getKey());
+            byte[] iv = cipher.getIV();
+            byte[] encrypted = cipher.doFinal(plainBytes);
+            ByteBuffer sealed = ByteBuffer.allocate(2 + iv.length + encrypted.length);
+            sealed.put(VERSION).put((byte) iv.length).put(iv).put(encrypted);
+            return sealed.array();
+        } catch (GeneralSecurityException e) {
+            throw new IOException("加密凭据失败", e);
+        } finally {
+            Arrays.fill(plainBytes, (byte) 0);
+        }
+    }
+
+    /**
+     * 解密凭据
+     *
+     * @param sealed 密文
+     * @return 长度为2的数组：学号、密码
+     * @throws IOException 密文损坏或解密失败
+     */
+    public String[] open(byte[] sealed) throws IOException {
+        if (sealed.length < 2 || sealed[0] != VERSION) {
+            throw new IOException("凭据格式错误");
+        }
+        int ivLength = sealed[1] & 0xFF;
+        // 密文至少包含完整的认证标签，否则部分实现会抛出非受检异常
+        if (sealed.length < 2 + ivLength + TAG_BITS / 8) {
+            throw new IOException("凭据格式错误");
+        }
+        byte[] plainBytes = null;
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, keyProvider.getKey(),
+                    new GCMParameterSpec(TAG_BITS, sealed, 2, ivLength));
+            plainBytes = cipher.doFinal(sealed, 2 + ivLength, sealed.length - 2 - ivLength);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(plainBytes));
+            return new String[]{in.readUTF(), in.readUTF()};
+        } catch (GeneralSecurityException e) {
+            throw new IOException("解密凭据失败", e);
+        } finally {
+            if (plainBytes != null) {
+                Arrays.fill(plainBytes, (byte) 0);
+            }
+        }
+    }
+}
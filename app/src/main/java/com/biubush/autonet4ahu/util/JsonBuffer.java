@@ -0,0 +1,151 @@
+package com.biubush.autonet4ahu.util;
+
+import java.util.Arrays;
+
+/**
+ * 可复用的UTF-8字节缓冲区，用于直接拼接JSON请求体
+ * <p>
+ * 字符串按JSON字符串内容的规则转义并直接编码为UTF-8写入，不经过中间的String或JSONObject。
+ * 不是线程安全的，每个线程使用自己的实例。
+ */
+public class JsonBuffer {
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    private byte[] bytes;
+    private int size;
+
+    public JsonBuffer(int initialCapacity) {
+        this.bytes = new byte[initialCapacity];
+    }
+
+    /**
+     * 清空内容，保留已分配的空间
+     */
+    public JsonBuffer reset() {
+        size = 0;
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 写入原样的字节
+     */
+    public JsonBuffer writeRaw(byte[] data) {
+        ensure(data.length);
+        System.arraycopy(data, 0, bytes, size, data.length);
+        size += data.length;
+        return this;
+    }
+
+    /**
+     * 写入JSON字符串内容（不含两侧引号），按需转义
+     */
+    public JsonBuffer writeEscaped(CharSequence text) {
+        int length = text.length();
+        ensure(length);
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                switch (c) {
+                    case '"':
+                        writeEscape('"');
+                        break;
+                    case '\\':
+                        writeEscape('\\');
+                        break;
+                    case '\n':
+                        writeEscape('n');
+                        break;
+                    case '\r':
+                        writeEscape('r');
+                        break;
+                    case '\t':
+                        writeEscape('t');
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            ensure(6);
+                            bytes[size++] = '\\';
+                            bytes[size++] = 'u';
+                            bytes[size++] = '0';
+                            bytes[size++] = '0';
+                            bytes[size++] = HEX[c >> 4];
+                            bytes[size++] = HEX[c & 0xF];
+                        } else {
+                            ensure(1);
+                            bytes[size++] = (byte) c;
+                        }
+                        break;
+                }
+            } else if (c < 0x800) {
+                ensure(2);
+                bytes[size++] = (byte) (0xC0 | (c >> 6));
+                bytes[size++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                ensure(4);
+                bytes[size++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[size++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // 不成对的代理字符，替换为U+FFFD
+                ensure(3);
+                bytes[size++] = (byte) 0xEF;
+                bytes[size++] = (byte) 0xBF;
+                bytes[size++] = (byte) 0xBD;
+            } else {
+                ensure(3);
+                bytes[size++] = (byte) (0xE0 | (c >> 12));
+                bytes[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[size++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 写入十进制整数
+     */
+    public JsonBuffer writeNumber(long value) {
+        ensure(20);
+        if (value < 0) {
+            bytes[size++] = '-';
+            value = -value;
+        }
+        int start = size;
+        do {
+            bytes[size++] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value > 0);
+        // 反转数字
+        for (int i = start, j = size - 1; i < j; i++, j--) {
+            byte t = bytes[i];
+            bytes[i] = bytes[j];
+            bytes[j] = t;
+        }
+        return this;
+    }
+
+    /**
+     * 复制出当前内容
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+
+    private void writeEscape(char c) {
+        ensure(2);
+        bytes[size++] = '\\';
+        bytes[size++] = (byte) c;
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+        }
+    }
+}
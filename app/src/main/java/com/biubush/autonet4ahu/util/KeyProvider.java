@@ -0,0 +1,20 @@
+package com.biubush.autonet4ahu.util;
+
+import java.security.GeneralSecurityException;
+
+import javax.crypto.SecretKey;
+
+/**
+ * 凭据加密密钥提供者
+ * <p>
+ * 正式环境使用{@link KeystoreKeyProvider}，JVM单元测试可以使用{@link SoftwareKeyProvider}。
+ */
+public interface KeyProvider {
+    /**
+     * 获取AES密钥，不存在时创建
+     *
+     * @return AES密钥
+     * @throws GeneralSecurityException 密钥创建或读取失败
+     */
+    SecretKey getKey() throws GeneralSecurityException;
+}
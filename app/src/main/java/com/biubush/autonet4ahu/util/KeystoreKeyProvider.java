@@ -0,0 +1,59 @@
+package com.biubush.autonet4ahu.util;
+
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+/**
+ * 基于Android Keystore的密钥提供者，密钥不离开系统密钥库
+ * <p>
+ * 密钥句柄在首次获取后缓存，之后的加解密不再访问密钥库。
+ */
+public class KeystoreKeyProvider implements KeyProvider {
+    private static final String KEYSTORE = "AndroidKeyStore";
+    private static final String KEY_ALIAS = "autonet4ahu_credentials";
+
+    private volatile SecretKey key;
+
+    @Override
+    public SecretKey getKey() throws GeneralSecurityException {
+        SecretKey cached = key;
+        if (cached != null) {
+            return cached;
+        }
+        synchronized (this) {
+            if (key == null) {
+                key = loadOrCreate();
+            }
+            return key;
+        }
+    }
+
+    private SecretKey loadOrCreate() throws GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance(KEYSTORE);
+        try {
+            keyStore.load(null);
+        } catch (java.io.IOException e) {
+            throw new GeneralSecurityException("加载密钥库失败", e);
+        }
+        KeyStore.Entry entry = keyStore.getEntry(KEY_ALIAS, null);
+        if (entry instanceof KeyStore.SecretKeyEntry) {
+            return ((KeyStore.SecretKeyEntry) entry).getSecretKey();
+        }
+
+        Logger.i("创建凭据加密密钥");
+        KeyGenerator generator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, KEYSTORE);
+        generator.init(new KeyGenParameterSpec.Builder(KEY_ALIAS,
+                KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                .setKeySize(256)
+                .build());
+        return generator.generateKey();
+    }
+}
@@ -0,0 +1,85 @@
+package com.biubush.autonet4ahu.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 延迟直方图，按固定的毫秒区间统计耗时分布，线程安全
+ */
+public class LatencyHistogram {
+    // 各区间的上界（毫秒），最后一个区间为超出最大上界的部分
+    private static final long[] BOUNDS = {50, 100, 200, 500, 1000, 2000, 5000, 10000};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalMs = new AtomicLong();
+    private final AtomicLong maxMs = new AtomicLong();
+
+    /**
+     * 记录一次耗时
+     *
+     * @param ms 耗时（毫秒）
+     */
+    public void record(long ms) {
+        int i = 0;
+        while (i < BOUNDS.length && ms > BOUNDS[i]) {
+            i++;
+        }
+        buckets.incrementAndGet(i);
+        count.incrementAndGet();
+        totalMs.addAndGet(ms);
+        long max;
+        while (ms > (max = maxMs.get()) && !maxMs.compareAndSet(max, ms)) {
+            // 重试直到更新成功
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMaxMs() {
+        return maxMs.get();
+    }
+
+    /**
+     * 获取平均耗时（毫秒）
+     */
+    public long getMeanMs() {
+        long n = count.get();
+        return n == 0 ? 0 : totalMs.get() / n;
+    }
+
+    /**
+     * 估算分位数，返回所在区间的上界
+     *
+     * @param quantile 分位，取值0~1
+     * @return 耗时上界（毫秒），超出最大区间时返回最大耗时
+     */
+    public long getPercentileMs(double quantile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(n * quantile);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            seen += buckets.get(i);
+            if (seen >= target) {
+                return BOUNDS[i];
+            }
+        }
+        return maxMs.get();
+    }
+
+    /**
+     * 获取摘要，例如"n=12 avg=180ms p50≤200ms p90≤500ms max=730ms"
+     */
+    public String getSummary() {
+        return "n=" + getCount() +
+                " avg=" + getMeanMs() + "ms" +
+                " p50≤" + getPercentileMs(0.5) + "ms" +
+                " p90≤" + getPercentileMs(0.9) + "ms" +
+                " max=" + getMaxMs() + "ms";
+    }
+}
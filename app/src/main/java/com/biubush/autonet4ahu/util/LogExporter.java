@@ -0,0 +1,188 @@
+package com.biubush.autonet4ahu.util;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 日志导出工具，在后台线程将持久化日志流式写出到文件
+ * <p>
+ * 导出基于{@link LogStore#snapshot()}的一致快照，不压缩时通过{@link FileChannel#transferTo}直接拷贝分段数据，
+ * 压缩时边读边写入gzip流，整个过程不需要把日志加载到内存中。
+ */
+public class LogExporter {
+    private static final long CHUNK_SIZE = 1024 * 1024;        // 每次传输1MB
+    private static final long PROGRESS_INTERVAL_MS = 100;       // 进度回调最小间隔
+    private static final ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile ExportCallback callback;
+    private volatile boolean running = false;
+
+    /**
+     * 构造函数
+     *
+     * @param context 应用上下文
+     */
+    public LogExporter(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * 获取导出目录
+     */
+    public File getExportDir() {
+        return new File(context.getExternalFilesDir(null), "logs");
+    }
+
+    /**
+     * 是否正在导出
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 开始导出
+     *
+     * @param compress 是否使用gzip压缩
+     * @param callback 进度和结果回调，在主线程执行
+     * @return 是否已开始导出，已有导出任务进行中时返回false
+     */
+    public boolean export(boolean compress, ExportCallback callback) {
+        LogStore store = Logger.getStore();
+        if (running || store == null) {
+            return false;
+        }
+        running = true;
+        this.callback = callback;
+        executorService.execute(() -> {
+            try {
+                File file = exportBlocking(store, compress);
+                mainHandler.post(() -> {
+                    running = false;
+                    ExportCallback cb = this.callback;
+                    if (cb != null) {
+                        cb.onComplete(file, file.length());
+                    }
+                });
+            } catch (IOException e) {
+                Logger.e("导出日志失败", e);
+                mainHandler.post(() -> {
+                    running = false;
+                    ExportCallback cb = this.callback;
+                    if (cb != null) {
+                        cb.onError(e);
+                    }
+                });
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 解除回调，导出任务会在后台继续完成
+     */
+    public void detach() {
+        callback = null;
+    }
+
+    private File exportBlocking(LogStore store, boolean compress) throws IOException {
+        File logDir = getExportDir();
+        if (!logDir.exists() && !logDir.mkdirs()) {
+            throw new IOException("无法创建目录: " + logDir.getAbsolutePath());
+        }
+
+        String fileName = "autonet4ahu_log_" + new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.CHINA).format(new Date())
+                + (compress ? ".txt.gz" : ".txt");
+        File target = new File(logDir, fileName);
+        File temp = new File(logDir, fileName + ".tmp");
+        long start = System.currentTimeMillis();
+
+        try (LogStore.Snapshot snapshot = store.snapshot()) {
+            if (snapshot.getTotalBytes() == 0) {
+                throw new IOException("没有可导出的日志");
+            }
+            try (FileOutputStream fos = new FileOutputStream(temp)) {
+                if (compress) {
+                    GZIPOutputStream gzip = new GZIPOutputStream(fos, 64 * 1024);
+                    transferAll(snapshot, Channels.newChannel(gzip));
+                    gzip.finish();
+                } else {
+                    transferAll(snapshot, fos.getChannel());
+                }
+                fos.getFD().sync();
+            }
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("无法重命名导出文件: " + target.getAbsolutePath());
+        }
+        Logger.i("日志已导出到文件: " + target.getAbsolutePath() + "，大小: " + target.length()
+                + "字节，耗时: " + (System.currentTimeMillis() - start) + "ms");
+        return target;
+    }
+
+    /**
+     * 按块传输快照中所有分段，并定期报告进度
+     */
+    private void transferAll(LogStore.Snapshot snapshot, WritableByteChannel target) throws IOException {
+        long total = snapshot.getTotalBytes();
+        long done = 0;
+        long lastReport = 0;
+        for (int i = 0; i < snapshot.size(); i++) {
+            FileChannel source = snapshot.channel(i);
+            long length = snapshot.length(i);
+            long position = 0;
+            while (position < length) {
+                long transferred = source.transferTo(position, Math.min(CHUNK_SIZE, length - position), target);
+                if (transferred <= 0) {
+                    throw new IOException("日志分段读取中断");
+                }
+                position += transferred;
+                done += transferred;
+
+                long now = System.currentTimeMillis();
+                if (now - lastReport >= PROGRESS_INTERVAL_MS || done == total) {
+                    lastReport = now;
+                    final long reported = done;
+                    mainHandler.post(() -> {
+                        ExportCallback cb = callback;
+                        if (cb != null) {
+                            cb.onProgress(reported, total);
+                        }
+                    });
+                }
+            }
+        }
+    }
+
+    /**
+     * 导出回调接口
+     */
+    public interface ExportCallback {
+        void onProgress(long bytesDone, long bytesTotal);
+
+        void onComplete(File file, long fileSize);
+
+        void onError(IOException error);
+    }
+}
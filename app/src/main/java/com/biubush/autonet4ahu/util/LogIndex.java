@@ -0,0 +1,212 @@
+package com.biubush.autonet4ahu.util;
+
+import com.biubush.autonet4ahu.model.LogQuery;
+import com.biubush.autonet4ahu.model.LogRecord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * 持久化日志的内存索引
+ * <p>
+ * 按序号将记录划分为每512条一个块，块内记录时间范围、各级别的位图以及日志内容三元组布隆过滤器。
+ * 布隆过滤器只收录日志内容，时间戳和级别前缀在各行之间高度重复，收录后只会填满过滤器而无助于剪枝。
+ * 查询时先用时间范围、级别位图和布隆过滤器排除不可能命中的块，只有边界块和需要文本匹配的块才读取原文。
+ */
+public class LogIndex {
+    private static final int BLOCK_SHIFT = 9;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;   // 每块512条记录
+    private static final int BLOCK_WORDS = BLOCK_SIZE / 64;
+    private static final int LEVEL_COUNT = 4;
+    private static final int BLOOM_BITS = 1 << 14;            // 每块16384位布隆过滤器
+    private static final int BLOOM_MASK = BLOOM_BITS - 1;
+
+    private final TreeMap<Long, Block> blocks = new TreeMap<>();
+    private final CountDownLatch ready = new CountDownLatch(1);
+
+    /**
+     * 将一条新记录加入索引
+     */
+    public synchronized void add(long seq, long timestamp, int level, String line) {
+        long blockNo = seq >> BLOCK_SHIFT;
+        Block block = blocks.get(blockNo);
+        if (block == null) {
+            block = new Block(blockNo);
+            blocks.put(blockNo, block);
+        }
+        block.add((int) (seq & (BLOCK_SIZE - 1)), timestamp, Math.max(0, Math.min(LEVEL_COUNT - 1, level)), line);
+    }
+
+    /**
+     * 淘汰序号小于firstSeq的记录所在的整块
+     */
+    public synchronized void evictBefore(long firstSeq) {
+        blocks.headMap(firstSeq >> BLOCK_SHIFT).clear();
+    }
+
+    /**
+     * 清空索引
+     */
+    public synchronized void clear() {
+        blocks.clear();
+    }
+
+    /**
+     * 标记历史记录已全部建立索引
+     */
+    void markReady() {
+        ready.countDown();
+    }
+
+    /**
+     * 历史记录是否已全部建立索引
+     */
+    public boolean isReady() {
+        return ready.getCount() == 0;
+    }
+
+    /**
+     * 执行查询，应在后台线程调用
+     *
+     * @param store 日志存储，用于读取候选块原文
+     * @param query 查询条件
+     * @param fromSeq 只返回序号不小于此值的记录
+     * @return 按序号升序排列的命中记录序号
+     */
+    public long[] query(LogStore store, LogQuery query, long fromSeq) throws InterruptedException {
+        ready.await();
+
+        String literal = query.requiredLiteral();
+        long[] grams = literal != null && literal.length() >= 3 ? bloomBits(literal) : null;
+        List<Candidate> candidates = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<Long, Block> entry : blocks.tailMap(fromSeq >> BLOCK_SHIFT, true).entrySet()) {
+                Block block = entry.getValue();
+                if (block.maxTs < query.getFromTime() || block.minTs > query.getToTime()) {
+                    continue;
+                }
+                if ((block.levelMask & query.getLevelMask()) == 0) {
+                    continue;
+                }
+                if (grams != null && !block.mightContain(grams)) {
+                    continue;
+                }
+                long[] bits = new long[BLOCK_WORDS];
+                for (int level = 0; level < LEVEL_COUNT; level++) {
+                    if (query.matchesLevel(level)) {
+                        for (int w = 0; w < BLOCK_WORDS; w++) {
+                            bits[w] |= block.levelBits[level][w];
+                        }
+                    }
+                }
+                boolean inRange = block.minTs >= query.getFromTime() && block.maxTs <= query.getToTime();
+                candidates.add(new Candidate(block.blockNo, bits, inRange));
+            }
+        }
+
+        long[] result = new long[64];
+        int size = 0;
+        for (Candidate candidate : candidates) {
+            long base = candidate.blockNo << BLOCK_SHIFT;
+            if (candidate.inRange && !query.hasText()) {
+                // 整块都在时间范围内且无文本条件，直接由级别位图得出结果
+                for (int bit = 0; bit < BLOCK_SIZE; bit++) {
+                    if ((candidate.bits[bit >> 6] & (1L << bit)) != 0 && base + bit >= fromSeq) {
+                        if (size == result.length) {
+                            result = Arrays.copyOf(result, size * 2);
+                        }
+                        result[size++] = base + bit;
+                    }
+                }
+                continue;
+            }
+            long start = Math.max(base, fromSeq);
+            for (LogRecord record : store.read(start, (int) (base + BLOCK_SIZE - start))) {
+                int bit = (int) (record.getSeq() - base);
+                if ((candidate.bits[bit >> 6] & (1L << bit)) == 0
+                        || !query.matchesTime(record.getTimestamp())
+                        || !query.matchesText(record.getMessage())) {
+                    continue;
+                }
+                if (size == result.length) {
+                    result = Arrays.copyOf(result, size * 2);
+                }
+                result[size++] = record.getSeq();
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * 计算文本所有三元组在布隆过滤器中对应的位
+     */
+    private static long[] bloomBits(String text) {
+        long[] bits = new long[BLOOM_BITS / 64];
+        addTrigrams(bits, text);
+        return bits;
+    }
+
+    private static void addTrigrams(long[] bloom, String text) {
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            int h = (text.charAt(i) * 31 + text.charAt(i + 1)) * 31 + text.charAt(i + 2);
+            h *= 0x9E3779B1;
+            h ^= h >>> 15;
+            int h1 = h & BLOOM_MASK;
+            int h2 = (h >>> 16) & BLOOM_MASK;
+            bloom[h1 >> 6] |= 1L << h1;
+            bloom[h2 >> 6] |= 1L << h2;
+        }
+    }
+
+    /**
+     * 索引块
+     */
+    private static final class Block {
+        final long blockNo;
+        final long[][] levelBits = new long[LEVEL_COUNT][BLOCK_WORDS];
+        final long[] bloom = new long[BLOOM_BITS / 64];
+        long minTs = Long.MAX_VALUE;
+        long maxTs = Long.MIN_VALUE;
+        int levelMask;
+
+        Block(long blockNo) {
+            this.blockNo = blockNo;
+        }
+
+        void add(int bit, long timestamp, int level, String line) {
+            minTs = Math.min(minTs, timestamp);
+            maxTs = Math.max(maxTs, timestamp);
+            levelMask |= 1 << level;
+            levelBits[level][bit >> 6] |= 1L << bit;
+            addTrigrams(bloom, LogRecord.messageOf(line));
+        }
+
+        boolean mightContain(long[] grams) {
+            for (int i = 0; i < grams.length; i++) {
+                if ((bloom[i] & grams[i]) != grams[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 查询候选块的快照
+     */
+    private static final class Candidate {
+        final long blockNo;
+        final long[] bits;
+        final boolean inRange;
+
+        Candidate(long blockNo, long[] bits, boolean inRange) {
+            this.blockNo = blockNo;
+            this.bits = bits;
+            this.inRange = inRange;
+        }
+    }
+}
@@ -0,0 +1,458 @@
+package com.biubush.autonet4ahu.util;
+
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import com.biubush.autonet4ahu.model.LogRecord;
+import com.biubush.autonet4ahu.model.LoginResult;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 日志上报器，将持久化日志分批压缩后POST到远程收集端
+ * <p>
+ * 日志先从{@link LogStore}按序号读出，打包为gzip压缩的NDJSON批次写入本地暂存目录，
+ * 离线或处于认证页面之后时批次保留在磁盘上；登录成功后再按限定带宽依次上传，上传成功的批次即被删除。
+ * 上传进度以序号游标持久化，重启后从上次位置继续。
+ */
+public class LogShipper {
+    private static final String TAG = "AutoNet4AHU";
+    private static final String SPOOL_DIR = "log_spool";
+    private static final String CURSOR_FILE = "cursor";
+    private static final String BATCH_SUFFIX = ".ndjson.gz";
+
+    private static final int BATCH_MAX_RECORDS = 500;           // 每批最多500条
+    private static final int BATCH_MAX_BYTES = 256 * 1024;      // 每批压缩前最多256KB
+    private static final long SPOOL_MAX_BYTES = 8 * 1024 * 1024; // 暂存目录最多8MB
+    private static final long SPOOL_INTERVAL_S = 60;             // 每60秒打包一次
+    private static final int UPLOAD_BYTES_PER_SECOND = 32 * 1024; // 上传带宽限制32KB/s
+    private static final long RETRY_BASE_MS = 60 * 1000;         // 上传失败后的首次重试间隔
+    private static final long RETRY_MAX_MS = 30 * 60 * 1000;     // 重试间隔上限
+
+    private static final Logger.Site FAIL_LOG = Logger.site("LogShipper.upload", 3, 0.1);
+    private static volatile LogShipper instance;
+
+    private final File spoolDir;
+    private final File cursorFile;
+    private final String device;
+    private final ScheduledExecutorService executor;
+    private final TokenBucket bandwidth = new TokenBucket(UPLOAD_BYTES_PER_SECOND, UPLOAD_BYTES_PER_SECOND);
+
+    // 以下状态仅在executor线程中修改
+    private volatile long cursor = -1;
+    private int consecutiveFailures = 0;
+    private long nextAttemptAt = 0;
+
+    private volatile String endpoint;
+    private volatile boolean online = false;
+    private ScheduledFuture<?> periodicTask;
+
+    // 统计指标
+    private final AtomicLong spooledRecords = new AtomicLong();
+    private final AtomicLong shippedBytes = new AtomicLong();
+    private final AtomicLong shippedBatches = new AtomicLong();
+    private final AtomicLong droppedRecords = new AtomicLong();
+    private final AtomicLong failedUploads = new AtomicLong();
+
+    /**
+     * 获取全局实例
+     *
+     * @param context 上下文
+     */
+    public static LogShipper getInstance(Context context) {
+        if (instance == null) {
+            synchronized (LogShipper.class) {
+                if (instance == null) {
+                    instance = new LogShipper(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private LogShipper(Context context) {
+        this.spoolDir = new File(context.getFilesDir(), SPOOL_DIR);
+        this.cursorFile = new File(spoolDir, CURSOR_FILE);
+        this.device = Build.MANUFACTURER + " " + Build.MODEL;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "LogShipper");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        executor.execute(this::loadSpool);
+    }
+
+    /**
+     * 启动上报，地址为空时等同于停止
+     *
+     * @param url 收集端地址
+     */
+    public synchronized void start(String url) {
+        if (url == null || url.trim().isEmpty()) {
+            stop();
+            return;
+        }
+        endpoint = url.trim();
+        if (periodicTask == null) {
+            periodicTask = executor.scheduleWithFixedDelay(this::tick,
+                    SPOOL_INTERVAL_S, SPOOL_INTERVAL_S, TimeUnit.SECONDS);
+            Logger.i("日志上报已启动: " + endpoint);
+        }
+    }
+
+    /**
+     * 停止上报，未上传的日志打包后保留在暂存目录
+     */
+    public synchronized void stop() {
+        if (periodicTask != null) {
+            periodicTask.cancel(false);
+            periodicTask = null;
+            executor.execute(this::spool);
+            Logger.i("日志上报已停止");
+        }
+        endpoint = null;
+    }
+
+    /**
+     * 登录结果回调，登录成功后网络可用，立即开始上传暂存的日志
+     *
+     * @param result 登录结果
+     */
+    public void onLoginResult(LoginResult result) {
+        online = result != null && result.isSuccess();
+        if (online && endpoint != null) {
+            executor.execute(() -> {
+                consecutiveFailures = 0;
+                nextAttemptAt = 0;
+                tick();
+            });
+        }
+    }
+
+    /**
+     * 定时任务：打包新日志，网络可用时上传
+     */
+    private void tick() {
+        spool();
+        if (online && endpoint != null && System.currentTimeMillis() >= nextAttemptAt) {
+            drain();
+        }
+    }
+
+    /**
+     * 读取暂存目录，恢复游标和待上传条数
+     */
+    private void loadSpool() {
+        if (!spoolDir.exists() && !spoolDir.mkdirs()) {
+            Log.e(TAG, "创建日志暂存目录失败: " + spoolDir);
+        }
+        if (cursorFile.exists()) {
+            try (DataInputStream in = new DataInputStream(new FileInputStream(cursorFile))) {
+                cursor = in.readLong();
+            } catch (IOException e) {
+                Log.w(TAG, "读取日志上报游标失败，从头开始", e);
+            }
+        }
+        long pending = 0;
+        for (File file : listBatches()) {
+            pending += batchRecordCount(file);
+        }
+        spooledRecords.set(pending);
+    }
+
+    /**
+     * 将游标之后的日志打包写入暂存目录
+     * <p>
+     * 最后一条记录可能还会被合并重复次数，保留到下一轮再打包。
+     */
+    private void spool() {
+        LogStore store = Logger.getStore();
+        if (store == null) {
+            return;
+        }
+        long firstSeq = store.getFirstSeq();
+        long endSeq = store.getNextSeq() - 1;
+        if (cursor < 0 || cursor > endSeq + 1) {
+            // 首次启动或持久化日志被删除，从当前保留的最早记录开始
+            cursor = firstSeq;
+        } else if (cursor < firstSeq) {
+            droppedRecords.addAndGet(firstSeq - cursor);
+            cursor = firstSeq;
+        }
+
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(BATCH_MAX_BYTES);
+        while (cursor < endSeq) {
+            List<LogRecord> records = store.read(cursor, (int) Math.min(BATCH_MAX_RECORDS, endSeq - cursor));
+            if (records.isEmpty()) {
+                cursor = Math.max(store.getFirstSeq(), cursor);
+                break;
+            }
+            raw.reset();
+            long batchFirst = records.get(0).getSeq();
+            long batchLast = batchFirst;
+            int count = 0;
+            for (LogRecord record : records) {
+                if (count > 0 && raw.size() >= BATCH_MAX_BYTES) {
+                    break;
+                }
+                byte[] line = toJson(record);
+                raw.write(line, 0, line.length);
+                raw.write('\n');
+                batchLast = record.getSeq();
+                count++;
+            }
+            try {
+                writeBatch(batchFirst, count, raw);
+            } catch (IOException e) {
+                Log.e(TAG, "写入日志暂存批次失败", e);
+                return;
+            }
+            if (batchFirst > cursor) {
+                droppedRecords.addAndGet(batchFirst - cursor);
+            }
+            cursor = batchLast + 1;
+            saveCursor();
+        }
+        trimSpool();
+    }
+
+    private byte[] toJson(LogRecord record) {
+        JSONObject json = new JSONObject();
+        try {
+            json.put("seq", record.getSeq());
+            json.put("ts", record.getTimestamp());
+            json.put("level", LogRecord.levelName(record.getLevel()));
+            json.put("line", record.getLine());
+            if (record.getRepeatCount() > 1) {
+                json.put("repeat", record.getRepeatCount());
+            }
+            json.put("device", device);
+        } catch (JSONException e) {
+            // 键均为非空常量，不会发生
+        }
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 压缩写入一个批次，先写临时文件再重命名，避免半个批次被上传
+     */
+    private void writeBatch(long firstSeq, int count, ByteArrayOutputStream raw) throws IOException {
+        String name = String.format("%016d-%d%s", firstSeq, count, BATCH_SUFFIX);
+        File tmp = new File(spoolDir, name + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+             GZIPOutputStream gzip = new GZIPOutputStream(fos, 8192)) {
+            raw.writeTo(gzip);
+            gzip.finish();
+            fos.getFD().sync();
+        }
+        if (!tmp.renameTo(new File(spoolDir, name))) {
+            tmp.delete();
+            throw new IOException("重命名暂存批次失败: " + name);
+        }
+        spooledRecords.addAndGet(count);
+    }
+
+    private void saveCursor() {
+        File tmp = new File(spoolDir, CURSOR_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp))) {
+            out.writeLong(cursor);
+        } catch (IOException e) {
+            Log.w(TAG, "保存日志上报游标失败", e);
+            return;
+        }
+        if (!tmp.renameTo(cursorFile)) {
+            Log.w(TAG, "保存日志上报游标失败: 重命名失败");
+        }
+    }
+
+    /**
+     * 暂存目录超出上限时丢弃最早的批次
+     */
+    private void trimSpool() {
+        File[] batches = listBatches();
+        long total = 0;
+        for (File file : batches) {
+            total += file.length();
+        }
+        for (int i = 0; i < batches.length && total > SPOOL_MAX_BYTES; i++) {
+            total -= batches[i].length();
+            int count = batchRecordCount(batches[i]);
+            if (batches[i].delete()) {
+                spooledRecords.addAndGet(-count);
+                droppedRecords.addAndGet(count);
+            }
+        }
+    }
+
+    /**
+     * 按序上传暂存批次，失败后按指数退避等待下次重试
+     */
+    private void drain() {
+        int sent = 0;
+        long bytes = 0;
+        for (File file : listBatches()) {
+            String url = endpoint;
+            if (url == null || !online) {
+                break;
+            }
+            try {
+                long length = file.length();
+                acquireBandwidth(length);
+                upload(url, file);
+                int count = batchRecordCount(file);
+                if (file.delete()) {
+                    spooledRecords.addAndGet(-count);
+                }
+                shippedBytes.addAndGet(length);
+                shippedBatches.incrementAndGet();
+                sent++;
+                bytes += length;
+                consecutiveFailures = 0;
+            } catch (IOException e) {
+                failedUploads.incrementAndGet();
+                consecutiveFailures++;
+                long delay = Math.min(RETRY_MAX_MS, RETRY_BASE_MS << Math.min(consecutiveFailures - 1, 5));
+                nextAttemptAt = System.currentTimeMillis() + delay;
+                FAIL_LOG.w("日志上报失败，" + (delay / 1000) + "秒后重试: " + e.getMessage());
+                break;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (sent > 0) {
+            Logger.d("日志上报完成，批次: " + sent + "，字节: " + bytes);
+        }
+    }
+
+    private void acquireBandwidth(long bytes) throws InterruptedException {
+        // 单个批次可能超过令牌桶容量，分块获取
+        long remaining = bytes;
+        while (remaining > 0) {
+            double chunk = Math.min(remaining, UPLOAD_BYTES_PER_SECOND);
+            long waitNanos;
+            while ((waitNanos = bandwidth.nanosUntilAvailable(chunk)) > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+            if (bandwidth.tryAcquire(chunk)) {
+                remaining -= (long) chunk;
+            }
+        }
+    }
+
+    private void upload(String endpoint, File file) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(endpoint).openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", "application/x-ndjson");
+            connection.setRequestProperty("Content-Encoding", "gzip");
+            connection.setFixedLengthStreamingMode(file.length());
+            connection.setDoOutput(true);
+            connection.setConnectTimeout(5000);
+            connection.setReadTimeout(10000);
+            // 认证页面会劫持请求并重定向，不能当作上传成功
+            connection.setInstanceFollowRedirects(false);
+
+            try (OutputStream os = connection.getOutputStream()) {
+                Files.copy(file.toPath(), os);
+            }
+
+            int responseCode = connection.getResponseCode();
+            try (InputStream is = responseCode < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                if (is != null) {
+                    byte[] buffer = new byte[1024];
+                    while (is.read(buffer) != -1) {
+                        // 读完响应以便复用连接
+                    }
+                }
+            }
+            if (responseCode < 200 || responseCode >= 300) {
+                throw new IOException("HTTP状态码: " + responseCode);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private File[] listBatches() {
+        File[] files = spoolDir.listFiles((dir, name) -> name.endsWith(BATCH_SUFFIX));
+        if (files == null) {
+            return new File[0];
+        }
+        // 文件名以补零的起始序号开头，字典序即时间顺序
+        Arrays.sort(files);
+        return files;
+    }
+
+    private static int batchRecordCount(File file) {
+        String name = file.getName();
+        int dash = name.indexOf('-');
+        int end = name.indexOf(BATCH_SUFFIX);
+        try {
+            return Integer.parseInt(name.substring(dash + 1, end));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 获取待上传的记录条数，包括已打包和尚未打包的
+     */
+    public long getQueueDepth() {
+        long pending = spooledRecords.get();
+        LogStore store = Logger.getStore();
+        long position = cursor;
+        if (store != null && position >= 0) {
+            pending += Math.max(0, store.getNextSeq() - Math.max(position, store.getFirstSeq()));
+        }
+        return pending;
+    }
+
+    /**
+     * 获取已上传的字节数（压缩后）
+     */
+    public long getShippedBytes() {
+        return shippedBytes.get();
+    }
+
+    /**
+     * 获取因日志淘汰或暂存空间不足而丢弃的记录条数
+     */
+    public long getDroppedCount() {
+        return droppedRecords.get();
+    }
+
+    /**
+     * 获取统计摘要
+     */
+    public String getStatsSummary() {
+        return "待上报: " + getQueueDepth() +
+                "，已上报: " + shippedBatches.get() + "批/" + shippedBytes.get() + "字节" +
+                "，丢弃: " + droppedRecords.get() +
+                "，失败: " + failedUploads.get();
+    }
+}
@@ -0,0 +1,731 @@
+package com.biubush.autonet4ahu.util;
+
+import android.util.Log;
+
+import com.biubush.autonet4ahu.model.LogRecord;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 持久化日志存储，按分段文件追加写入日志记录
+ * <p>
+ * 每个分段由数据文件（.log，UTF-8文本行，可直接导出）和索引文件（.idx，定长条目）组成，
+ * 通过全局序号即可随机读取任意一条记录，读取时只加载所需的页，内存占用与历史总量无关。
+ * 写入时同步维护{@link LogIndex}，用于按级别、时间和文本快速过滤。
+ * <p>
+ * 每条记录到来时立即进入写盘缓冲，崩溃时最多丢失一个刷盘周期内的记录。连续重复的记录只在内存中累加次数，
+ * 直到下一条不同的记录到来（或空闲一段时间）才追加一条“重复N次”的汇总记录。
+ */
+public class LogStore {
+    private static final String TAG = "AutoNet4AHU";
+    private static final String DIR_NAME = "log_segments";
+    private static final String DATA_SUFFIX = ".log";
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private static final int INDEX_MAGIC = 0x414E4C49; // "ANLI"
+    private static final int INDEX_VERSION = 1;
+    private static final int INDEX_HEADER_SIZE = 8;
+    // 索引条目：时间戳(8) + 数据偏移(4) + 数据长度(4) + 级别(4) + 重复次数(4)
+    private static final int INDEX_ENTRY_SIZE = 24;
+
+    private static final long MAX_SEGMENT_BYTES = 1024 * 1024; // 单个分段最大1MB
+    private static final int MAX_SEGMENTS = 32;                // 最多保留32个分段
+    private static final int FLUSH_THRESHOLD = 16 * 1024;      // 缓冲超过16KB立即写盘
+    private static final long FLUSH_DELAY_MS = 1000;           // 否则1秒后写盘
+    private static final long TAIL_IDLE_MS = 30000;            // 重复汇总空闲30秒后写盘
+
+    private final File dir;
+    private final List<Segment> segments = new ArrayList<>();
+    private final ByteArrayOutputStream pendingData = new ByteArrayOutputStream(FLUSH_THRESHOLD);
+    private final ByteArrayOutputStream pendingIndexBytes = new ByteArrayOutputStream(1024);
+    private final DataOutputStream pendingIndex = new DataOutputStream(pendingIndexBytes);
+    private final ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor();
+    private final LogIndex index = new LogIndex();
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.CHINA);
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.SSS", Locale.CHINA);
+
+    private Segment active;
+    private FileChannel activeData;
+    private FileChannel activeIndex;
+    private long firstSeq;
+    private long nextSeq;
+    private boolean flushScheduled = false;
+    private long lastAppendedSeq = -1;    // 最近一条写入的记录，可以继续累加重复次数
+    private int lastAppendedLevel;
+    private Tail tail;                    // 尚未写盘的重复汇总
+    private boolean tailTimerScheduled = false;
+
+    /**
+     * 构造函数
+     *
+     * @param baseDir 存储根目录
+     */
+    public LogStore(File baseDir) {
+        this.dir = new File(baseDir, DIR_NAME);
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.e(TAG, "创建日志目录失败: " + dir.getAbsolutePath());
+        }
+        recover();
+        buildIndex(nextSeq);
+    }
+
+    /**
+     * 追加一条日志记录
+     *
+     * @param timestamp 时间戳
+     * @param level 日志级别
+     * @param line 格式化后的日志行
+     * @return 记录序号
+     */
+    public synchronized long append(long timestamp, int level, String line) {
+        commitTail();
+        long seq = nextSeq++;
+        index.add(seq, timestamp, level, line);
+        writeRecord(seq, timestamp, level, line, 1);
+        lastAppendedSeq = seq;
+        lastAppendedLevel = level;
+        return seq;
+    }
+
+    /**
+     * 将最后一条记录的重复次数加一
+     * <p>
+     * 首次重复时为汇总记录分配序号，汇总记录在下一条不同的记录到来或空闲一段时间后写盘。
+     *
+     * @param seq 期望的最后一条记录序号
+     * @param timestamp 本次重复的时间戳
+     * @return 是否成功合并，序号不符或汇总已写盘时返回false
+     */
+    public synchronized boolean repeatLast(long seq, long timestamp) {
+        if (seq < 0 || seq != lastAppendedSeq) {
+            return false;
+        }
+        if (tail == null) {
+            tail = new Tail(nextSeq++, timestamp, lastAppendedLevel);
+            index.add(tail.seq, timestamp, tail.level, tailLine());
+        } else {
+            tail.repeatCount++;
+            tail.lastTimestamp = timestamp;
+            tail.touched = System.currentTimeMillis();
+        }
+        scheduleTailCommit();
+        return true;
+    }
+
+    /**
+     * 生成重复汇总的日志行，格式与普通日志行一致
+     */
+    private String tailLine() {
+        return dateFormat.format(new Date(tail.timestamp)) + " [" + LogRecord.levelName(tail.level) + "] 上一条日志重复" +
+                tail.repeatCount + "次，末次 " + timeFormat.format(new Date(tail.lastTimestamp));
+    }
+
+    /**
+     * 将内存中的重复汇总写入缓冲，之后的重复另起一条记录
+     */
+    private void commitTail() {
+        if (tail == null) {
+            return;
+        }
+        String line = tailLine();
+        // 补充最终的重复次数和末次时间
+        index.add(tail.seq, tail.lastTimestamp, tail.level, line);
+        writeRecord(tail.seq, tail.timestamp, tail.level, line, tail.repeatCount);
+        tail = null;
+        lastAppendedSeq = -1;
+    }
+
+    /**
+     * 将一条记录写入缓冲，缓冲满时立即写盘，否则稍后写盘
+     */
+    private void writeRecord(long seq, long timestamp, int level, String line, int repeatCount) {
+        byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+        try {
+            if (active == null || (active.dataLength + bytes.length > MAX_SEGMENT_BYTES && active.count > 0)) {
+                rollSegment(seq);
+            }
+
+            pendingIndex.writeLong(timestamp);
+            pendingIndex.writeInt((int) active.dataLength);
+            pendingIndex.writeInt(bytes.length);
+            pendingIndex.writeInt(level);
+            pendingIndex.writeInt(repeatCount);
+            pendingData.write(bytes);
+
+            active.count++;
+            active.dataLength += bytes.length;
+
+            if (pendingData.size() >= FLUSH_THRESHOLD) {
+                flushLocked();
+            } else {
+                scheduleFlush();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "写入持久化日志失败", e);
+        }
+    }
+
+    private void scheduleTailCommit() {
+        if (tailTimerScheduled) {
+            return;
+        }
+        tailTimerScheduled = true;
+        flushExecutor.schedule(() -> {
+            synchronized (LogStore.this) {
+                tailTimerScheduled = false;
+                if (tail == null) {
+                    return;
+                }
+                if (System.currentTimeMillis() - tail.touched >= TAIL_IDLE_MS) {
+                    commitTail();
+                    flushQuietly();
+                } else {
+                    scheduleTailCommit();
+                }
+            }
+        }, TAIL_IDLE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 读取一段连续的日志记录
+     *
+     * @param fromSeq 起始序号（包含）
+     * @param maxCount 最多读取的条数
+     * @return 日志记录列表，已被淘汰的记录会被跳过
+     */
+    public synchronized List<LogRecord> read(long fromSeq, int maxCount) {
+        if (maxCount <= 0 || fromSeq >= nextSeq) {
+            return Collections.emptyList();
+        }
+        flushQuietly();
+
+        List<LogRecord> result = new ArrayList<>(maxCount);
+        long seq = Math.max(fromSeq, firstSeq);
+        long endSeq = Math.min(nextSeq, fromSeq + maxCount);
+        int i = findSegment(seq);
+        while (i >= 0 && i < segments.size()) {
+            Segment segment = segments.get(i++);
+            seq = Math.max(seq, segment.baseSeq);
+            if (seq >= endSeq) {
+                break;
+            }
+            int from = (int) (seq - segment.baseSeq);
+            int count = (int) Math.min(segment.count - from, endSeq - seq);
+            if (count <= 0) {
+                continue;
+            }
+            try (FileChannel indexChannel = new RandomAccessFile(segment.indexFile, "r").getChannel();
+                 FileChannel dataChannel = new RandomAccessFile(segment.dataFile, "r").getChannel()) {
+                readRun(segment, indexChannel, dataChannel, from, count, result);
+            } catch (IOException e) {
+                Log.e(TAG, "读取持久化日志失败: " + segment.dataFile.getName(), e);
+            }
+            seq += count;
+        }
+        if (tail != null && tail.seq >= fromSeq && tail.seq < fromSeq + maxCount) {
+            result.add(tailRecord());
+        }
+        return result;
+    }
+
+    /**
+     * 按序号列表读取日志记录，连续的序号合并为一次读取
+     *
+     * @param seqs 升序排列的序号
+     * @param from 起始下标
+     * @param count 读取条数
+     * @return 日志记录列表，已被淘汰的记录会被跳过
+     */
+    public synchronized List<LogRecord> read(long[] seqs, int from, int count) {
+        List<LogRecord> result = new ArrayList<>(count);
+        if (count <= 0) {
+            return result;
+        }
+        flushQuietly();
+
+        int i = from;
+        int end = Math.min(seqs.length, from + count);
+        while (i < end) {
+            int segmentIndex = findSegment(seqs[i]);
+            if (segmentIndex < 0) {
+                break;
+            }
+            Segment segment = segments.get(segmentIndex);
+            long segmentEnd = segment.baseSeq + segment.count;
+            if (seqs[i] < segment.baseSeq) {
+                i++;
+                continue;
+            }
+            try (FileChannel indexChannel = new RandomAccessFile(segment.indexFile, "r").getChannel();
+                 FileChannel dataChannel = new RandomAccessFile(segment.dataFile, "r").getChannel()) {
+                while (i < end && seqs[i] < segmentEnd) {
+                    int run = 1;
+                    while (i + run < end && seqs[i + run] == seqs[i] + run && seqs[i + run] < segmentEnd) {
+                        run++;
+                    }
+                    readRun(segment, indexChannel, dataChannel, (int) (seqs[i] - segment.baseSeq), run, result);
+                    i += run;
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "读取持久化日志失败: " + segment.dataFile.getName(), e);
+                while (i < end && seqs[i] < segmentEnd) {
+                    i++;
+                }
+            }
+        }
+        while (i < end && tail != null && seqs[i] <= tail.seq) {
+            if (seqs[i++] == tail.seq) {
+                result.add(tailRecord());
+            }
+        }
+        return result;
+    }
+
+    private LogRecord tailRecord() {
+        return new LogRecord(tail.seq, tail.timestamp, tail.level, tailLine(), tail.repeatCount);
+    }
+
+    /**
+     * 获取当前所有分段数据的一致快照
+     * <p>
+     * 快照持有各分段数据文件的只读通道和截止长度，之后的写入和分段淘汰都不会影响快照内容，
+     * 使用完毕后需要调用{@link Snapshot#close()}释放文件句柄。
+     *
+     * @return 日志快照
+     */
+    public synchronized Snapshot snapshot() throws IOException {
+        commitTail();
+        flushLocked();
+        Snapshot snapshot = new Snapshot();
+        try {
+            for (Segment segment : segments) {
+                if (segment.dataLength > 0) {
+                    FileChannel channel = new RandomAccessFile(segment.dataFile, "r").getChannel();
+                    snapshot.add(channel, segment.dataLength);
+                }
+            }
+        } catch (IOException e) {
+            snapshot.close();
+            throw e;
+        }
+        return snapshot;
+    }
+
+    /**
+     * 获取日志索引
+     */
+    public LogIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * 获取最早一条仍保留的记录序号
+     */
+    public synchronized long getFirstSeq() {
+        return firstSeq;
+    }
+
+    /**
+     * 获取下一条记录将使用的序号
+     */
+    public synchronized long getNextSeq() {
+        return nextSeq;
+    }
+
+    /**
+     * 获取当前保留的记录条数
+     */
+    public synchronized long size() {
+        return nextSeq - firstSeq;
+    }
+
+    /**
+     * 将缓冲的记录写入磁盘
+     */
+    public synchronized void flush() {
+        flushQuietly();
+    }
+
+    /**
+     * 清空所有持久化日志，序号继续递增
+     */
+    public synchronized void clear() {
+        closeActive();
+        for (Segment segment : segments) {
+            segment.delete();
+        }
+        segments.clear();
+        pendingData.reset();
+        pendingIndexBytes.reset();
+        tail = null;
+        lastAppendedSeq = -1;
+        firstSeq = nextSeq;
+        index.clear();
+    }
+
+    /**
+     * 启动时扫描已有分段，截断崩溃时写了一半的记录
+     */
+    private void recover() {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(INDEX_SUFFIX));
+        List<Segment> found = new ArrayList<>();
+        if (files != null) {
+            for (File indexFile : files) {
+                String name = indexFile.getName();
+                try {
+                    long baseSeq = Long.parseLong(name.substring(0, name.length() - INDEX_SUFFIX.length()));
+                    found.add(new Segment(baseSeq));
+                } catch (NumberFormatException e) {
+                    Log.w(TAG, "忽略无法识别的日志索引文件: " + name);
+                }
+            }
+        }
+        Collections.sort(found, (a, b) -> Long.compare(a.baseSeq, b.baseSeq));
+
+        for (Segment segment : found) {
+            try {
+                if (segment.load()) {
+                    segments.add(segment);
+                } else {
+                    segment.delete();
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "恢复日志分段失败: " + segment.indexFile.getName(), e);
+                segment.delete();
+            }
+        }
+
+        if (segments.isEmpty()) {
+            firstSeq = 0;
+            nextSeq = 0;
+        } else {
+            Segment last = segments.get(segments.size() - 1);
+            firstSeq = segments.get(0).baseSeq;
+            nextSeq = last.baseSeq + last.count;
+            if (last.dataLength < MAX_SEGMENT_BYTES) {
+                try {
+                    openActive(last);
+                } catch (IOException e) {
+                    Log.e(TAG, "打开日志分段失败: " + last.dataFile.getName(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 切换到新的分段，并淘汰超出保留数量的旧分段
+     */
+    private void rollSegment(long baseSeq) throws IOException {
+        flushLocked();
+        closeActive();
+
+        Segment segment = new Segment(baseSeq);
+        try (RandomAccessFile index = new RandomAccessFile(segment.indexFile, "rw")) {
+            index.setLength(0);
+            index.writeInt(INDEX_MAGIC);
+            index.writeInt(INDEX_VERSION);
+        }
+        try (RandomAccessFile data = new RandomAccessFile(segment.dataFile, "rw")) {
+            data.setLength(0);
+        }
+        segments.add(segment);
+        openActive(segment);
+
+        while (segments.size() > MAX_SEGMENTS) {
+            Segment oldest = segments.remove(0);
+            oldest.delete();
+            firstSeq = segments.get(0).baseSeq;
+        }
+        index.evictBefore(firstSeq);
+    }
+
+    /**
+     * 在后台为启动前已存在的记录建立索引，之后写入的记录由append增量维护
+     */
+    private void buildIndex(long endSeq) {
+        Thread builder = new Thread(() -> {
+            long seq = getFirstSeq();
+            while (seq < endSeq) {
+                List<LogRecord> records = read(seq, (int) Math.min(4096, endSeq - seq));
+                if (records.isEmpty()) {
+                    break;
+                }
+                for (LogRecord record : records) {
+                    index.add(record.getSeq(), record.getTimestamp(), record.getLevel(), record.getLine());
+                }
+                seq = records.get(records.size() - 1).getSeq() + 1;
+            }
+            index.evictBefore(getFirstSeq());
+            index.markReady();
+        }, "LogIndexBuilder");
+        builder.setPriority(Thread.MIN_PRIORITY);
+        builder.start();
+    }
+
+    private void openActive(Segment segment) throws IOException {
+        activeData = new RandomAccessFile(segment.dataFile, "rw").getChannel();
+        activeIndex = new RandomAccessFile(segment.indexFile, "rw").getChannel();
+        activeData.position(segment.dataLength);
+        activeIndex.position(INDEX_HEADER_SIZE + (long) segment.count * INDEX_ENTRY_SIZE);
+        active = segment;
+    }
+
+    private void closeActive() {
+        closeQuietly(activeData);
+        closeQuietly(activeIndex);
+        activeData = null;
+        activeIndex = null;
+        active = null;
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        flushExecutor.schedule(() -> {
+            synchronized (LogStore.this) {
+                flushScheduled = false;
+                flushQuietly();
+            }
+        }, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void flushQuietly() {
+        try {
+            flushLocked();
+        } catch (IOException e) {
+            Log.e(TAG, "持久化日志写盘失败", e);
+        }
+    }
+
+    /**
+     * 先写数据再写索引，保证索引指向的数据总是完整的
+     */
+    private void flushLocked() throws IOException {
+        if (pendingData.size() == 0 || activeData == null) {
+            return;
+        }
+        writeFully(activeData, pendingData.toByteArray());
+        writeFully(activeIndex, pendingIndexBytes.toByteArray());
+        pendingData.reset();
+        pendingIndexBytes.reset();
+    }
+
+    private int findSegment(long seq) {
+        int low = 0;
+        int high = segments.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            Segment segment = segments.get(mid);
+            if (seq < segment.baseSeq) {
+                high = mid - 1;
+            } else if (seq >= segment.baseSeq + segment.count) {
+                low = mid + 1;
+            } else {
+                return mid;
+            }
+        }
+        return low < segments.size() ? low : -1;
+    }
+
+    private void readRun(Segment segment, FileChannel index, FileChannel data,
+                         int from, int count, List<LogRecord> out) throws IOException {
+        ByteBuffer entries = ByteBuffer.allocate(count * INDEX_ENTRY_SIZE);
+        readFully(index, entries, INDEX_HEADER_SIZE + (long) from * INDEX_ENTRY_SIZE);
+        entries.flip();
+
+        int firstOffset = entries.getInt(8);
+        int lastEntry = (count - 1) * INDEX_ENTRY_SIZE;
+        int end = entries.getInt(lastEntry + 8) + entries.getInt(lastEntry + 12);
+        ByteBuffer lines = ByteBuffer.allocate(end - firstOffset);
+        readFully(data, lines, firstOffset);
+        byte[] bytes = lines.array();
+
+        for (int i = 0; i < count; i++) {
+            long timestamp = entries.getLong();
+            int offset = entries.getInt() - firstOffset;
+            int length = entries.getInt();
+            int level = entries.getInt();
+            int repeatCount = entries.getInt();
+            // 去掉行尾换行符
+            String line = new String(bytes, offset, Math.max(0, length - 1), StandardCharsets.UTF_8);
+            out.add(new LogRecord(segment.baseSeq + from + i, timestamp, level, line, repeatCount));
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("日志文件意外结束");
+            }
+            position += read;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // 关闭失败无需处理
+            }
+        }
+    }
+
+    /**
+     * 日志数据快照
+     */
+    public static final class Snapshot implements Closeable {
+        private final List<FileChannel> channels = new ArrayList<>();
+        private final List<Long> lengths = new ArrayList<>();
+        private long totalBytes;
+
+        private void add(FileChannel channel, long length) {
+            channels.add(channel);
+            lengths.add(length);
+            totalBytes += length;
+        }
+
+        /**
+         * 分段数量
+         */
+        public int size() {
+            return channels.size();
+        }
+
+        /**
+         * 第index个分段的只读通道
+         */
+        public FileChannel channel(int index) {
+            return channels.get(index);
+        }
+
+        /**
+         * 第index个分段在快照时的数据长度
+         */
+        public long length(int index) {
+            return lengths.get(index);
+        }
+
+        /**
+         * 快照数据总字节数
+         */
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        @Override
+        public void close() {
+            for (FileChannel channel : channels) {
+                closeQuietly(channel);
+            }
+            channels.clear();
+        }
+    }
+
+    /**
+     * 尚未写盘的重复汇总，repeatCount为包括第一次在内的出现次数
+     */
+    private static final class Tail {
+        final long seq;
+        final long timestamp;
+        final int level;
+        int repeatCount = 2;
+        long lastTimestamp;
+        long touched;
+
+        Tail(long seq, long timestamp, int level) {
+            this.seq = seq;
+            this.timestamp = timestamp;
+            this.level = level;
+            this.lastTimestamp = timestamp;
+            this.touched = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 日志分段
+     */
+    private final class Segment {
+        final long baseSeq;
+        final File dataFile;
+        final File indexFile;
+        int count;
+        long dataLength;
+
+        Segment(long baseSeq) {
+            this.baseSeq = baseSeq;
+            String name = String.format(Locale.US, "%020d", baseSeq);
+            this.dataFile = new File(dir, name + DATA_SUFFIX);
+            this.indexFile = new File(dir, name + INDEX_SUFFIX);
+        }
+
+        /**
+         * 读取分段元数据，截断不完整的尾部
+         *
+         * @return 分段是否有效
+         */
+        boolean load() throws IOException {
+            if (!dataFile.exists()) {
+                return false;
+            }
+            try (RandomAccessFile index = new RandomAccessFile(indexFile, "rw");
+                 RandomAccessFile data = new RandomAccessFile(dataFile, "rw")) {
+                if (index.length() < INDEX_HEADER_SIZE
+                        || index.readInt() != INDEX_MAGIC
+                        || index.readInt() != INDEX_VERSION) {
+                    return false;
+                }
+                count = (int) ((index.length() - INDEX_HEADER_SIZE) / INDEX_ENTRY_SIZE);
+                dataLength = 0;
+                while (count > 0) {
+                    index.seek(INDEX_HEADER_SIZE + (long) (count - 1) * INDEX_ENTRY_SIZE + 8);
+                    long end = (long) index.readInt() + index.readInt();
+                    if (end <= data.length()) {
+                        dataLength = end;
+                        break;
+                    }
+                    count--;
+                }
+                index.setLength(INDEX_HEADER_SIZE + (long) count * INDEX_ENTRY_SIZE);
+                data.setLength(dataLength);
+            }
+            return count > 0;
+        }
+
+        void delete() {
+            if (dataFile.exists() && !dataFile.delete()) {
+                Log.w(TAG, "删除日志文件失败: " + dataFile.getName());
+            }
+            if (indexFile.exists() && !indexFile.delete()) {
+                Log.w(TAG, "删除日志索引失败: " + indexFile.getName());
+            }
+        }
+    }
+}
@@ -7,27 +7,66 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
+import com.biubush.autonet4ahu.model.LogRecord;
+
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 日志工具类，用于记录应用运行日志
+ * <p>
+ * 连续重复的日志合并为一条记录并累计重复次数；高频调用点可通过{@link #site}获取带令牌桶限流的记录器。
  */
 public class Logger {
     private static final String TAG = "AutoNet4AHU";
     private static final int MAX_LOG_SIZE = 1000; // 最大保存的日志条数
     private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.CHINA);
+    private static final SimpleDateFormat TIME_FORMAT = new SimpleDateFormat("HH:mm:ss.SSS", Locale.CHINA);
 
     private static List<String> logBuffer = new ArrayList<>();
     private static List<OnLogListener> listeners = new ArrayList<>();
     private static Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static volatile LogStore logStore;
+    
+    // 最近一条日志，用于合并连续重复
+    private static String lastLevel;
+    private static String lastMessage;
+    private static long lastSeq = -1;
+    private static int lastRepeatCount = 1;
+    private static long lastRepeatTime;
+    private static final AtomicBoolean repeatNotifyPending = new AtomicBoolean(false);
+    
+    // 统计计数
+    private static final AtomicLong collapsedCount = new AtomicLong();
+    private static final Map<String, AtomicLong> suppressedCounts = new ConcurrentHashMap<>();
+
+    /**
+     * 初始化持久化日志存储，应在Application创建时调用
+     *
+     * @param context 应用上下文
+     */
+    public static synchronized void init(Context context) {
+        if (logStore == null) {
+            logStore = new LogStore(context.getApplicationContext().getFilesDir());
+        }
+    }
+
+    /**
+     * 获取持久化日志存储
+     *
+     * @return 日志存储，未初始化时返回null
+     */
+    public static LogStore getStore() {
+        return logStore;
+    }
 
     /**
      * 记录调试信息
@@ -69,7 +108,19 @@ public class Logger {
      * 记录日志
      */
     private static synchronized void log(String level, String message) {
-        String timestamp = DATE_FORMAT.format(new Date());
+        long now = System.currentTimeMillis();
+        
+        // 与上一条完全相同时只累加重复次数
+        if (level.equals(lastLevel) && message.equals(lastMessage)
+                && (logStore == null || logStore.repeatLast(lastSeq, now))) {
+            lastRepeatCount++;
+            lastRepeatTime = now;
+            collapsedCount.incrementAndGet();
+            notifyRepeat();
+            return;
+        }
+        
+        String timestamp = DATE_FORMAT.format(new Date(now));
         String logMessage = timestamp + " [" + level + "] " + message;
         
         // 输出到Android日志
@@ -91,16 +142,77 @@ public class Logger {
                 break;
         }
         
+        // 上一条的重复次数写回内存缓冲
+        applyRepeatToBuffer(logBuffer);
+        
         // 添加到内存缓冲
         logBuffer.add(logMessage);
         if (logBuffer.size() > MAX_LOG_SIZE) {
             logBuffer.remove(0);
         }
         
+        // 写入持久化存储
+        if (logStore != null) {
+            lastSeq = logStore.append(now, LogRecord.levelOf(level), logMessage);
+        }
+        lastLevel = level;
+        lastMessage = message;
+        lastRepeatCount = 1;
+        
         // 通知所有监听器
         notifyListeners(logMessage);
     }
 
+    /**
+     * 为缓冲中最后一条日志追加重复次数
+     */
+    private static void applyRepeatToBuffer(List<String> buffer) {
+        if (lastRepeatCount > 1 && !buffer.isEmpty()) {
+            int last = buffer.size() - 1;
+            buffer.set(last, withRepeat(buffer.get(last)));
+        }
+    }
+    
+    /**
+     * 为日志行追加重复次数，调用方需持有Logger锁
+     */
+    private static String withRepeat(String logMessage) {
+        return logMessage + " [重复" + lastRepeatCount + "次，末次 " + TIME_FORMAT.format(new Date(lastRepeatTime)) + "]";
+    }
+    
+    /**
+     * 获取带重复次数的最后一条日志，缓冲为空时返回null
+     */
+    private static synchronized String lastLineWithRepeat() {
+        if (logBuffer.isEmpty()) {
+            return null;
+        }
+        String last = logBuffer.get(logBuffer.size() - 1);
+        return lastRepeatCount > 1 ? withRepeat(last) : last;
+    }
+    
+    /**
+     * 通知监听器最后一条日志有重复，同一时间只排队一次通知
+     * <p>
+     * 与{@link #notifyListeners}一样传递带时间戳和级别的完整日志行，日志行在执行时于锁内读取，
+     * 排队期间累加的重复次数也会带上。
+     */
+    private static void notifyRepeat() {
+        if (!repeatNotifyPending.compareAndSet(false, true)) {
+            return;
+        }
+        mainHandler.post(() -> {
+            repeatNotifyPending.set(false);
+            String line = lastLineWithRepeat();
+            if (line == null) {
+                return;
+            }
+            for (OnLogListener listener : listeners) {
+                listener.onNewLog(line);
+            }
+        });
+    }
+    
     /**
      * 通知所有日志监听器
      */
@@ -115,8 +227,10 @@ public class Logger {
     /**
      * 获取所有日志
      */
-    public static List<String> getLogs() {
-        return new ArrayList<>(logBuffer);
+    public static synchronized List<String> getLogs() {
+        List<String> logs = new ArrayList<>(logBuffer);
+        applyRepeatToBuffer(logs);
+        return logs;
     }
 
     /**
@@ -124,41 +238,89 @@ public class Logger {
      */
     public static synchronized void clearLogs() {
         logBuffer.clear();
+        lastLevel = null;
+        lastMessage = null;
+        lastRepeatCount = 1;
+        if (logStore != null) {
+            logStore.clear();
+        }
         i("日志已清空");
     }
 
     /**
-     * 将日志保存到文件
+     * 获取带限流的调用点记录器
+     *
+     * @param name 调用点名称，用于统计被抑制的日志
+     * @param burst 允许的突发条数
+     * @param perSecond 每秒允许的条数
+     * @return 调用点记录器
      */
-    public static boolean saveLogsToFile(Context context) {
-        if (logBuffer.isEmpty()) {
-            return false;
+    public static Site site(String name, int burst, double perSecond) {
+        return new Site(name, new TokenBucket(burst, perSecond));
+    }
+    
+    /**
+     * 获取因连续重复而合并的日志条数
+     */
+    public static long getCollapsedCount() {
+        return collapsedCount.get();
+    }
+    
+    /**
+     * 获取各调用点因限流被抑制的日志条数
+     */
+    public static Map<String, Long> getSuppressedCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> entry : suppressedCounts.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
         }
-
-        try {
-            File logDir = new File(context.getExternalFilesDir(null), "logs");
-            if (!logDir.exists()) {
-                logDir.mkdirs();
-            }
-
-            String fileName = "autonet4ahu_log_" + new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.CHINA).format(new Date()) + ".txt";
-            File logFile = new File(logDir, fileName);
-
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(logFile))) {
-                for (String log : logBuffer) {
-                    writer.write(log);
-                    writer.newLine();
-                }
+        return counts;
+    }
+    
+    /**
+     * 获取日志合并和限流统计摘要
+     */
+    public static String getStatsSummary() {
+        return "重复合并: " + collapsedCount.get() + "条，限流抑制: " + getSuppressedCounts();
+    }
+    
+    /**
+     * 带令牌桶限流的调用点记录器，用于回调风暴等高频日志
+     */
+    public static final class Site {
+        private final String name;
+        private final TokenBucket bucket;
+        
+        private Site(String name, TokenBucket bucket) {
+            this.name = name;
+            this.bucket = bucket;
+        }
+        
+        public void d(String message) {
+            log("DEBUG", message);
+        }
+        
+        public void i(String message) {
+            log("INFO", message);
+        }
+        
+        public void w(String message) {
+            log("WARN", message);
+        }
+        
+        public void e(String message) {
+            log("ERROR", message);
+        }
+        
+        private void log(String level, String message) {
+            if (bucket.tryAcquire()) {
+                Logger.log(level, message);
+                return;
             }
-            
-            i("日志已保存到文件: " + logFile.getAbsolutePath());
-            return true;
-        } catch (IOException e) {
-            e("保存日志失败", e);
-            return false;
+            suppressedCounts.computeIfAbsent(name, key -> new AtomicLong()).incrementAndGet();
         }
     }
-
+    
     /**
      * 添加日志监听器
      */
@@ -0,0 +1,25 @@
+package com.biubush.autonet4ahu.util;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * 使用内存中固定密钥的密钥提供者，仅用于JVM测试
+ */
+public class SoftwareKeyProvider implements KeyProvider {
+    private final SecretKey key;
+
+    /**
+     * 构造函数
+     *
+     * @param rawKey 16或32字节的AES密钥
+     */
+    public SoftwareKeyProvider(byte[] rawKey) {
+        this.key = new SecretKeySpec(rawKey.clone(), "AES");
+    }
+
+    @Override
+    public SecretKey getKey() {
+        return key;
+    }
+}
@@ -0,0 +1,71 @@
+package com.biubush.autonet4ahu.util;
+
+/**
+ * 令牌桶限流器
+ * <p>
+ * 桶容量决定允许的突发量，令牌按固定速率补充，线程安全。
+ */
+public class TokenBucket {
+    private final double capacity;
+    private final double refillPerNano;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * 构造函数
+     *
+     * @param capacity 桶容量（最大突发量）
+     * @param refillPerSecond 每秒补充的令牌数
+     */
+    public TokenBucket(double capacity, double refillPerSecond) {
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / 1e9;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * 尝试获取一个令牌
+     *
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * 尝试获取指定数量的令牌
+     *
+     * @param permits 令牌数量
+     * @return 是否获取成功
+     */
+    public synchronized boolean tryAcquire(double permits) {
+        refill();
+        if (tokens >= permits) {
+            tokens -= permits;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 计算获取指定数量令牌还需等待的时间
+     *
+     * @param permits 令牌数量，超过桶容量时按桶容量计算
+     * @return 需要等待的纳秒数，0表示可以立即获取
+     */
+    public synchronized long nanosUntilAvailable(double permits) {
+        refill();
+        double missing = Math.min(permits, capacity) - tokens;
+        if (missing <= 0) {
+            return 0;
+        }
+        return refillPerNano > 0 ? (long) Math.ceil(missing / refillPerNano) : Long.MAX_VALUE;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerNano);
+        lastRefill = now;
+    }
+}
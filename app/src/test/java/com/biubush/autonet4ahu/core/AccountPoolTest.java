@@ -0,0 +1,109 @@
+package com.biubush.autonet4ahu.core;
+
+import com.biubush.autonet4ahu.model.Credentials;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 账号池的单元测试，包括健康状况排序、冷却时间递增和配置更新时保留健康记录
+ */
+public class AccountPoolTest {
+    private static final long MINUTE = 60 * 1000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long NOW = 1700000000000L;
+
+    private final Credentials a = Credentials.of("E00000001", "a");
+    private final Credentials b = Credentials.of("E00000002", "b");
+    private final Credentials c = Credentials.of("E00000003", "c");
+
+    private static AccountPool poolOf(Credentials... accounts) {
+        AccountPool pool = new AccountPool();
+        pool.update(Arrays.asList(accounts));
+        return pool;
+    }
+
+    @Test
+    public void newAccountsKeepConfigOrder() {
+        assertEquals(Arrays.asList(a, b, c), poolOf(a, b, c).ordered(NOW));
+    }
+
+    @Test
+    public void mostRecentSuccessComesFirst() {
+        AccountPool pool = poolOf(a, b, c);
+        pool.recordSuccess(c, NOW - 2 * MINUTE);
+        pool.recordSuccess(b, NOW - MINUTE);
+        assertEquals(Arrays.asList(b, c, a), pool.ordered(NOW));
+    }
+
+    @Test
+    public void coolingAccountsGoLastEarliestFirst() {
+        AccountPool pool = poolOf(a, b, c);
+        pool.recordFailure(a, PortalResponseClassifier.Category.TERMINAL, NOW);
+        pool.recordFailure(b, PortalResponseClassifier.Category.ACCOUNT_LIMIT, NOW);
+        List<Credentials> ordered = pool.ordered(NOW + 1);
+        // b冷却10分钟，a冷却6小时
+        assertEquals(Arrays.asList(c, b, a), ordered);
+        assertTrue(pool.isCoolingDown(a, NOW + 1));
+        assertFalse(pool.isCoolingDown(c, NOW + 1));
+    }
+
+    @Test
+    public void limitCooldownDoublesUpToLimit() {
+        AccountPool pool = poolOf(a);
+        pool.recordFailure(a, PortalResponseClassifier.Category.ACCOUNT_LIMIT, NOW);
+        assertTrue(pool.isCoolingDown(a, NOW + 10 * MINUTE - 1));
+        assertFalse(pool.isCoolingDown(a, NOW + 10 * MINUTE));
+
+        pool.recordFailure(a, PortalResponseClassifier.Category.ACCOUNT_LIMIT, NOW);
+        assertTrue(pool.isCoolingDown(a, NOW + 20 * MINUTE - 1));
+        assertFalse(pool.isCoolingDown(a, NOW + 20 * MINUTE));
+
+        // 翻倍到第6次后不再增长：10分钟 × 2^5
+        for (int i = 0; i < 10; i++) {
+            pool.recordFailure(a, PortalResponseClassifier.Category.ACCOUNT_LIMIT, NOW);
+        }
+        assertTrue(pool.isCoolingDown(a, NOW + 320 * MINUTE - 1));
+        assertFalse(pool.isCoolingDown(a, NOW + 320 * MINUTE));
+    }
+
+    @Test
+    public void terminalFailureCoolsForSixHours() {
+        AccountPool pool = poolOf(a);
+        pool.recordFailure(a, PortalResponseClassifier.Category.TERMINAL, NOW);
+        assertTrue(pool.isCoolingDown(a, NOW + 6 * HOUR - 1));
+        assertFalse(pool.isCoolingDown(a, NOW + 6 * HOUR));
+    }
+
+    @Test
+    public void successResetsCooldownAndEscalation() {
+        AccountPool pool = poolOf(a);
+        pool.recordFailure(a, PortalResponseClassifier.Category.ACCOUNT_LIMIT, NOW);
+        pool.recordFailure(a, PortalResponseClassifier.Category.ACCOUNT_LIMIT, NOW);
+        pool.recordSuccess(a, NOW + MINUTE);
+        assertFalse(pool.isCoolingDown(a, NOW + MINUTE));
+        pool.recordFailure(a, PortalResponseClassifier.Category.ACCOUNT_LIMIT, NOW + MINUTE);
+        assertFalse(pool.isCoolingDown(a, NOW + 11 * MINUTE));
+    }
+
+    @Test
+    public void updateKeepsHealthOfUnchangedAccounts() {
+        AccountPool pool = poolOf(a, b);
+        pool.recordFailure(a, PortalResponseClassifier.Category.TERMINAL, NOW);
+        pool.recordFailure(b, PortalResponseClassifier.Category.TERMINAL, NOW);
+
+        // a未改动（重新构造的凭据指纹相同），b的密码已修改
+        Credentials sameA = Credentials.of("E00000001", "a");
+        Credentials newB = Credentials.of("E00000002", "b2");
+        pool.update(Arrays.asList(sameA, newB));
+        assertTrue(pool.isCoolingDown(sameA, NOW + 1));
+        assertFalse(pool.isCoolingDown(newB, NOW + 1));
+        assertEquals(Arrays.asList(newB, sameA), pool.ordered(NOW + 1));
+    }
+}
@@ -0,0 +1,110 @@
+package com.biubush.autonet4ahu.core;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 联网验证的单元测试，使用替身传输层模拟探测结果
+ */
+public class ConnectivityValidatorTest {
+    private static final List<String> PROBES = Arrays.asList("http://a.test/generate_204", "http://b.test/generate_204");
+
+    private ConnectivityValidator validator;
+
+    /**
+     * 每次请求都返回同一个响应的传输层
+     */
+    private static PortalTransport respond(int code, boolean networkBound) {
+        return (url, timeoutMs, readBody) -> new PortalTransport.Response(code, "", networkBound);
+    }
+
+    private ConnectivityValidator.Result validate(PortalTransport transport, long deadlineMs) {
+        validator = new ConnectivityValidator(transport, PROBES);
+        return validator.validate(deadlineMs);
+    }
+
+    @After
+    public void tearDown() {
+        if (validator != null) {
+            validator.shutdown();
+        }
+    }
+
+    @Test
+    public void boundNoContentIsConnected() {
+        ConnectivityValidator.Result result = validate(respond(204, true), 2000);
+        assertEquals(ConnectivityValidator.Outcome.CONNECTED, result.getOutcome());
+        assertTrue(result.isConnected());
+        assertTrue(result.isNetworkBound());
+        assertTrue(PROBES.contains(result.getProbeUrl()));
+    }
+
+    @Test
+    public void unboundNoContentIsUnknown() {
+        long start = System.nanoTime();
+        ConnectivityValidator.Result result = validate(respond(204, false), 2000);
+        assertEquals(ConnectivityValidator.Outcome.UNKNOWN, result.getOutcome());
+        assertFalse(result.isConnected());
+        assertFalse(result.isNetworkBound());
+        assertNull(result.getProbeUrl());
+        // 所有探测都未经WiFi时不必等到期限
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 1500);
+    }
+
+    @Test
+    public void redirectToPortalIsBlocked() {
+        // 被拦截的探测重定向到认证页面，跟随重定向后得到200
+        ConnectivityValidator.Result result = validate((url, timeoutMs, readBody) ->
+                new PortalTransport.Response(url.contains("a.test") ? 302 : 200, "<html>portal</html>", true), 600);
+        assertEquals(ConnectivityValidator.Outcome.BLOCKED, result.getOutcome());
+        assertFalse(result.isConnected());
+        assertTrue(result.getElapsedMs() >= 500);
+    }
+
+    @Test
+    public void boundWinsOverUnbound() {
+        ConnectivityValidator.Result result = validate((url, timeoutMs, readBody) ->
+                new PortalTransport.Response(204, "", url.contains("b.test")), 2000);
+        assertEquals(ConnectivityValidator.Outcome.CONNECTED, result.getOutcome());
+        assertEquals(PROBES.get(1), result.getProbeUrl());
+    }
+
+    @Test
+    public void allProbesTimingOutIsBlocked() {
+        ConnectivityValidator.Result result = validate((url, timeoutMs, readBody) -> {
+            try {
+                Thread.sleep(timeoutMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new SocketTimeoutException("timeout");
+        }, 400);
+        assertEquals(ConnectivityValidator.Outcome.BLOCKED, result.getOutcome());
+        assertFalse(result.isConnected());
+        assertTrue(result.getElapsedMs() >= 350);
+    }
+
+    @Test
+    public void connectionErrorsAreRetried() {
+        int[] calls = new int[1];
+        ConnectivityValidator.Result result = validate((url, timeoutMs, readBody) -> {
+            synchronized (calls) {
+                if (++calls[0] <= 2) {
+                    throw new IOException("refused");
+                }
+            }
+            return new PortalTransport.Response(204, "", true);
+        }, 2000);
+        assertEquals(ConnectivityValidator.Outcome.CONNECTED, result.getOutcome());
+    }
+}
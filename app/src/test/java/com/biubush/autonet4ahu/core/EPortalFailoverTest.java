@@ -0,0 +1,129 @@
+package com.biubush.autonet4ahu.core;
+
+import com.biubush.autonet4ahu.model.Credentials;
+import com.biubush.autonet4ahu.model.LoginResult;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 按账号池登录的单元测试：只在与账号有关的失败时换用账号，冷却中的账号不继续尝试
+ */
+public class EPortalFailoverTest {
+    private static final String HOST = "172.16.253.3";
+    private static final String OK = "";
+    private static final String TERMINAL = "userid error1";
+    private static final String LIMIT = "终端数已达上限";
+    private static final String BUSY = "系统繁忙，请稍后再试";
+
+    /**
+     * 替身网关：按学号返回预设的登录结果，记录登录请求使用的学号
+     */
+    private static final class FakePortal implements PortalTransport {
+        final List<String> logins = new ArrayList<>();
+        final Map<String, String> replies = new ConcurrentHashMap<>();
+
+        @Override
+        public Response get(String url, int timeoutMs, boolean readBody) {
+            if (url.contains("/a79.htm")) {
+                return new Response(200, "", true);
+            }
+            if (url.contains("a=login")) {
+                int start = url.indexOf("user_account=") + "user_account=".length();
+                String studentId = url.substring(start, url.indexOf('&', start));
+                synchronized (this) {
+                    logins.add(studentId);
+                }
+                String msg = replies.getOrDefault(studentId, OK);
+                String result = msg.isEmpty() ? "1" : "0";
+                return new Response(200, "dr1003({\"result\":\"" + result + "\",\"ret_code\":\"1\",\"msg\":\"" + msg + "\"})", true);
+            }
+            return new Response(404, "", true);
+        }
+
+        synchronized List<String> takeLogins() {
+            List<String> taken = new ArrayList<>(logins);
+            logins.clear();
+            return taken;
+        }
+    }
+
+    private final Credentials a = Credentials.of("E00000001", "a");
+    private final Credentials b = Credentials.of("E00000002", "b");
+    private final Credentials c = Credentials.of("E00000003", "c");
+
+    private FakePortal portal;
+    private PortalEndpoints endpoints;
+    private EPortal ePortal;
+    private AccountPool pool;
+
+    @Before
+    public void setUp() {
+        portal = new FakePortal();
+        endpoints = new PortalEndpoints(portal, Collections.singletonList(HOST));
+        ePortal = new EPortal(() -> "10.0.0.1", endpoints);
+        pool = new AccountPool();
+        pool.update(Arrays.asList(a, b, c));
+    }
+
+    @After
+    public void tearDown() {
+        ePortal.getProfileDiscovery().shutdown();
+        endpoints.shutdown();
+    }
+
+    @Test
+    public void primarySuccessDoesNotTouchBackups() {
+        assertTrue(ePortal.login(pool).isSuccess());
+        assertEquals(Collections.singletonList("E00000001"), portal.takeLogins());
+    }
+
+    @Test
+    public void accountSpecificFailuresFailOver() {
+        portal.replies.put("E00000001", TERMINAL);
+        portal.replies.put("E00000002", LIMIT);
+        LoginResult result = ePortal.login(pool);
+        assertTrue(result.isSuccess());
+        assertEquals(Arrays.asList("E00000001", "E00000002", "E00000003"), portal.takeLogins());
+        assertEquals("E00000003", ePortal.getLastStudentId());
+
+        // 下次直接使用刚登录成功的账号，失败的账号在冷却中
+        assertTrue(ePortal.login(pool).isSuccess());
+        assertEquals(Collections.singletonList("E00000003"), portal.takeLogins());
+        assertTrue(pool.isCoolingDown(a, System.currentTimeMillis()));
+        assertTrue(pool.isCoolingDown(b, System.currentTimeMillis()));
+    }
+
+    @Test
+    public void retryableFailureDoesNotFailOver() {
+        portal.replies.put("E00000001", BUSY);
+        assertFalse(ePortal.login(pool).isSuccess());
+        assertEquals(Collections.singletonList("E00000001"), portal.takeLogins());
+        assertFalse(pool.isCoolingDown(a, System.currentTimeMillis()));
+    }
+
+    @Test
+    public void stopsAtFirstCoolingAccount() {
+        portal.replies.put("E00000001", LIMIT);
+        portal.replies.put("E00000002", LIMIT);
+        portal.replies.put("E00000003", LIMIT);
+        assertFalse(ePortal.login(pool).isSuccess());
+        assertEquals(3, portal.takeLogins().size());
+
+        // 全部在冷却中时只尝试最早结束冷却的一个
+        assertFalse(ePortal.login(pool).isSuccess());
+        assertEquals(Collections.singletonList("E00000001"), portal.takeLogins());
+    }
+}
@@ -0,0 +1,170 @@
+package com.biubush.autonet4ahu.core;
+
+import com.biubush.autonet4ahu.model.Credentials;
+import com.biubush.autonet4ahu.model.LoginResult;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * IP变化时注销旧会话的单元测试，使用替身传输层记录请求顺序
+ */
+public class EPortalHandoverTest {
+    private static final String HOST = "172.16.253.3";
+
+    /**
+     * 替身网关：记录每个请求的发出时间，注销请求较慢
+     */
+    private final class FakePortal implements PortalTransport {
+        final List<String> urls = new ArrayList<>();
+        final List<Long> sentAt = new ArrayList<>();
+        volatile boolean campusReachable = true;
+        volatile String loginResult = "1";
+        volatile long logoutDelayMs = 1000;
+
+        @Override
+        public Response get(String url, int timeoutMs, boolean readBody) {
+            synchronized (this) {
+                urls.add(url);
+                sentAt.add(System.nanoTime());
+            }
+            if (url.contains("/a79.htm")) {
+                return new Response(campusReachable ? 200 : 404, "", true);
+            }
+            if (url.contains("a=logout")) {
+                sleep(logoutDelayMs);
+                return new Response(200, "dr1003({\"result\":\"1\"})", true);
+            }
+            if (url.contains("a=login")) {
+                return new Response(200, "dr1003({\"result\":\"" + loginResult + "\",\"ret_code\":\"1\"})", true);
+            }
+            return new Response(404, "", true);
+        }
+
+        synchronized int indexOf(String fragment) {
+            for (int i = 0; i < urls.size(); i++) {
+                if (urls.get(i).contains(fragment)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        synchronized long count(String fragment) {
+            return urls.stream().filter(u -> u.contains(fragment)).count();
+        }
+
+        synchronized void clear() {
+            urls.clear();
+            sentAt.clear();
+        }
+    }
+
+    private FakePortal portal;
+    private PortalEndpoints endpoints;
+    private EPortal ePortal;
+    private volatile String ip = "10.0.0.1";
+    private final Credentials credentials = Credentials.of("E12345678", "password");
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        portal = new FakePortal();
+        endpoints = new PortalEndpoints(portal, Collections.singletonList(HOST));
+        ePortal = new EPortal(() -> ip, endpoints);
+    }
+
+    @After
+    public void tearDown() {
+        ePortal.getProfileDiscovery().shutdown();
+        endpoints.shutdown();
+    }
+
+    @Test
+    public void logoutIsSentBeforeLoginWithinGrace() {
+        assertTrue(ePortal.login(credentials).isSuccess());
+        assertEquals(-1, portal.indexOf("a=logout"));
+        portal.clear();
+
+        ip = "10.0.0.2";
+        LoginResult result = ePortal.login(credentials);
+        assertTrue(result.isSuccess());
+        int logout = portal.indexOf("a=logout");
+        int login = portal.indexOf("a=login");
+        assertTrue(logout >= 0 && logout < login);
+        assertTrue(portal.urls.get(logout).contains("wlan_user_ip=10.0.0.1&"));
+        assertTrue(portal.urls.get(login).contains("wlan_user_ip=10.0.0.2"));
+
+        // 注销迟迟未应答时，登录只等待约300ms
+        long waitedMs = (portal.sentAt.get(login) - portal.sentAt.get(logout)) / 1_000_000;
+        assertTrue("等待了" + waitedMs + "ms", waitedMs >= 250 && waitedMs < 900);
+        assertEquals(1, ePortal.getHandoverCount());
+    }
+
+    @Test
+    public void fastLogoutDoesNotDelayLogin() {
+        portal.logoutDelayMs = 0;
+        assertTrue(ePortal.login(credentials).isSuccess());
+        portal.clear();
+        ip = "10.0.0.2";
+        assertTrue(ePortal.login(credentials).isSuccess());
+        int logout = portal.indexOf("a=logout");
+        int login = portal.indexOf("a=login");
+        assertTrue(logout >= 0 && logout < login);
+        assertTrue((portal.sentAt.get(login) - portal.sentAt.get(logout)) / 1_000_000 < 250);
+    }
+
+    @Test
+    public void failedAttemptKeepsLastSessionIp() {
+        assertTrue(ePortal.login(credentials).isSuccess());
+
+        // IP变化后先失败一次（不在校园网内），没有发出注销
+        ip = "10.0.0.2";
+        portal.campusReachable = false;
+        assertFalse(ePortal.login(credentials).isSuccess());
+        assertEquals(0, portal.count("a=logout"));
+
+        // 再次变化后注销的是最近一次登录成功时的IP
+        ip = "10.0.0.3";
+        portal.campusReachable = true;
+        portal.logoutDelayMs = 0;
+        assertTrue(ePortal.login(credentials).isSuccess());
+        assertEquals(1, portal.count("a=logout"));
+        assertTrue(portal.urls.get(portal.indexOf("a=logout")).contains("wlan_user_ip=10.0.0.1&"));
+    }
+
+    @Test
+    public void oldSessionIsLoggedOutOnlyOnce() {
+        portal.logoutDelayMs = 0;
+        assertTrue(ePortal.login(credentials).isSuccess());
+        ip = "10.0.0.2";
+        portal.loginResult = "0";
+        assertFalse(ePortal.login(credentials).isSuccess());
+        assertFalse(ePortal.login(credentials).isSuccess());
+        assertEquals(1, portal.count("a=logout"));
+    }
+
+    @Test
+    public void restoredSessionIsLoggedOutAfterIpChange() {
+        portal.logoutDelayMs = 0;
+        ePortal.restoreSession("10.0.0.9", 1);
+        assertTrue(ePortal.login(credentials).isSuccess());
+        assertTrue(portal.urls.get(portal.indexOf("a=logout")).contains("wlan_user_ip=10.0.0.9&"));
+    }
+}
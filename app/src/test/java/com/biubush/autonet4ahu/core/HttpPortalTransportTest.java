@@ -0,0 +1,111 @@
+package com.biubush.autonet4ahu.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 在暂存连接上收发请求的单元测试：只有请求确定没有送达时才允许改用新连接重发
+ */
+public class HttpPortalTransportTest {
+    private ServerSocket server;
+    private URL url;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        url = new URL("http://127.0.0.1:" + server.getLocalPort() + "/eportal/?c=Portal&a=login");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    /**
+     * 在后台接受一个连接，读完请求头后按reply处理
+     */
+    private CountDownLatch serve(String reply, boolean readRequest) {
+        CountDownLatch done = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            try (Socket socket = server.accept()) {
+                if (readRequest) {
+                    readHead(socket.getInputStream());
+                    requests.incrementAndGet();
+                }
+                if (reply != null) {
+                    OutputStream out = socket.getOutputStream();
+                    out.write(reply.getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                } else if (readRequest) {
+                    // 处理请求但迟迟不应答
+                    Thread.sleep(1000);
+                }
+            } catch (IOException | InterruptedException ignored) {
+            } finally {
+                done.countDown();
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return done;
+    }
+
+    private static void readHead(InputStream in) throws IOException {
+        int matched = 0;
+        int b;
+        while (matched < 4 && (b = in.read()) != -1) {
+            matched = (b == "\r\n\r\n".charAt(matched)) ? matched + 1 : (b == '\r' ? 1 : 0);
+        }
+    }
+
+    @Test
+    public void responseIsParsed() throws Exception {
+        serve("HTTP/1.1 200 OK\r\nContent-Length: 5\r\n\r\nhello", true);
+        try (Socket socket = new Socket(url.getHost(), url.getPort())) {
+            PortalTransport.Response response = HttpPortalTransport.exchange(socket, url, 2000, true);
+            assertEquals(200, response.getCode());
+            assertEquals("hello", response.getBody());
+        }
+    }
+
+    @Test
+    public void closedBeforeStatusLineReturnsNull() throws Exception {
+        CountDownLatch done = serve(null, false);
+        try (Socket socket = new Socket(url.getHost(), url.getPort())) {
+            assertTrue(done.await(2, TimeUnit.SECONDS));
+            // 网关已关闭空闲连接，可以安全重发
+            assertNull(HttpPortalTransport.exchange(socket, url, 2000, true));
+        }
+    }
+
+    @Test
+    public void readTimeoutAfterWriteIsNotRetried() throws Exception {
+        serve(null, true);
+        try (Socket socket = new Socket(url.getHost(), url.getPort())) {
+            HttpPortalTransport.exchange(socket, url, 200, true);
+            fail("请求已送达后的读超时应当抛出");
+        } catch (SocketTimeoutException expected) {
+            assertEquals(1, requests.get());
+        }
+    }
+}
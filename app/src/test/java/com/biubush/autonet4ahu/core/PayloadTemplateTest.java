@@ -0,0 +1,144 @@
+package com.biubush.autonet4ahu.core;
+
+import com.biubush.autonet4ahu.util.JsonBuffer;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+/**
+ * webhook消息模板的单元测试，包括模板校验、与org.json构造结果的对比和每条通知的分配量基准
+ */
+public class PayloadTemplateTest {
+
+    private static CharSequence[] sampleValues() {
+        CharSequence[] values = new CharSequence[PayloadTemplate.VARIABLE_COUNT];
+        values[PayloadTemplate.VAR_TITLE] = "校园网\"自动\"登录 😀";
+        values[PayloadTemplate.VAR_STUDENT_ID] = "E12345678";
+        values[PayloadTemplate.VAR_IP] = "10.0.0.1";
+        values[PayloadTemplate.VAR_RESULT] = "登录成功\\n\t\u0001</script>";
+        values[PayloadTemplate.VAR_TIME] = "2024-01-01 08:00:00";
+        values[PayloadTemplate.VAR_COUNT] = "3";
+        return values;
+    }
+
+    private static JSONObject render(PayloadTemplate template, CharSequence[] values) throws Exception {
+        JsonBuffer buffer = new JsonBuffer(64);
+        template.render(buffer, values);
+        return new JSONObject(new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 旧版Notifier的做法：拼接内容后用两层JSONObject序列化
+     */
+    private static String legacyWecom(CharSequence[] v) throws Exception {
+        String content = v[PayloadTemplate.VAR_TITLE] + "\n\n学号: " + v[PayloadTemplate.VAR_STUDENT_ID] +
+                "\nIP地址: " + v[PayloadTemplate.VAR_IP] + "\n登录结果: " + v[PayloadTemplate.VAR_RESULT] +
+                "\n时间: " + v[PayloadTemplate.VAR_TIME];
+        JSONObject text = new JSONObject();
+        text.put("content", content);
+        JSONObject message = new JSONObject();
+        message.put("msgtype", "text");
+        message.put("text", text);
+        return message.toString();
+    }
+
+    @Test
+    public void wecomTemplateMatchesJsonObject() throws Exception {
+        CharSequence[] values = sampleValues();
+        JSONObject rendered = render(PayloadTemplate.compile(PayloadTemplate.DEFAULT_WECOM_TEXT), values);
+        JSONObject legacy = new JSONObject(legacyWecom(values));
+        assertEquals(legacy.getString("msgtype"), rendered.getString("msgtype"));
+        assertEquals(legacy.getJSONObject("text").getString("content"), rendered.getJSONObject("text").getString("content"));
+    }
+
+    @Test
+    public void genericTemplateCarriesEveryVariable() throws Exception {
+        CharSequence[] values = sampleValues();
+        JSONObject rendered = render(PayloadTemplate.compile(PayloadTemplate.DEFAULT_GENERIC_JSON), values);
+        assertEquals("login", rendered.getString("event"));
+        assertEquals(values[PayloadTemplate.VAR_TITLE].toString(), rendered.getString("title"));
+        assertEquals(values[PayloadTemplate.VAR_RESULT].toString(), rendered.getString("result"));
+        assertEquals("3", rendered.getString("count"));
+    }
+
+    @Test
+    public void missingValuesRenderEmpty() throws Exception {
+        PayloadTemplate template = PayloadTemplate.compile("{\"a\":\"[{{ title }}]\",\"b\":\"{{ip}}\"}");
+        JSONObject rendered = render(template, new CharSequence[PayloadTemplate.VARIABLE_COUNT]);
+        assertEquals("[]", rendered.getString("a"));
+        assertEquals("", rendered.getString("b"));
+    }
+
+    @Test
+    public void invalidTemplatesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> PayloadTemplate.compile("{\"a\":\"{{unknown}}\"}"));
+        assertThrows(IllegalArgumentException.class, () -> PayloadTemplate.compile("{\"a\":\"{{title\"}"));
+        assertThrows(IllegalArgumentException.class, () -> PayloadTemplate.compile("{\"a\":\"x\""));
+        assertThrows(IllegalArgumentException.class, () -> PayloadTemplate.compile("[\"{{title}}\"]"));
+        // 占位符不在字符串中时渲染结果不是合法JSON
+        assertThrows(IllegalArgumentException.class, () -> PayloadTemplate.compile("{\"a\":{{count}}}"));
+    }
+
+    @Test
+    public void scansResultCode() throws Exception {
+        byte[] key = "\"errcode\"".getBytes(StandardCharsets.UTF_8);
+        assertEquals(0, scan("{\"errcode\":0,\"errmsg\":\"ok\"}", key));
+        assertEquals(-93000, scan("{\"errmsg\":\"invalid\", \"errcode\" : -93000}", key));
+        assertEquals(WebhookSink.NO_RESULT_CODE, scan("{\"errmsg\":\"ok\"}", key));
+        assertEquals(WebhookSink.NO_RESULT_CODE, scan("{\"errcode\":\"0\"}", key));
+    }
+
+    private static long scan(String body, byte[] key) throws Exception {
+        return WebhookSink.scanResultCode(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), key);
+    }
+
+    /**
+     * 每条通知的分配量和耗时基准，对比旧版拼接字符串再用JSONObject序列化
+     */
+    @Test
+    public void allocationBenchmark() throws Exception {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            System.out.println("PayloadTemplate基准: 当前JVM不支持统计线程分配量，跳过");
+            return;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        long threadId = Thread.currentThread().getId();
+        PayloadTemplate template = PayloadTemplate.compile(PayloadTemplate.DEFAULT_WECOM_TEXT);
+        CharSequence[] values = sampleValues();
+        JsonBuffer buffer = new JsonBuffer(512);
+        int rounds = 20000;
+
+        for (int i = 0; i < rounds; i++) {
+            template.render(buffer.reset(), values);
+            legacyWecom(values).getBytes(StandardCharsets.UTF_8);
+        }
+
+        long allocated = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            template.render(buffer.reset(), values);
+        }
+        long templateNanos = System.nanoTime() - start;
+        long templateBytes = threads.getThreadAllocatedBytes(threadId) - allocated;
+
+        allocated = threads.getThreadAllocatedBytes(threadId);
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            legacyWecom(values).getBytes(StandardCharsets.UTF_8);
+        }
+        long legacyNanos = System.nanoTime() - start;
+        long legacyBytes = threads.getThreadAllocatedBytes(threadId) - allocated;
+
+        System.out.println("PayloadTemplate基准: 模板渲染平均" + templateBytes / rounds + "字节/" + templateNanos / rounds +
+                "纳秒，旧版JSONObject平均" + legacyBytes / rounds + "字节/" + legacyNanos / rounds + "纳秒");
+    }
+}
@@ -0,0 +1,75 @@
+package com.biubush.autonet4ahu.core;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 网关节点选择的单元测试：幂等请求对冲，登录和注销只做故障转移
+ */
+public class PortalEndpointsTest {
+    private static final String SLOW = "10.0.0.1";
+    private static final String FAST = "10.0.0.2";
+
+    private final List<String> requested = new CopyOnWriteArrayList<>();
+    private PortalEndpoints endpoints;
+
+    /**
+     * 首选节点慢于对冲延迟，第二个节点立即应答
+     */
+    private PortalEndpoints slowPrimary(long delayMs) {
+        endpoints = new PortalEndpoints((url, timeoutMs, readBody) -> {
+            requested.add(url);
+            if (url.contains(SLOW)) {
+                try {
+                    Thread.sleep(delayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new PortalTransport.Response(200, url, true);
+        }, Arrays.asList(SLOW, FAST));
+        return endpoints;
+    }
+
+    @After
+    public void tearDown() {
+        if (endpoints != null) {
+            endpoints.shutdown();
+        }
+    }
+
+    @Test
+    public void idempotentRequestIsHedged() throws IOException {
+        PortalEndpoints.Reply reply = slowPrimary(1000).get(80, "/", 3000, true);
+        assertEquals(FAST, reply.getEndpoint().getHost());
+        assertEquals(2, requested.size());
+    }
+
+    @Test
+    public void sessionRequestIsNotHedged() throws IOException {
+        PortalEndpoints.Reply reply = slowPrimary(600).getWithFailover(801, "/eportal/portal/login", 3000, true);
+        assertEquals(SLOW, reply.getEndpoint().getHost());
+        assertEquals(1, requested.size());
+    }
+
+    @Test
+    public void sessionRequestFailsOverOnError() throws Exception {
+        endpoints = new PortalEndpoints((url, timeoutMs, readBody) -> {
+            requested.add(url);
+            if (url.contains(SLOW)) {
+                throw new IOException("refused");
+            }
+            return new PortalTransport.Response(200, "", true);
+        }, Arrays.asList(SLOW, FAST));
+        PortalEndpoints.Reply reply = endpoints.getWithFailoverAsync(801, "/eportal/portal/logout", 3000, false).get();
+        assertEquals(FAST, reply.getEndpoint().getHost());
+        assertEquals(2, requested.size());
+    }
+}
@@ -0,0 +1,145 @@
+package com.biubush.autonet4ahu.core;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 网关协议参数发现的单元测试，使用替身网关页面
+ */
+public class PortalProfileDiscoveryTest {
+    /**
+     * 替身网关首页：登录脚本的参数对象之外还有缓存参数和无关的dr开头单词
+     */
+    private static final String OBJECT_PAGE = "<html><head>" +
+            "<link rel=\"stylesheet\" href=\"/css/style.css?v=20231108\">" +
+            "<script src=\"/a41.js?v=_1700000000\"></script>" +
+            "<script>var cfg = { v: 2, theme: \"drblue\" }; var page = \"dr1999\";\n" +
+            "function login() { $.ajax({ url: \"/eportal/portal/login\", dataType: \"jsonp\", data: {\n" +
+            "  callback: \"dr1004\", login_method: \"1\", user_account: account, user_password: password,\n" +
+            "  wlan_user_ip: ip, wlan_vlan_id: \"1\", jsVersion: \"4.1.3\", terminal_type: 1, lang: \"zh-cn\", v: 10222\n" +
+            "} }); }</script></head></html>";
+
+    /**
+     * 替身网关首页：登录地址以查询串写在脚本中
+     */
+    private static final String QUERY_PAGE = "<script src=\"/js/jquery.js?v=3\"></script><script>" +
+            "var url = \"http://172.16.253.3:801/eportal/?c=Portal&a=login&callback=dr1005&login_method=2" +
+            "&jsVersion=3.3.3&v=1200&wlan_user_ip=\" + ip;</script>";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PortalEndpoints endpoints;
+    private PortalProfileDiscovery discovery;
+
+    @After
+    public void tearDown() {
+        if (discovery != null) {
+            discovery.shutdown();
+        }
+        if (endpoints != null) {
+            endpoints.shutdown();
+        }
+    }
+
+    @Test
+    public void parsesParameterObject() {
+        PortalProfile profile = PortalProfileDiscovery.parse(OBJECT_PAGE, PortalProfile.DEFAULT, 1);
+        assertEquals("dr1004", profile.getCallback());
+        assertEquals("1", profile.getLoginMethod());
+        assertEquals("4.1.3", profile.getJsVersion());
+        assertEquals("10222", profile.getVersion());
+        assertEquals(1, profile.getDiscoveredAt());
+    }
+
+    @Test
+    public void parsesLoginQueryString() {
+        PortalProfile profile = PortalProfileDiscovery.parse(QUERY_PAGE, PortalProfile.DEFAULT, 1);
+        assertEquals("dr1005", profile.getCallback());
+        assertEquals("2", profile.getLoginMethod());
+        assertEquals("3.3.3", profile.getJsVersion());
+        assertEquals("1200", profile.getVersion());
+    }
+
+    @Test
+    public void ignoresTokensOutsideLoginParameters() {
+        String page = "<script src=\"/a.js?v=123\"></script><p>dr1888</p><script>var o = { v: 9 };</script>";
+        PortalProfile fallback = new PortalProfile("dr1003", "1", "3.3.2", "1117", 0);
+        PortalProfile profile = PortalProfileDiscovery.parse(page, fallback, 1);
+        assertEquals(fallback.getVersionHash(), profile.getVersionHash());
+    }
+
+    @Test
+    public void conflictingCandidatesUseDefaults() {
+        String page = OBJECT_PAGE + QUERY_PAGE;
+        PortalProfile previous = new PortalProfile("dr1007", "3", "5.0.0", "1", 0);
+        PortalProfile profile = PortalProfileDiscovery.parse(page, previous, 1);
+        assertEquals(PortalProfile.DEFAULT.getCallback(), profile.getCallback());
+        assertEquals(PortalProfile.DEFAULT.getLoginMethod(), profile.getLoginMethod());
+        assertEquals(PortalProfile.DEFAULT.getJsVersion(), profile.getJsVersion());
+        assertEquals(PortalProfile.DEFAULT.getVersion(), profile.getVersion());
+    }
+
+    @Test
+    public void currentDoesNotBlockAndResultIsPersisted() {
+        AtomicInteger fetches = new AtomicInteger();
+        endpoints = new PortalEndpoints((url, timeoutMs, readBody) -> {
+            fetches.incrementAndGet();
+            return new PortalTransport.Response(200, OBJECT_PAGE, true);
+        }, Collections.singletonList("172.16.253.3"));
+        File file = new File(folder.getRoot(), "portal_profile.bin");
+
+        discovery = new PortalProfileDiscovery(endpoints, PortalProfileDiscovery.DEFAULT_TTL_MS, file);
+        assertSame(PortalProfile.DEFAULT, discovery.current());
+        assertTrue(discovery.awaitRefresh(5000));
+        assertEquals("dr1004", discovery.current().getCallback());
+        assertEquals(1, fetches.get());
+        discovery.shutdown();
+
+        // 重启后直接使用保存的参数，有效期内不访问网关
+        discovery = new PortalProfileDiscovery(endpoints, PortalProfileDiscovery.DEFAULT_TTL_MS, file);
+        assertEquals("10222", discovery.current().getVersion());
+        assertTrue(discovery.awaitRefresh(5000));
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    public void invalidateRefreshesInBackground() {
+        AtomicInteger fetches = new AtomicInteger();
+        endpoints = new PortalEndpoints((url, timeoutMs, readBody) -> {
+            return new PortalTransport.Response(200, fetches.incrementAndGet() == 1 ? OBJECT_PAGE : QUERY_PAGE, true);
+        }, Collections.singletonList("172.16.253.3"));
+        discovery = new PortalProfileDiscovery(endpoints, PortalProfileDiscovery.DEFAULT_TTL_MS);
+        discovery.current();
+        assertTrue(discovery.awaitRefresh(5000));
+        assertEquals("dr1004", discovery.current().getCallback());
+
+        discovery.invalidate();
+        assertTrue(discovery.awaitRefresh(5000));
+        assertEquals("dr1005", discovery.current().getCallback());
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    public void corruptedFileFallsBackToDefault() throws Exception {
+        File file = folder.newFile("portal_profile.bin");
+        java.nio.file.Files.write(file.toPath(), new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+        endpoints = new PortalEndpoints((url, timeoutMs, readBody) -> {
+            throw new java.io.IOException("unreachable");
+        }, Collections.singletonList("172.16.253.3"));
+        discovery = new PortalProfileDiscovery(endpoints, PortalProfileDiscovery.DEFAULT_TTL_MS, file);
+        assertSame(PortalProfile.DEFAULT, discovery.current());
+        assertTrue(discovery.awaitRefresh(5000));
+        assertSame(PortalProfile.DEFAULT, discovery.current());
+    }
+}
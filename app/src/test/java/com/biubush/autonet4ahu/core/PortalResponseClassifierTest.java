@@ -0,0 +1,62 @@
+package com.biubush.autonet4ahu.core;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 登录响应分类的单元测试，重点是终止类错误只匹配明确指向账号本身的提示
+ */
+public class PortalResponseClassifierTest {
+
+    private static PortalResponseClassifier.Category classify(String msg) throws Exception {
+        JSONObject response = new JSONObject();
+        response.put("result", "0");
+        response.put("ret_code", "1");
+        response.put("msg", msg);
+        return PortalResponseClassifier.classify(response).getCategory();
+    }
+
+    private static String base64(String text) {
+        return Base64.getEncoder().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void successAndAlreadyOnline() throws Exception {
+        JSONObject success = new JSONObject().put("result", "1").put("msg", "认证成功");
+        assertEquals(PortalResponseClassifier.Category.SUCCESS, PortalResponseClassifier.classify(success).getCategory());
+        JSONObject online = new JSONObject().put("result", "0").put("ret_code", "2").put("msg", "");
+        assertEquals(PortalResponseClassifier.Category.ALREADY_ONLINE, PortalResponseClassifier.classify(online).getCategory());
+    }
+
+    @Test
+    public void accountErrorsAreTerminal() throws Exception {
+        assertEquals(PortalResponseClassifier.Category.TERMINAL, classify(base64("userid error1")));
+        assertEquals(PortalResponseClassifier.Category.TERMINAL, classify(base64("userid error2")));
+        assertEquals(PortalResponseClassifier.Category.TERMINAL, classify(base64("ldap auth error")));
+        assertEquals(PortalResponseClassifier.Category.TERMINAL, classify("账号或密码错误"));
+        assertEquals(PortalResponseClassifier.Category.TERMINAL, classify("您的账户已欠费，请充值"));
+        assertEquals(PortalResponseClassifier.Category.TERMINAL, classify("账号已过期"));
+        assertEquals(PortalResponseClassifier.Category.TERMINAL, classify("账号已注销"));
+    }
+
+    @Test
+    public void transientNoticesAreRetryable() throws Exception {
+        // 注销成功、会话过期、服务暂停和不带原因的auth error都不能让账号进入冷却
+        assertEquals(PortalResponseClassifier.Category.RETRYABLE, classify("注销成功"));
+        assertEquals(PortalResponseClassifier.Category.RETRYABLE, classify("会话已过期，请重新认证"));
+        assertEquals(PortalResponseClassifier.Category.RETRYABLE, classify("认证服务暂停，请稍后再试"));
+        assertEquals(PortalResponseClassifier.Category.RETRYABLE, classify(base64("auth error")));
+        assertEquals(PortalResponseClassifier.Category.RETRYABLE, classify("radius auth error, timeout"));
+        assertEquals(PortalResponseClassifier.Category.RETRYABLE, classify(""));
+    }
+
+    @Test
+    public void accountLimitIsNotTerminal() throws Exception {
+        assertEquals(PortalResponseClassifier.Category.ACCOUNT_LIMIT, classify("终端数已达上限"));
+    }
+}
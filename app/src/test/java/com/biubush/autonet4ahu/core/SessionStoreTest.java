@@ -0,0 +1,134 @@
+package com.biubush.autonet4ahu.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 持久化会话记录的单元测试，包括读写往返、损坏检测和网络匹配
+ */
+public class SessionStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static SessionStore.Session sample(boolean online) {
+        return new SessionStore.Session("AHU.WIFI", "aa:bb:cc:dd:ee:ff", "10.0.0.1", "172.16.253.3", 1700000000000L, online);
+    }
+
+    private static void assertSessionEquals(SessionStore.Session expected, SessionStore.Session actual) {
+        assertEquals(expected.getSsid(), actual.getSsid());
+        assertEquals(expected.getBssid(), actual.getBssid());
+        assertEquals(expected.getIpAddress(), actual.getIpAddress());
+        assertEquals(expected.getPortalHost(), actual.getPortalHost());
+        assertEquals(expected.getLoginAt(), actual.getLoginAt());
+        assertEquals(expected.isOnline(), actual.isOnline());
+    }
+
+    @Test
+    public void emptyDirectoryHasNoSession() {
+        SessionStore store = new SessionStore(folder.getRoot());
+        assertNull(store.get());
+        assertEquals(0, store.getAvoidedCount());
+    }
+
+    @Test
+    public void saveAndLoadRoundTrip() {
+        File dir = folder.getRoot();
+        SessionStore store = new SessionStore(dir);
+        store.save(sample(true));
+        store.recordAvoided();
+        store.recordAvoided();
+
+        SessionStore reloaded = new SessionStore(dir);
+        assertSessionEquals(sample(true), reloaded.get());
+        assertEquals(2, reloaded.getAvoidedCount());
+    }
+
+    @Test
+    public void nullFieldsBecomeEmpty() {
+        File dir = folder.getRoot();
+        new SessionStore(dir).save(new SessionStore.Session(null, null, null, null, 0, false));
+        SessionStore.Session session = new SessionStore(dir).get();
+        assertEquals("", session.getSsid());
+        assertEquals("", session.getBssid());
+        assertEquals("", session.getIpAddress());
+        assertEquals("", session.getPortalHost());
+    }
+
+    @Test
+    public void markOfflineIsPersisted() {
+        File dir = folder.getRoot();
+        SessionStore store = new SessionStore(dir);
+        store.save(sample(true));
+        store.markOffline();
+        assertFalse(store.get().isOnline());
+        assertSessionEquals(sample(false), new SessionStore(dir).get());
+    }
+
+    @Test
+    public void corruptedFileIsIgnored() throws Exception {
+        File dir = folder.getRoot();
+        new SessionStore(dir).save(sample(true));
+        File file = new File(dir, "session.bin");
+        byte[] data = Files.readAllBytes(file.toPath());
+        for (int i = 0; i < data.length; i++) {
+            byte[] corrupted = data.clone();
+            corrupted[i] ^= 0x10;
+            Files.write(file.toPath(), corrupted);
+            assertNull("第" + i + "字节损坏", new SessionStore(dir).get());
+        }
+    }
+
+    @Test
+    public void truncatedFileIsIgnored() throws Exception {
+        File dir = folder.getRoot();
+        new SessionStore(dir).save(sample(true));
+        File file = new File(dir, "session.bin");
+        byte[] data = Files.readAllBytes(file.toPath());
+        for (int length = 0; length < data.length; length++) {
+            Files.write(file.toPath(), Arrays.copyOf(data, length));
+            assertNull("长度" + length, new SessionStore(dir).get());
+        }
+    }
+
+    @Test
+    public void corruptedFileIsReplacedOnNextSave() throws Exception {
+        File dir = folder.getRoot();
+        File file = new File(dir, "session.bin");
+        Files.write(file.toPath(), new byte[]{0x41, 0x4E, 0x53, 0x53, 0, 1, 2, 3, 4, 5, 6, 7});
+        SessionStore store = new SessionStore(dir);
+        assertNull(store.get());
+        store.save(sample(true));
+        assertSessionEquals(sample(true), new SessionStore(dir).get());
+    }
+
+    @Test
+    public void matchesSameNetwork() {
+        SessionStore.Session session = sample(true);
+        assertTrue(session.matches("AHU.WIFI", "aa:bb:cc:dd:ee:ff", "10.0.0.1"));
+        // BSSID未知时只比较SSID和IP
+        assertTrue(session.matches("AHU.WIFI", null, "10.0.0.1"));
+        assertTrue(session.matches("AHU.WIFI", "", "10.0.0.1"));
+        SessionStore.Session noBssid = new SessionStore.Session("AHU.WIFI", null, "10.0.0.1", "", 0, true);
+        assertTrue(noBssid.matches("AHU.WIFI", "11:22:33:44:55:66", "10.0.0.1"));
+    }
+
+    @Test
+    public void doesNotMatchChangedNetwork() {
+        SessionStore.Session session = sample(true);
+        assertFalse(session.matches("AHU.GUEST", "aa:bb:cc:dd:ee:ff", "10.0.0.1"));
+        assertFalse(session.matches("AHU.WIFI", "11:22:33:44:55:66", "10.0.0.1"));
+        assertFalse(session.matches("AHU.WIFI", "aa:bb:cc:dd:ee:ff", "10.0.0.2"));
+        assertFalse(session.matches(null, "aa:bb:cc:dd:ee:ff", "10.0.0.1"));
+        assertFalse(session.matches("AHU.WIFI", "aa:bb:cc:dd:ee:ff", null));
+    }
+}
@@ -0,0 +1,68 @@
+package com.biubush.autonet4ahu.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 日志查询条件的单元测试，重点是索引剪枝用的必现字面文本
+ */
+public class LogQueryTest {
+
+    private static String literal(String regex) {
+        LogQuery query = new LogQuery();
+        query.setText(regex, true);
+        return query.requiredLiteral();
+    }
+
+    @Test
+    public void plainTextIsRequiredAsIs() {
+        LogQuery query = new LogQuery();
+        query.setText("(foo)?", false);
+        assertEquals("(foo)?", query.requiredLiteral());
+    }
+
+    @Test
+    public void longestLiteralRunIsExtracted() {
+        assertEquals("登录成功", literal("^登录成功.*IP"));
+        assertEquals("portal", literal("a.portal\\d+"));
+        assertEquals("172.16", literal("172\\.16"));
+    }
+
+    @Test
+    public void quantifiedCharacterIsDropped() {
+        assertEquals("logi", literal("login?x"));
+        assertEquals("abc", literal("abcd*"));
+        assertEquals("abc", literal("abcd{0,2}"));
+        assertEquals("ab", literal("ab+cd"));
+    }
+
+    @Test
+    public void quantifiedSupplementaryCharacterIsDroppedWhole() {
+        assertEquals("通知", literal("通知😀?"));
+    }
+
+    @Test
+    public void unmodelledConstructsDisablePruning() {
+        assertNull(literal("(foo)?bar"));
+        assertNull(literal("(?i)ERROR"));
+        assertNull(literal("foo|bar"));
+        assertNull(literal("登录[成失]败"));
+        assertNull(literal("\\Qa.b\\E"));
+        assertNull(literal("\\x41BC"));
+    }
+
+    @Test
+    public void textMatchesMessageOnly() {
+        LogRecord record = new LogRecord(1, 0, LogRecord.LEVEL_INFO, "2024-01-01 00:00:00.000 [INFO] 登录成功");
+        LogQuery query = new LogQuery();
+        query.setText("登录", false);
+        assertTrue(query.matches(record));
+        query.setText("INFO", false);
+        assertFalse(query.matches(record));
+        assertEquals("登录成功", record.getMessage());
+    }
+}
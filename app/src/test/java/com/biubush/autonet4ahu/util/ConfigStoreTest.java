@@ -0,0 +1,222 @@
+package com.biubush.autonet4ahu.util;
+
+import com.biubush.autonet4ahu.model.Account;
+import com.biubush.autonet4ahu.model.Config;
+
+import org.json.JSONArray;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 二进制配置文件的单元测试，包括编码往返、损坏检测和读写耗时基准
+ */
+public class ConfigStoreTest {
+    private static final byte[] KEY = new byte[16];
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static ConfigStore newStore(File dir) {
+        return new ConfigStore(dir, new CredentialVault(new SoftwareKeyProvider(KEY)));
+    }
+
+    private static Config sampleConfig() {
+        Config config = new Config();
+        config.setStudentId("E12345678");
+        config.setPassword("p@ss 密码&=");
+        config.setWebhookUrls(Arrays.asList(
+                "https://qyapi.weixin.qq.com/cgi-bin/webhook/send?key=aaa",
+                "https://qyapi.weixin.qq.com/cgi-bin/webhook/send?key=bbb"));
+        config.setAutoLogin(false);
+        config.setNotifyOnSuccess(false);
+        config.setLogShipUrl("https://logs.example.com/ingest");
+        config.setNotifyWindowSeconds(45);
+        config.setWebhookTemplate("{\"msgtype\":\"text\",\"text\":{\"content\":\"${message}\"}}");
+        config.setNotifyToFile(true);
+        config.setPortalHosts(Arrays.asList("172.16.253.3", "172.16.253.4"));
+        config.setBackupAccounts(Arrays.asList(new Account("E00000001", "a"), new Account("E00000002", "b")));
+        return config.freeze();
+    }
+
+    private static void assertConfigEquals(Config expected, Config actual) {
+        assertEquals(expected.getStudentId(), actual.getStudentId());
+        assertEquals(expected.getPassword(), actual.getPassword());
+        assertEquals(expected.getWebhookUrls(), actual.getWebhookUrls());
+        assertEquals(expected.isAutoLogin(), actual.isAutoLogin());
+        assertEquals(expected.isNotifyOnSuccess(), actual.isNotifyOnSuccess());
+        assertEquals(expected.getLogShipUrl(), actual.getLogShipUrl());
+        assertEquals(expected.getNotifyWindowSeconds(), actual.getNotifyWindowSeconds());
+        assertEquals(expected.getWebhookTemplate(), actual.getWebhookTemplate());
+        assertEquals(expected.isNotifyToFile(), actual.isNotifyToFile());
+        assertEquals(expected.getPortalHosts(), actual.getPortalHosts());
+        assertEquals(expected.getBackupAccounts(), actual.getBackupAccounts());
+    }
+
+    @Test
+    public void encodeDecodeRoundTrip() throws IOException {
+        ConfigStore store = newStore(folder.getRoot());
+        Config config = sampleConfig();
+        byte[] data = store.encode(config);
+        boolean[] plaintext = new boolean[1];
+        Config decoded = store.decode(ByteBuffer.wrap(data), plaintext);
+        assertConfigEquals(config, decoded);
+        assertFalse(plaintext[0]);
+    }
+
+    @Test
+    public void saveAndLoadRoundTrip() throws IOException {
+        File dir = folder.getRoot();
+        ConfigStore store = newStore(dir);
+        store.save(sampleConfig());
+        assertTrue(store.awaitWrites(5000));
+        assertConfigEquals(sampleConfig(), newStore(dir).load());
+    }
+
+    @Test
+    public void corruptedByteIsRejected() throws IOException {
+        ConfigStore store = newStore(folder.getRoot());
+        byte[] data = store.encode(sampleConfig());
+        for (int i = 6; i < data.length; i += 7) {
+            byte[] corrupted = data.clone();
+            corrupted[i] ^= 0x40;
+            assertRejected(store, corrupted);
+        }
+    }
+
+    @Test
+    public void truncatedFileIsRejected() throws IOException {
+        ConfigStore store = newStore(folder.getRoot());
+        byte[] data = store.encode(sampleConfig());
+        for (int length = 0; length < data.length; length++) {
+            assertRejected(store, Arrays.copyOf(data, length));
+        }
+    }
+
+    @Test
+    public void undecryptableCredentialsKeepOtherFields() throws IOException {
+        byte[] data = newStore(folder.getRoot()).encode(sampleConfig());
+        byte[] otherKey = new byte[16];
+        otherKey[0] = 1;
+        ConfigStore store = new ConfigStore(folder.newFolder(), new CredentialVault(new SoftwareKeyProvider(otherKey)));
+        Config decoded = store.decode(ByteBuffer.wrap(data), new boolean[1]);
+        assertEquals("", decoded.getStudentId());
+        assertFalse(decoded.isComplete());
+        assertTrue(decoded.getBackupAccounts().isEmpty());
+        assertEquals(sampleConfig().getWebhookUrls(), decoded.getWebhookUrls());
+        assertEquals(sampleConfig().getPortalHosts(), decoded.getPortalHosts());
+        assertEquals(sampleConfig().getLogShipUrl(), decoded.getLogShipUrl());
+        assertFalse(decoded.isAutoLogin());
+    }
+
+    @Test
+    public void storedPasswordIsReusedWithoutPlaintext() throws IOException {
+        File dir = folder.getRoot();
+        ConfigStore store = newStore(dir);
+        Config config = sampleConfig();
+        store.decode(ByteBuffer.wrap(store.encode(config)), new boolean[1]);
+
+        Config redacted = config.withoutPassword();
+        assertEquals(null, redacted.getPassword());
+        assertTrue(redacted.isPasswordStored());
+        assertTrue(redacted.isComplete());
+        Config decoded = store.decode(ByteBuffer.wrap(store.encode(redacted)), new boolean[1]);
+        assertEquals(config.getPassword(), decoded.getPassword());
+
+        // 学号变化时不能沿用旧密码
+        Config other = redacted.copy();
+        other.setStudentId("E87654321");
+        decoded = store.decode(ByteBuffer.wrap(store.encode(other)), new boolean[1]);
+        assertEquals("E87654321", decoded.getStudentId());
+        assertEquals("", decoded.getPassword());
+    }
+
+    @Test
+    public void storedBackupPasswordsAreReusedWithoutPlaintext() throws IOException {
+        ConfigStore store = newStore(folder.getRoot());
+        Config config = sampleConfig();
+        store.encode(config);
+
+        Config redacted = config.withoutPassword();
+        for (Account account : redacted.getBackupAccounts()) {
+            assertEquals("", account.getPassword());
+            assertTrue(account.isComplete());
+        }
+        Config decoded = store.decode(ByteBuffer.wrap(store.encode(redacted)), new boolean[1]);
+        assertEquals(config.getBackupAccounts(), decoded.getBackupAccounts());
+
+        // 新加的备用账号没有已保存的密码，不写入
+        Config added = redacted.copy();
+        List<Account> backups = new ArrayList<>(redacted.getBackupAccounts());
+        backups.add(Account.stored("E00000003"));
+        added.setBackupAccounts(backups);
+        decoded = store.decode(ByteBuffer.wrap(store.encode(added)), new boolean[1]);
+        assertEquals(config.getBackupAccounts(), decoded.getBackupAccounts());
+    }
+
+    private static void assertRejected(ConfigStore store, byte[] data) {
+        try {
+            store.decode(ByteBuffer.wrap(data), new boolean[1]);
+            fail("损坏的配置应被拒绝，长度" + data.length);
+        } catch (IOException expected) {
+            // 预期异常
+        }
+    }
+
+    /**
+     * 读写耗时基准，对比旧版每次读取都要重新解析的JSON字符串
+     */
+    @Test
+    public void loadBenchmark() throws Exception {
+        File dir = folder.getRoot();
+        ConfigStore store = newStore(dir);
+        Config config = sampleConfig();
+        int rounds = 2000;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            store.save(config);
+        }
+        assertTrue(store.awaitWrites(10000));
+        long saveNanos = System.nanoTime() - start;
+
+        ConfigStore reader = newStore(dir);
+        for (int i = 0; i < 200; i++) {
+            reader.load();
+        }
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            assertEquals(config.getStudentId(), reader.load().getStudentId());
+        }
+        long loadNanos = System.nanoTime() - start;
+
+        String webhookJson = new JSONArray(config.getWebhookUrls()).toString();
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            JSONArray array = new JSONArray(webhookJson);
+            List<String> urls = new ArrayList<>(array.length());
+            for (int j = 0; j < array.length(); j++) {
+                urls.add(array.getString(j));
+            }
+            assertEquals(2, urls.size());
+        }
+        long jsonNanos = System.nanoTime() - start;
+
+        System.out.println("ConfigStore基准: 连续保存" + rounds + "次（合并写入）" + TimeUnit.NANOSECONDS.toMicros(saveNanos) +
+                "微秒，读取文件平均" + TimeUnit.NANOSECONDS.toMicros(loadNanos / rounds) +
+                "微秒，旧版仅解析webhook JSON平均" + TimeUnit.NANOSECONDS.toMicros(jsonNanos / rounds) + "微秒");
+    }
+}
@@ -0,0 +1,86 @@
+package com.biubush.autonet4ahu.util;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * 凭据保险箱的单元测试，使用软件密钥
+ */
+public class CredentialVaultTest {
+    private static final byte[] KEY = new byte[16];
+
+    private static CredentialVault newVault(byte[] key) {
+        return new CredentialVault(new SoftwareKeyProvider(key));
+    }
+
+    @Test
+    public void sealOpenRoundTrip() throws IOException {
+        CredentialVault vault = newVault(KEY);
+        String[] opened = vault.open(vault.seal("E12345678", "p@ss 密码&=\u0000😀"));
+        assertArrayEquals(new String[]{"E12345678", "p@ss 密码&=\u0000😀"}, opened);
+    }
+
+    @Test
+    public void nullValuesBecomeEmpty() throws IOException {
+        CredentialVault vault = newVault(KEY);
+        assertArrayEquals(new String[]{"", ""}, vault.open(vault.seal(null, null)));
+    }
+
+    @Test
+    public void eachSealUsesFreshIv() throws IOException {
+        CredentialVault vault = newVault(KEY);
+        byte[] first = vault.seal("E12345678", "password");
+        byte[] second = vault.seal("E12345678", "password");
+        assertEquals(first.length, second.length);
+        assertFalse(Arrays.equals(first, second));
+    }
+
+    @Test
+    public void tamperedCiphertextIsRejected() throws IOException {
+        CredentialVault vault = newVault(KEY);
+        byte[] sealed = vault.seal("E12345678", "password");
+        for (int i = 2; i < sealed.length; i++) {
+            byte[] tampered = sealed.clone();
+            tampered[i] ^= 0x01;
+            assertRejected(vault, tampered);
+        }
+    }
+
+    @Test
+    public void wrongKeyIsRejected() throws IOException {
+        byte[] sealed = newVault(KEY).seal("E12345678", "password");
+        byte[] otherKey = new byte[16];
+        otherKey[0] = 1;
+        assertRejected(newVault(otherKey), sealed);
+    }
+
+    @Test
+    public void malformedInputIsRejected() throws IOException {
+        CredentialVault vault = newVault(KEY);
+        byte[] sealed = vault.seal("E12345678", "password");
+        byte[] badVersion = sealed.clone();
+        badVersion[0] = 9;
+        assertRejected(vault, badVersion);
+        byte[] badIvLength = sealed.clone();
+        badIvLength[1] = (byte) 0xFF;
+        assertRejected(vault, badIvLength);
+        assertRejected(vault, new byte[0]);
+        assertRejected(vault, Arrays.copyOf(sealed, 20));
+    }
+
+    private static void assertRejected(CredentialVault vault, byte[] sealed) {
+        try {
+            vault.open(sealed);
+            fail("损坏或密钥不匹配的密文应被拒绝");
+        } catch (IOException expected) {
+            // 预期异常
+        }
+    }
+}
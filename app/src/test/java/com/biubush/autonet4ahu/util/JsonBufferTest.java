@@ -0,0 +1,71 @@
+package com.biubush.autonet4ahu.util;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * JSON字节缓冲区的单元测试，转义结果用org.json解析回来比较
+ */
+public class JsonBufferTest {
+
+    private static String escaped(CharSequence text) {
+        return new String(new JsonBuffer(4).writeEscaped(text).toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 把转义结果放进JSON字符串中解析，应得到原文
+     */
+    private static String roundTrip(String text) throws Exception {
+        return new JSONObject("{\"v\":\"" + escaped(text) + "\"}").getString("v");
+    }
+
+    @Test
+    public void escapesQuotesAndBackslashes() throws Exception {
+        assertEquals("\\\"a\\\\b\\\"", escaped("\"a\\b\""));
+        assertEquals("say \"hi\" \\ ok", roundTrip("say \"hi\" \\ ok"));
+    }
+
+    @Test
+    public void escapesControlCharacters() throws Exception {
+        assertEquals("\\n\\r\\t\\u0000\\u0008\\u001f", escaped("\n\r\t\u0000\b\u001f"));
+        StringBuilder all = new StringBuilder();
+        for (char c = 0; c < 0x20; c++) {
+            all.append(c);
+        }
+        assertEquals(all.toString(), roundTrip(all.toString()));
+    }
+
+    @Test
+    public void encodesMultiByteAndNonBmp() throws Exception {
+        String text = "é 登录成功 😀 𠀀";
+        assertEquals(text, escaped(text));
+        assertEquals(text, roundTrip(text));
+        assertEquals(text.getBytes(StandardCharsets.UTF_8).length, new JsonBuffer(1).writeEscaped(text).size());
+    }
+
+    @Test
+    public void replacesUnpairedSurrogates() {
+        assertEquals("a�b�", escaped("a\uD83Db\uDE00"));
+        assertEquals("�", escaped("\uD83D"));
+    }
+
+    @Test
+    public void writesNumbers() {
+        JsonBuffer buffer = new JsonBuffer(2);
+        buffer.writeNumber(0).writeRaw(",".getBytes()).writeNumber(-42).writeRaw(",".getBytes())
+                .writeNumber(Long.MAX_VALUE);
+        assertEquals("0,-42," + Long.MAX_VALUE, new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void resetKeepsBufferReusable() {
+        JsonBuffer buffer = new JsonBuffer(8);
+        buffer.writeEscaped("第一条很长的消息内容");
+        buffer.reset().writeEscaped("ok");
+        assertEquals("ok", new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
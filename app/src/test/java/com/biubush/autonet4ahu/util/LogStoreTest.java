@@ -0,0 +1,74 @@
+package com.biubush.autonet4ahu.util;
+
+import com.biubush.autonet4ahu.model.LogRecord;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 持久化日志存储的单元测试，重点是重复记录的合并与写盘时机
+ */
+public class LogStoreTest {
+    private static final String LINE_A = "2024-01-01 00:00:00.000 [ERROR] 登录失败";
+    private static final String LINE_B = "2024-01-01 00:00:05.000 [INFO] 登录成功";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void firstOccurrenceIsPersistedWhileRepeatsArePending() throws Exception {
+        File dir = folder.newFolder();
+        LogStore store = new LogStore(dir);
+        long seq = store.append(1000, LogRecord.LEVEL_ERROR, LINE_A);
+        assertTrue(store.repeatLast(seq, 2000));
+        assertTrue(store.repeatLast(seq, 3000));
+        store.flush();
+
+        // 模拟进程被杀：重复汇总还在内存中，第一条记录已经在磁盘上
+        List<LogRecord> records = new LogStore(dir).read(0, 10);
+        assertEquals(1, records.size());
+        assertEquals(LINE_A, records.get(0).getLine());
+    }
+
+    @Test
+    public void repeatsAreSummarisedInFollowUpRecord() throws Exception {
+        File dir = folder.newFolder();
+        LogStore store = new LogStore(dir);
+        long seq = store.append(1000, LogRecord.LEVEL_ERROR, LINE_A);
+        store.repeatLast(seq, 2000);
+        store.repeatLast(seq, 3000);
+
+        // 汇总未写盘时也能读到
+        List<LogRecord> pending = store.read(0, 10);
+        assertEquals(2, pending.size());
+        assertEquals(3, pending.get(1).getRepeatCount());
+
+        store.append(5000, LogRecord.LEVEL_INFO, LINE_B);
+        store.flush();
+
+        List<LogRecord> records = new LogStore(dir).read(0, 10);
+        assertEquals(3, records.size());
+        assertEquals(LINE_A, records.get(0).getLine());
+        assertEquals(1, records.get(0).getRepeatCount());
+        assertEquals(LogRecord.LEVEL_ERROR, records.get(1).getLevel());
+        assertEquals(3, records.get(1).getRepeatCount());
+        assertTrue(records.get(1).getMessage().startsWith("上一条日志重复3次"));
+        assertEquals(LINE_B, records.get(2).getLine());
+    }
+
+    @Test
+    public void repeatOfOlderRecordIsRejected() throws Exception {
+        LogStore store = new LogStore(folder.newFolder());
+        long first = store.append(1000, LogRecord.LEVEL_INFO, LINE_A);
+        store.append(2000, LogRecord.LEVEL_INFO, LINE_B);
+        assertFalse(store.repeatLast(first, 3000));
+    }
+}